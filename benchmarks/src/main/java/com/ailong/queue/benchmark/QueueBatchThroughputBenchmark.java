@@ -0,0 +1,169 @@
+package com.ailong.queue.benchmark;
+
+import com.ailong.queue.MessagePassingQueue;
+import com.ailong.queue.SpscArrayQueue;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.BenchmarkParams;
+
+import java.util.ArrayList;
+import java.util.Queue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 批量吞吐量
+ * MessagePassingQueue 使用 fill/drain，SpscArrayQueueBatchedDrain 使用 drainBatched，
+ * BlockingQueue 使用 drainTo，其他队列逐个 offer/poll
+ * <p>
+ * 生产者/消费者线程数 通过 -tg 指定，顺序为 drain,fill：
+ * $ java -jar benchmarks.jar QueueBatchThroughputBenchmark -p qType=MpmcArrayQueue -tg 2,2
+ * </p>
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class QueueBatchThroughputBenchmark {
+    static final Integer ONE = 777;
+
+    @Param({"SpscArrayQueue", "SpscArrayQueueBatchedDrain", "MpscArrayQueue", "SpmcArrayQueue", "MpmcArrayQueue",
+            "ArrayBlockingQueue", "ConcurrentLinkedQueue"})
+    String qType;
+
+    @Param({"1024", "131072"})
+    int qCapacity;
+
+    @Param({"16", "256"})
+    int batchSize;
+
+    Queue<Integer> q;
+    MessagePassingQueue<Integer> mpq;
+    // 消费者索引 每批只发布一次
+    SpscArrayQueue<Integer> batchedDrainQ;
+
+    @Setup(Level.Trial)
+    public void createQueue(BenchmarkParams params) {
+        int[] threadGroups = params.getThreadGroups();
+        QueueByTypeFactory.checkThreads(qType, threadGroups[1], threadGroups[0]);
+        q = QueueByTypeFactory.createQueue(qType, qCapacity);
+        mpq = q instanceof MessagePassingQueue ? (MessagePassingQueue<Integer>) q : null;
+        batchedDrainQ = qType.endsWith("BatchedDrain") ? (SpscArrayQueue<Integer>) q : null;
+    }
+
+    @AuxCounters
+    @State(Scope.Thread)
+    public static class FillCounters {
+        public long filled;
+        public long fillsFailed;
+
+        @Setup(Level.Iteration)
+        public void clean() {
+            filled = fillsFailed = 0;
+        }
+    }
+
+    @AuxCounters
+    @State(Scope.Thread)
+    public static class DrainCounters implements MessagePassingQueue.Consumer<Integer> {
+        public long drained;
+        public long drainsFailed;
+        // 避免消费被优化掉
+        Integer sink;
+        final ArrayList<Integer> sinkList = new ArrayList<>();
+
+        @Setup(Level.Iteration)
+        public void clean() {
+            drained = drainsFailed = 0;
+        }
+
+        @Override
+        public void accept(Integer e) {
+            sink = e;
+        }
+    }
+
+    static final MessagePassingQueue.Supplier<Integer> SUPPLIER = new MessagePassingQueue.Supplier<Integer>() {
+        @Override
+        public Integer get() {
+            return ONE;
+        }
+    };
+
+    @Benchmark
+    @Group("batch")
+    @GroupThreads(1)
+    public int fill(FillCounters counters) {
+        final int filled;
+        if (mpq != null) {
+            filled = mpq.fill(SUPPLIER, batchSize);
+        } else {
+            int i = 0;
+            while (i < batchSize && q.offer(ONE)) {
+                i++;
+            }
+            filled = i;
+        }
+        if (filled == 0) {
+            counters.fillsFailed++;
+        } else {
+            counters.filled += filled;
+        }
+        return filled;
+    }
+
+    @Benchmark
+    @Group("batch")
+    @GroupThreads(1)
+    public int drain(DrainCounters counters) {
+        final int drained;
+        if (batchedDrainQ != null) {
+            drained = batchedDrainQ.drainBatched(counters, batchSize);
+        } else if (mpq != null) {
+            drained = mpq.drain(counters, batchSize);
+        } else if (q instanceof BlockingQueue) {
+            final ArrayList<Integer> sinkList = counters.sinkList;
+            drained = ((BlockingQueue<Integer>) q).drainTo(sinkList, batchSize);
+            sinkList.clear();
+        } else {
+            int i = 0;
+            Integer e;
+            while (i < batchSize && (e = q.poll()) != null) {
+                counters.sink = e;
+                i++;
+            }
+            drained = i;
+        }
+        if (drained == 0) {
+            counters.drainsFailed++;
+        } else {
+            counters.drained += drained;
+        }
+        return drained;
+    }
+
+    @TearDown(Level.Iteration)
+    public void emptyQueue() {
+        synchronized (q) {
+            while (q.poll() != null) {
+                // drain
+            }
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.ailong.queue.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.infra.Control;
+
+import java.util.Queue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 突发成本
+ * 生产者一次写入 burstSize 个元素，消费者全部取出后回复一个确认，
+ * 测量一次突发从写入到全部被消费的时间
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class QueueBurstCostBenchmark {
+    static final Integer ONE = 777;
+
+    @Param({"SpscArrayQueue", "MpscArrayQueue", "SpmcArrayQueue", "MpmcArrayQueue",
+            "ArrayBlockingQueue", "ConcurrentLinkedQueue"})
+    String qType;
+
+    @Param({"1024"})
+    int qCapacity;
+
+    @Param({"1", "10", "100"})
+    int burstSize;
+
+    Queue<Integer> burst;
+    Queue<Integer> ack;
+
+    @Setup(Level.Trial)
+    public void createQueues(BenchmarkParams params) {
+        // -tg 顺序为 consume,produce：burst 队列 由 produce 线程添加、consume 线程取出，ack 队列 相反
+        int[] threadGroups = params.getThreadGroups();
+        QueueByTypeFactory.checkThreads(qType, threadGroups[1], threadGroups[0]);
+        QueueByTypeFactory.checkThreads(qType, threadGroups[0], threadGroups[1]);
+        if (burstSize > qCapacity) {
+            throw new IllegalArgumentException("burstSize: " + burstSize + " (expected: <= " + qCapacity + ')');
+        }
+        burst = QueueByTypeFactory.createQueue(qType, qCapacity);
+        ack = QueueByTypeFactory.createQueue(qType, qCapacity);
+    }
+
+    @Benchmark
+    @Group("burst")
+    @GroupThreads(1)
+    public void produce(Control ctl) {
+        final Queue<Integer> burst = this.burst;
+        for (int i = 0; i < burstSize; i++) {
+            while (!burst.offer(ONE) && !ctl.stopMeasurement) {
+                // spin
+            }
+        }
+        while (ack.poll() == null && !ctl.stopMeasurement) {
+            // spin
+        }
+    }
+
+    @Benchmark
+    @Group("burst")
+    @GroupThreads(1)
+    public void consume(Control ctl) {
+        final Queue<Integer> burst = this.burst;
+        for (int i = 0; i < burstSize; i++) {
+            while (burst.poll() == null) {
+                if (ctl.stopMeasurement) {
+                    return;
+                }
+            }
+        }
+        while (!ack.offer(ONE) && !ctl.stopMeasurement) {
+            // spin
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void emptyQueues() {
+        synchronized (burst) {
+            while (burst.poll() != null) {
+                // drain
+            }
+            while (ack.poll() != null) {
+                // drain
+            }
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.ailong.queue.benchmark;
+
+import com.ailong.queue.MpmcArrayQueue;
+import com.ailong.queue.MpmcCompactArrayQueue;
+import com.ailong.queue.MpscArrayQueue;
+import com.ailong.queue.MpscStripedArrayQueue;
+import com.ailong.queue.MpscXaddArrayQueue;
+import com.ailong.queue.SpmcArrayQueue;
+import com.ailong.queue.SpscArrayQueue;
+import com.ailong.queue.wait.AdaptiveBackoff;
+import com.ailong.queue.wait.ExponentialBackoff;
+
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * 按名称创建 基准测试 队列
+ * <p>
+ * 名称即类名，java.util.concurrent 的队列作为对照组；
+ * 类名 加 ExponentialBackoff / AdaptiveBackoff 后缀 表示 带 cas 退避；
+ * SpscArrayQueueBatchedDrain 与 SpscArrayQueue 相同，由 QueueBatchThroughputBenchmark 用 drainBatched 消费
+ * </p>
+ */
+public final class QueueByTypeFactory {
+
+    private QueueByTypeFactory() {
+
+    }
+
+    public static <E> Queue<E> createQueue(String qType, int capacity) {
+        switch (qType) {
+            case "SpscArrayQueue":
+            case "SpscArrayQueueBatchedDrain":
+                return new SpscArrayQueue<E>(capacity);
+            case "MpscArrayQueue":
+                return new MpscArrayQueue<E>(capacity);
+            case "SpmcArrayQueue":
+                return new SpmcArrayQueue<E>(capacity);
+            case "MpmcArrayQueue":
+                return new MpmcArrayQueue<E>(capacity);
+            case "MpmcCompactArrayQueue":
+                return new MpmcCompactArrayQueue<E>(capacity);
+            case "MpscXaddArrayQueue":
+                return new MpscXaddArrayQueue<E>(capacity);
+            case "MpscStripedArrayQueue":
+                return new MpscStripedArrayQueue<E>(capacity);
+            case "MpscArrayQueueExponentialBackoff":
+                return new MpscArrayQueue<E>(capacity, new ExponentialBackoff());
+            case "MpscArrayQueueAdaptiveBackoff":
+                return new MpscArrayQueue<E>(capacity, new AdaptiveBackoff());
+            case "MpmcArrayQueueExponentialBackoff":
+                return new MpmcArrayQueue<E>(capacity, new ExponentialBackoff());
+            case "MpmcArrayQueueAdaptiveBackoff":
+                return new MpmcArrayQueue<E>(capacity, new AdaptiveBackoff());
+            case "ArrayBlockingQueue":
+                return new ArrayBlockingQueue<E>(capacity);
+            case "ConcurrentLinkedQueue":
+                return new ConcurrentLinkedQueue<E>();
+        }
+        throw new IllegalArgumentException("Unknown queue type: " + qType);
+    }
+
+    /**
+     * 检查 生产者/消费者线程数 是否符合队列的并发模型
+     *
+     * @param qType     队列名称
+     * @param producers 生产者线程数
+     * @param consumers 消费者线程数
+     */
+    public static void checkThreads(String qType, int producers, int consumers) {
+        if (qType.startsWith("Sp") && producers > 1) {
+            throw new IllegalArgumentException(qType + " supports a single producer, got: " + producers);
+        }
+        if (qType.startsWith("Mpsc") || qType.startsWith("Spsc")) {
+            if (consumers > 1) {
+                throw new IllegalArgumentException(qType + " supports a single consumer, got: " + consumers);
+            }
+        }
+    }
+}
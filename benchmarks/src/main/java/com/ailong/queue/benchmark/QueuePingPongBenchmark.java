@@ -0,0 +1,99 @@
+package com.ailong.queue.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.infra.Control;
+
+import java.util.Queue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 往返延迟
+ * ping 线程向 ping 队列 offer 一个元素，pong 线程取出后写回 pong 队列，ping 线程收到后完成一次往返
+ * <p>
+ * 默认给出平均值，百分位使用 -bm sample
+ * </p>
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class QueuePingPongBenchmark {
+    static final Integer ONE = 777;
+
+    @Param({"SpscArrayQueue", "MpscArrayQueue", "SpmcArrayQueue", "MpmcArrayQueue",
+            "ArrayBlockingQueue", "ConcurrentLinkedQueue"})
+    String qType;
+
+    @Param({"1024"})
+    int qCapacity;
+
+    Queue<Integer> ping;
+    Queue<Integer> pong;
+
+    @Setup(Level.Trial)
+    public void createQueues(BenchmarkParams params) {
+        // -tg 顺序为 ping,pong：ping 队列 由 ping 线程添加、pong 线程取出，pong 队列 相反
+        int[] threadGroups = params.getThreadGroups();
+        QueueByTypeFactory.checkThreads(qType, threadGroups[0], threadGroups[1]);
+        QueueByTypeFactory.checkThreads(qType, threadGroups[1], threadGroups[0]);
+        ping = QueueByTypeFactory.createQueue(qType, qCapacity);
+        pong = QueueByTypeFactory.createQueue(qType, qCapacity);
+    }
+
+    @Benchmark
+    @Group("pingpong")
+    @GroupThreads(1)
+    public void ping(Control ctl) {
+        while (!ping.offer(ONE) && !ctl.stopMeasurement) {
+            // spin
+        }
+        while (pong.poll() == null && !ctl.stopMeasurement) {
+            // spin
+        }
+    }
+
+    @Benchmark
+    @Group("pingpong")
+    @GroupThreads(1)
+    public void pong(Control ctl) {
+        Integer e;
+        while ((e = ping.poll()) == null && !ctl.stopMeasurement) {
+            // spin
+        }
+        if (e == null) {
+            return;
+        }
+        while (!pong.offer(e) && !ctl.stopMeasurement) {
+            // spin
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void emptyQueues() {
+        synchronized (ping) {
+            while (ping.poll() != null) {
+                // drain
+            }
+            while (pong.poll() != null) {
+                // drain
+            }
+        }
+    }
+}
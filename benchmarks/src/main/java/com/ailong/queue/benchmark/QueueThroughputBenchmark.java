@@ -0,0 +1,116 @@
+package com.ailong.queue.benchmark;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.BenchmarkParams;
+
+import java.util.Queue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 吞吐量
+ * 生产者不停 offer，消费者不停 poll，失败不等待
+ * <p>
+ * 生产者/消费者线程数 通过 -tg 指定，顺序为 offer,poll：
+ * $ java -jar benchmarks.jar QueueThroughputBenchmark -p qType=MpscArrayQueue -tg 4,1
+ * cas 占位 与 XADD 占位 对比：
+ * $ java -jar benchmarks.jar QueueThroughputBenchmark -p qType=MpscArrayQueue,MpscXaddArrayQueue -tg 32,1
+ * </p>
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class QueueThroughputBenchmark {
+    static final Integer ONE = 777;
+
+    @Param({"SpscArrayQueue", "MpscArrayQueue", "MpscXaddArrayQueue", "SpmcArrayQueue", "MpmcArrayQueue",
+            "MpmcCompactArrayQueue", "ArrayBlockingQueue", "ConcurrentLinkedQueue"})
+    String qType;
+
+    @Param({"1024", "131072"})
+    int qCapacity;
+
+    Queue<Integer> q;
+
+    @Setup(Level.Trial)
+    public void createQueue(BenchmarkParams params) {
+        int[] threadGroups = params.getThreadGroups();
+        QueueByTypeFactory.checkThreads(qType, threadGroups[0], threadGroups[1]);
+        q = QueueByTypeFactory.createQueue(qType, qCapacity);
+    }
+
+    @AuxCounters
+    @State(Scope.Thread)
+    public static class OfferCounters {
+        public long offersFailed;
+        public long offersMade;
+
+        @Setup(Level.Iteration)
+        public void clean() {
+            offersFailed = offersMade = 0;
+        }
+    }
+
+    @AuxCounters
+    @State(Scope.Thread)
+    public static class PollCounters {
+        public long pollsFailed;
+        public long pollsMade;
+
+        @Setup(Level.Iteration)
+        public void clean() {
+            pollsFailed = pollsMade = 0;
+        }
+    }
+
+    @Benchmark
+    @Group("tpt")
+    @GroupThreads(1)
+    public void offer(OfferCounters counters) {
+        if (!q.offer(ONE)) {
+            counters.offersFailed++;
+        } else {
+            counters.offersMade++;
+        }
+    }
+
+    @Benchmark
+    @Group("tpt")
+    @GroupThreads(1)
+    public Integer poll(PollCounters counters) {
+        Integer e = q.poll();
+        if (e == null) {
+            counters.pollsFailed++;
+        } else {
+            counters.pollsMade++;
+        }
+        return e;
+    }
+
+    @TearDown(Level.Iteration)
+    public void emptyQueue() {
+        // 测量结束后 只有一个线程清空
+        synchronized (q) {
+            while (q.poll() != null) {
+                // drain
+            }
+        }
+    }
+}
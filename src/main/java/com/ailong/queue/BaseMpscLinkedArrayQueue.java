@@ -0,0 +1,612 @@
+package com.ailong.queue;
+
+import com.ailong.queue.util.Pow2;
+import com.ailong.queue.util.RangeUtil;
+
+import java.util.AbstractQueue;
+import java.util.Iterator;
+
+import static com.ailong.queue.LinkedArrayQueueUtil.length;
+import static com.ailong.queue.LinkedArrayQueueUtil.modifiedCalcCircularRefElementOffset;
+import static com.ailong.queue.util.UnsafeAccess.UNSAFE;
+import static com.ailong.queue.util.UnsafeAccess.fieldOffset;
+import static com.ailong.queue.util.UnsafeRefArrayAccess.allocateRefArray;
+import static com.ailong.queue.util.UnsafeRefArrayAccess.lvRefElement;
+import static com.ailong.queue.util.UnsafeRefArrayAccess.soRefElement;
+
+/**
+ * 链式数组 队列
+ * 多生产者-单消费者
+ * <p>
+ * 生产者索引 = 实际索引 << 1，最低位为 resize 标记：
+ * 某个生产者 cas(pIndex, pIndex + 1) 成功后独占扩容，其他生产者看到奇数索引时自旋等待，
+ * 扩容完成后 soProducerIndex(pIndex + 2) 清除标记
+ * </p>
+ *
+ * @param <E>
+ */
+public abstract class BaseMpscLinkedArrayQueue<E> extends BaseMpscLinkedArrayQueueColdProducerFields<E>
+        implements MessagePassingQueue<E>, QueueProgressIndicators {
+
+    // No post padding here, subclasses must add
+    // 跳转标记
+    private static final Object JUMP = new Object();
+    // 旧块已被消费
+    private static final Object BUFFER_CONSUMED = new Object();
+
+    private static final int CONTINUE_TO_P_INDEX_CAS = 0;
+    private static final int RETRY = 1;
+    private static final int QUEUE_FULL = 2;
+    private static final int QUEUE_RESIZE = 3;
+
+    /**
+     * @param initialCapacity 第一个块的容量，会向上取2的N次方
+     */
+    public BaseMpscLinkedArrayQueue(final int initialCapacity) {
+        RangeUtil.checkGreaterThanOrEqual(initialCapacity, 2, "initialCapacity");
+
+        int p2capacity = Pow2.roundToPowerOfTwo(initialCapacity);
+        // leave lower bit of mask clear
+        long mask = (p2capacity - 1) << 1;
+        // need extra element to point at next array
+        E[] buffer = allocateRefArray(p2capacity + 1);
+        producerBuffer = buffer;
+        producerMask = mask;
+        consumerBuffer = buffer;
+        consumerMask = mask;
+        soProducerLimit(mask); // we know it's all empty to start with
+    }
+
+    @Override
+    public int size() {
+        // NOTE: because indices are on even numbers we cannot use the size util.
+        long after = lvConsumerIndex();
+        long size;
+        while (true) {
+            final long before = after;
+            final long currentProducerIndex = lvProducerIndex();
+            after = lvConsumerIndex();
+            if (before == after) {
+                size = ((currentProducerIndex - after) >> 1);
+                break;
+            }
+        }
+        // Long overflow is impossible, so size is always positive. Integer overflow is possible for the unbounded
+        // indexed queues.
+        if (size > Integer.MAX_VALUE) {
+            return Integer.MAX_VALUE;
+        } else {
+            return (int) size;
+        }
+    }
+
+    /**
+     * 索引 步长为 2
+     */
+    @Override
+    public int estimatedSize() {
+        final int capacity = capacity();
+        return IndexedQueueSizeUtil.estimatedSize(this, 1, capacity == UNBOUNDED_CAPACITY ? Integer.MAX_VALUE : capacity);
+    }
+
+    @Override
+    public boolean isEmpty() {
+        // Order matters!
+        // Loading consumer before producer allows for producer increments after consumer index is read.
+        // This ensures this method is conservative in it's estimate. Note that as this is an MPMC there is
+        // nothing we can do to make this an exact method.
+        return (lvConsumerIndex() == lvProducerIndex());
+    }
+
+    @Override
+    public String toString() {
+        return this.getClass().getName();
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * 添加
+     *
+     * @param e
+     * @return
+     */
+    @Override
+    public boolean offer(final E e) {
+        if (null == e) {
+            throw new NullPointerException();
+        }
+
+        long mask;
+        E[] buffer;
+        long pIndex;
+
+        while (true) {
+            long producerLimit = lvProducerLimit();
+            pIndex = lvProducerIndex();
+            // lower bit is indicative of resize, if we see it we spin until it's cleared
+            // 正在扩容，自旋
+            if ((pIndex & 1) == 1) {
+                continue;
+            }
+            // pIndex is even (lower bit is 0) -> actual index is (pIndex >> 1)
+
+            // mask/buffer may get changed by resizing -> only use for array access after successful CAS.
+            mask = this.producerMask;
+            buffer = this.producerBuffer;
+            // a successful CAS ties the ordering, lv(pIndex) - [mask/buffer] -> cas(pIndex)
+
+            // assumption behind this optimization is that queue is almost always empty or near empty
+            if (producerLimit <= pIndex) {
+                int result = offerSlowPath(mask, pIndex, producerLimit);
+                switch (result) {
+                    case CONTINUE_TO_P_INDEX_CAS:
+                        break;
+                    case RETRY:
+                        continue;
+                    case QUEUE_FULL:
+                        return false;
+                    case QUEUE_RESIZE:
+                        resize(mask, buffer, pIndex, e, null);
+                        return true;
+                }
+            }
+
+            if (casProducerIndex(pIndex, pIndex + 2)) {
+                break;
+            }
+        }
+        // INDEX visible before ELEMENT
+        final long offset = modifiedCalcCircularRefElementOffset(pIndex, mask);
+        soRefElement(buffer, offset, e); // release element e
+        return true;
+    }
+
+    /**
+     * 取出
+     * 生产者索引已经前移但元素还不可见时，自旋等待元素，保证 poll() == null 时队列为空
+     *
+     * @return
+     */
+    @SuppressWarnings("unchecked")
+    @Override
+    public E poll() {
+        final E[] buffer = consumerBuffer;
+        final long index = lpConsumerIndex();
+        final long mask = consumerMask;
+
+        final long offset = modifiedCalcCircularRefElementOffset(index, mask);
+        Object e = lvRefElement(buffer, offset);
+        if (e == null) {
+            if (index != lvProducerIndex()) {
+                // poll() == null iff queue is empty, null element is not strong enough indicator, so we must
+                // check the producer index. If the queue is indeed not empty we spin until element is
+                // visible.
+                do {
+                    e = lvRefElement(buffer, offset);
+                } while (e == null);
+            } else {
+                return null;
+            }
+        }
+
+        if (e == JUMP) {
+            final E[] nextBuffer = nextBuffer(buffer, mask);
+            return newBufferPoll(nextBuffer, index);
+        }
+
+        soRefElement(buffer, offset, null); // release element null
+        soConsumerIndex(index + 2); // release cIndex
+        return (E) e;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public E peek() {
+        final E[] buffer = consumerBuffer;
+        final long index = lpConsumerIndex();
+        final long mask = consumerMask;
+
+        final long offset = modifiedCalcCircularRefElementOffset(index, mask);
+        Object e = lvRefElement(buffer, offset);
+        if (e == null && index != lvProducerIndex()) {
+            // peek() == null iff queue is empty, null element is not strong enough indicator, so we must
+            // check the producer index. If the queue is indeed not empty we spin until element is visible.
+            do {
+                e = lvRefElement(buffer, offset);
+            } while (e == null);
+        }
+        if (e == JUMP) {
+            return newBufferPeek(nextBuffer(buffer, mask), index);
+        }
+        return (E) e;
+    }
+
+    /**
+     * We do not inline resize into this method because we do not resize on fill.
+     */
+    private int offerSlowPath(long mask, long pIndex, long producerLimit) {
+        final long cIndex = lvConsumerIndex();
+        long bufferCapacity = getCurrentBufferCapacity(mask);
+
+        if (cIndex + bufferCapacity > pIndex) {
+            // 当前块还有空间，更新 limit
+            if (!casProducerLimit(producerLimit, cIndex + bufferCapacity)) {
+                // retry from top
+                return RETRY;
+            } else {
+                // continue to pIndex CAS
+                return CONTINUE_TO_P_INDEX_CAS;
+            }
+        }
+        // full and cannot grow
+        else if (availableInQueue(pIndex, cIndex) <= 0) {
+            // offer should return false;
+            return QUEUE_FULL;
+        }
+        // grab index for resize -> set lower bit
+        else if (casProducerIndex(pIndex, pIndex + 1)) {
+            // trigger a resize
+            return QUEUE_RESIZE;
+        } else {
+            // failed resize attempt, retry from top
+            return RETRY;
+        }
+    }
+
+    /**
+     * @return available elements in queue * 2
+     */
+    protected abstract long availableInQueue(long pIndex, long cIndex);
+
+    @SuppressWarnings("unchecked")
+    private E[] nextBuffer(final E[] buffer, final long mask) {
+        final long offset = nextArrayOffset(mask);
+        final E[] nextBuffer = (E[]) lvRefElement(buffer, offset);
+        consumerBuffer = nextBuffer;
+        consumerMask = (length(nextBuffer) - 2) << 1;
+        soRefElement(buffer, offset, BUFFER_CONSUMED);
+        return nextBuffer;
+    }
+
+    private static long nextArrayOffset(long mask) {
+        return modifiedCalcCircularRefElementOffset(mask + 2, Long.MAX_VALUE);
+    }
+
+    private E newBufferPoll(E[] nextBuffer, long index) {
+        final long offset = modifiedCalcCircularRefElementOffset(index, consumerMask);
+        final E n = lvRefElement(nextBuffer, offset);
+        if (n == null) {
+            throw new IllegalStateException("new buffer must have at least one element");
+        }
+        soRefElement(nextBuffer, offset, null);
+        soConsumerIndex(index + 2);
+        return n;
+    }
+
+    private E newBufferPeek(E[] nextBuffer, long index) {
+        final long offset = modifiedCalcCircularRefElementOffset(index, consumerMask);
+        final E n = lvRefElement(nextBuffer, offset);
+        if (null == n) {
+            throw new IllegalStateException("new buffer must have at least one element");
+        }
+        return n;
+    }
+
+    @Override
+    public long currentProducerIndex() {
+        return lvProducerIndex() / 2;
+    }
+
+    @Override
+    public long currentConsumerIndex() {
+        return lvConsumerIndex() / 2;
+    }
+
+    @Override
+    public abstract int capacity();
+
+    // 多生产者 要用消费者索引 判断是否已满，与 offer 相同，见 MessagePassingQueue#relaxedOffer
+    @Override
+    public boolean relaxedOffer(E e) {
+        return offer(e);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public E relaxedPoll() {
+        final E[] buffer = consumerBuffer;
+        final long index = lpConsumerIndex();
+        final long mask = consumerMask;
+
+        final long offset = modifiedCalcCircularRefElementOffset(index, mask);
+        Object e = lvRefElement(buffer, offset);
+        if (e == null) {
+            return null;
+        }
+        if (e == JUMP) {
+            final E[] nextBuffer = nextBuffer(buffer, mask);
+            return newBufferPoll(nextBuffer, index);
+        }
+        soRefElement(buffer, offset, null);
+        soConsumerIndex(index + 2);
+        return (E) e;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public E relaxedPeek() {
+        final E[] buffer = consumerBuffer;
+        final long index = lpConsumerIndex();
+        final long mask = consumerMask;
+
+        final long offset = modifiedCalcCircularRefElementOffset(index, mask);
+        Object e = lvRefElement(buffer, offset);
+        if (e == JUMP) {
+            return newBufferPeek(nextBuffer(buffer, mask), index);
+        }
+        return (E) e;
+    }
+
+    @Override
+    public int fill(Supplier<E> s) {
+        return MessagePassingQueueUtil.fillBounded(this, s);
+    }
+
+    @Override
+    public int fill(Supplier<E> s, int limit) {
+        if (null == s)
+            throw new IllegalArgumentException("supplier is null");
+        if (limit < 0)
+            throw new IllegalArgumentException("limit is negative:" + limit);
+        if (limit == 0)
+            return 0;
+
+        long mask;
+        E[] buffer;
+        long pIndex;
+        int claimedSlots;
+        while (true) {
+            long producerLimit = lvProducerLimit();
+            pIndex = lvProducerIndex();
+            // lower bit is indicative of resize, if we see it we spin until it's cleared
+            if ((pIndex & 1) == 1) {
+                continue;
+            }
+            // pIndex is even (lower bit is 0) -> actual index is (pIndex >> 1)
+
+            // NOTE: mask/buffer may get changed by resizing -> only use for array access after successful CAS.
+            // Only by virtue offloading them between the lvProducerIndex and a successful casProducerIndex are they
+            // safe to use.
+            mask = this.producerMask;
+            buffer = this.producerBuffer;
+            // a successful CAS ties the ordering, lv(pIndex) -> [mask/buffer] -> cas(pIndex)
+
+            // we want 'limit' slots, but will settle for whatever is visible to 'producerLimit'
+            long batchIndex = Math.min(producerLimit, pIndex + 2L * limit); //  -> producerLimit >= batchIndex
+
+            if (pIndex >= producerLimit) {
+                int result = offerSlowPath(mask, pIndex, producerLimit);
+                switch (result) {
+                    case CONTINUE_TO_P_INDEX_CAS:
+                        // offer slow path verifies only one slot ahead, we cannot rely on indication here
+                    case RETRY:
+                        continue;
+                    case QUEUE_FULL:
+                        return 0;
+                    case QUEUE_RESIZE:
+                        resize(mask, buffer, pIndex, null, s);
+                        return 1;
+                }
+            }
+
+            // claim limit slots at once
+            if (casProducerIndex(pIndex, batchIndex)) {
+                claimedSlots = (int) ((batchIndex - pIndex) / 2);
+                break;
+            }
+        }
+
+        for (int i = 0; i < claimedSlots; i++) {
+            final long offset = modifiedCalcCircularRefElementOffset(pIndex + 2L * i, mask);
+            soRefElement(buffer, offset, s.get());
+        }
+        return claimedSlots;
+    }
+
+    @Override
+    public void fill(Supplier<E> s, WaitStrategy wait, ExitCondition exit) {
+        MessagePassingQueueUtil.fill(this, s, wait, exit);
+    }
+
+    @Override
+    public int drain(Consumer<E> c) {
+        return drain(c, capacity());
+    }
+
+    @Override
+    public int drain(Consumer<E> c, int limit) {
+        return MessagePassingQueueUtil.drain(this, c, limit);
+    }
+
+    @Override
+    public void drain(Consumer<E> c, WaitStrategy wait, ExitCondition exit) {
+        MessagePassingQueueUtil.drain(this, c, wait, exit);
+    }
+
+    /**
+     * 扩容
+     * 调用前 生产者索引最低位已置为1，其他生产者在此期间自旋
+     */
+    private void resize(long oldMask, E[] oldBuffer, long pIndex, E e, Supplier<E> s) {
+        int newBufferLength = getNextBufferSize(oldBuffer);
+        final E[] newBuffer;
+        try {
+            newBuffer = allocateRefArray(newBufferLength);
+        } catch (OutOfMemoryError oom) {
+            // 回滚 resize 标记
+            soProducerIndex(pIndex);
+            throw oom;
+        }
+
+        producerBuffer = newBuffer;
+        final int newMask = (newBufferLength - 2) << 1;
+        producerMask = newMask;
+
+        final long offsetInOld = modifiedCalcCircularRefElementOffset(pIndex, oldMask);
+        final long offsetInNew = modifiedCalcCircularRefElementOffset(pIndex, newMask);
+
+        soRefElement(newBuffer, offsetInNew, e == null ? s.get() : e);// element in new array
+        soRefElement(oldBuffer, nextArrayOffset(oldMask), newBuffer);// buffer linked
+
+        // ASSERT code
+        final long cIndex = lvConsumerIndex();
+        final long availableInQueue = availableInQueue(pIndex, cIndex);
+        RangeUtil.checkPositive(availableInQueue, "availableInQueue");
+
+        // Invalidate racing CASs
+        // We never set the limit beyond the bounds of a buffer
+        soProducerLimit(pIndex + Math.min(newMask, availableInQueue));
+
+        // make resize visible to the other producers
+        soProducerIndex(pIndex + 2);
+
+        // INDEX visible before ELEMENT, consistent with consumer expectation
+
+        // make resize visible to consumer
+        soRefElement(oldBuffer, offsetInOld, JUMP);
+    }
+
+    /**
+     * @return next buffer size(inclusive of next array pointer)
+     */
+    protected abstract int getNextBufferSize(E[] buffer);
+
+    /**
+     * @return current buffer capacity for elements (excluding next pointer and jump entry) * 2
+     */
+    protected abstract long getCurrentBufferCapacity(long mask);
+}
+
+abstract class BaseMpscLinkedArrayQueueL1Pad<E> extends AbstractQueue<E> implements IndexedQueue {
+    byte b000, b001, b002, b003, b004, b005, b006, b007;//  8b
+    byte b010, b011, b012, b013, b014, b015, b016, b017;// 16b
+    byte b020, b021, b022, b023, b024, b025, b026, b027;// 24b
+    byte b030, b031, b032, b033, b034, b035, b036, b037;// 32b
+    byte b040, b041, b042, b043, b044, b045, b046, b047;// 40b
+    byte b050, b051, b052, b053, b054, b055, b056, b057;// 48b
+    byte b060, b061, b062, b063, b064, b065, b066, b067;// 56b
+    byte b070, b071, b072, b073, b074, b075, b076, b077;// 64b
+    byte b100, b101, b102, b103, b104, b105, b106, b107;// 72b
+    byte b110, b111, b112, b113, b114, b115, b116, b117;// 80b
+    byte b120, b121, b122, b123, b124, b125, b126, b127;// 88b
+    byte b130, b131, b132, b133, b134, b135, b136, b137;// 96b
+    byte b140, b141, b142, b143, b144, b145, b146, b147;//104b
+    byte b150, b151, b152, b153, b154, b155, b156, b157;//112b
+    byte b160, b161, b162, b163, b164, b165, b166, b167;//120b
+    byte b170, b171, b172, b173, b174, b175, b176, b177;//128b
+}
+
+// 生产者 索引
+abstract class BaseMpscLinkedArrayQueueProducerIndexField<E> extends BaseMpscLinkedArrayQueueL1Pad<E> {
+    private final static long P_INDEX_OFFSET = fieldOffset(BaseMpscLinkedArrayQueueProducerIndexField.class, "producerIndex");
+
+    private volatile long producerIndex;
+
+    @Override
+    public final long lvProducerIndex() {
+        return producerIndex;
+    }
+
+    final void soProducerIndex(long newValue) {
+        UNSAFE.putOrderedLong(this, P_INDEX_OFFSET, newValue);
+    }
+
+    final boolean casProducerIndex(long expect, long newValue) {
+        return UNSAFE.compareAndSwapLong(this, P_INDEX_OFFSET, expect, newValue);
+    }
+}
+
+abstract class BaseMpscLinkedArrayQueueL2Pad<E> extends BaseMpscLinkedArrayQueueProducerIndexField<E> {
+    byte b000, b001, b002, b003, b004, b005, b006, b007;//  8b
+    byte b010, b011, b012, b013, b014, b015, b016, b017;// 16b
+    byte b020, b021, b022, b023, b024, b025, b026, b027;// 24b
+    byte b030, b031, b032, b033, b034, b035, b036, b037;// 32b
+    byte b040, b041, b042, b043, b044, b045, b046, b047;// 40b
+    byte b050, b051, b052, b053, b054, b055, b056, b057;// 48b
+    byte b060, b061, b062, b063, b064, b065, b066, b067;// 56b
+    byte b070, b071, b072, b073, b074, b075, b076, b077;// 64b
+    byte b100, b101, b102, b103, b104, b105, b106, b107;// 72b
+    byte b110, b111, b112, b113, b114, b115, b116, b117;// 80b
+    byte b120, b121, b122, b123, b124, b125, b126, b127;// 88b
+    byte b130, b131, b132, b133, b134, b135, b136, b137;// 96b
+    byte b140, b141, b142, b143, b144, b145, b146, b147;//104b
+    byte b150, b151, b152, b153, b154, b155, b156, b157;//112b
+    byte b160, b161, b162, b163, b164, b165, b166, b167;//120b
+    byte b170, b171, b172, b173, b174, b175, b176, b177;//128b
+}
+
+// 消费者 索引
+abstract class BaseMpscLinkedArrayQueueConsumerFields<E> extends BaseMpscLinkedArrayQueueL2Pad<E> {
+    private final static long C_INDEX_OFFSET = fieldOffset(BaseMpscLinkedArrayQueueConsumerFields.class, "consumerIndex");
+
+    private volatile long consumerIndex;
+    protected long consumerMask;
+    protected E[] consumerBuffer;
+
+    @Override
+    public final long lvConsumerIndex() {
+        return consumerIndex;
+    }
+
+    final long lpConsumerIndex() {
+        return UNSAFE.getLong(this, C_INDEX_OFFSET);
+    }
+
+    final void soConsumerIndex(long newValue) {
+        UNSAFE.putOrderedLong(this, C_INDEX_OFFSET, newValue);
+    }
+}
+
+abstract class BaseMpscLinkedArrayQueueL3Pad<E> extends BaseMpscLinkedArrayQueueConsumerFields<E> {
+    byte b000, b001, b002, b003, b004, b005, b006, b007;//  8b
+    byte b010, b011, b012, b013, b014, b015, b016, b017;// 16b
+    byte b020, b021, b022, b023, b024, b025, b026, b027;// 24b
+    byte b030, b031, b032, b033, b034, b035, b036, b037;// 32b
+    byte b040, b041, b042, b043, b044, b045, b046, b047;// 40b
+    byte b050, b051, b052, b053, b054, b055, b056, b057;// 48b
+    byte b060, b061, b062, b063, b064, b065, b066, b067;// 56b
+    byte b070, b071, b072, b073, b074, b075, b076, b077;// 64b
+    byte b100, b101, b102, b103, b104, b105, b106, b107;// 72b
+    byte b110, b111, b112, b113, b114, b115, b116, b117;// 80b
+    byte b120, b121, b122, b123, b124, b125, b126, b127;// 88b
+    byte b130, b131, b132, b133, b134, b135, b136, b137;// 96b
+    byte b140, b141, b142, b143, b144, b145, b146, b147;//104b
+    byte b150, b151, b152, b153, b154, b155, b156, b157;//112b
+    byte b160, b161, b162, b163, b164, b165, b166, b167;//120b
+    byte b170, b171, b172, b173, b174, b175, b176, b177;//128b
+}
+
+// 生产者 limit 及当前生产者块
+abstract class BaseMpscLinkedArrayQueueColdProducerFields<E> extends BaseMpscLinkedArrayQueueL3Pad<E> {
+    private final static long P_LIMIT_OFFSET = fieldOffset(BaseMpscLinkedArrayQueueColdProducerFields.class, "producerLimit");
+
+    private volatile long producerLimit;
+    protected long producerMask;
+    protected E[] producerBuffer;
+
+    final long lvProducerLimit() {
+        return producerLimit;
+    }
+
+    final boolean casProducerLimit(long expect, long newValue) {
+        return UNSAFE.compareAndSwapLong(this, P_LIMIT_OFFSET, expect, newValue);
+    }
+
+    final void soProducerLimit(long newValue) {
+        UNSAFE.putOrderedLong(this, P_LIMIT_OFFSET, newValue);
+    }
+}
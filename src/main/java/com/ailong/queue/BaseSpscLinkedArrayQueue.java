@@ -0,0 +1,377 @@
+package com.ailong.queue;
+
+import java.util.AbstractQueue;
+import java.util.Iterator;
+
+import static com.ailong.queue.LinkedArrayQueueUtil.length;
+import static com.ailong.queue.LinkedArrayQueueUtil.nextArrayOffset;
+import static com.ailong.queue.util.UnsafeAccess.UNSAFE;
+import static com.ailong.queue.util.UnsafeAccess.fieldOffset;
+import static com.ailong.queue.util.UnsafeRefArrayAccess.calcCircularRefElementOffset;
+import static com.ailong.queue.util.UnsafeRefArrayAccess.lvRefElement;
+import static com.ailong.queue.util.UnsafeRefArrayAccess.soRefElement;
+
+/**
+ * 链式数组 队列
+ * 单生产者-单消费者
+ * <p>
+ * 数组块长度 = capacity + 1，最后一个位置指向下一个数组块，
+ * 生产者写满当前块时，在当前位置写入 JUMP，消费者遇到 JUMP 跳到下一个块
+ * </p>
+ *
+ * @param <E>
+ */
+public abstract class BaseSpscLinkedArrayQueue<E> extends BaseSpscLinkedArrayQueueL3Pad<E>
+        implements MessagePassingQueue<E>, QueueProgressIndicators {
+
+    // 跳转标记
+    private static final Object JUMP = new Object();
+
+    @Override
+    public final Iterator<E> iterator() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public final int size() {
+        return IndexedQueueSizeUtil.size(this);
+    }
+
+    @Override
+    public final int estimatedSize() {
+        final int capacity = capacity();
+        return IndexedQueueSizeUtil.estimatedSize(this, 0, capacity == UNBOUNDED_CAPACITY ? Integer.MAX_VALUE : capacity);
+    }
+
+    @Override
+    public final boolean isEmpty() {
+        return IndexedQueueSizeUtil.isEmpty(this);
+    }
+
+    @Override
+    public String toString() {
+        return this.getClass().getName();
+    }
+
+    @Override
+    public long currentProducerIndex() {
+        return lvProducerIndex();
+    }
+
+    @Override
+    public long currentConsumerIndex() {
+        return lvConsumerIndex();
+    }
+
+    // 单生产者 与 offer 相同，见 MessagePassingQueue#relaxedOffer
+    @Override
+    public boolean relaxedOffer(final E e) {
+        return offer(e);
+    }
+
+    @Override
+    public E relaxedPoll() {
+        return poll();
+    }
+
+    @Override
+    public E relaxedPeek() {
+        return peek();
+    }
+
+    @Override
+    public int drain(final Consumer<E> c) {
+        return MessagePassingQueueUtil.drain(this, c);
+    }
+
+    @Override
+    public int fill(final Supplier<E> s) {
+        return MessagePassingQueueUtil.fillBounded(this, s);
+    }
+
+    @Override
+    public int drain(final Consumer<E> c, final int limit) {
+        return MessagePassingQueueUtil.drain(this, c, limit);
+    }
+
+    @Override
+    public int fill(final Supplier<E> s, final int limit) {
+        if (null == s)
+            throw new IllegalArgumentException("supplier is null");
+        if (limit < 0)
+            throw new IllegalArgumentException("limit is negative:" + limit);
+        if (limit == 0)
+            return 0;
+
+        for (int i = 0; i < limit; i++) {
+            // local load of field to avoid repeated loads after volatile reads
+            final E[] buffer = producerBuffer;
+            final long index = lpProducerIndex();
+            final long mask = producerMask;
+            final long offset = calcCircularRefElementOffset(index, mask);
+            // expected hot path
+            if (index < producerBufferLimit) {
+                writeToQueue(buffer, s.get(), index, offset);
+            } else if (!offerColdPath(buffer, mask, index, offset, null, s)) {
+                return i;
+            }
+        }
+        return limit;
+    }
+
+    @Override
+    public void drain(final Consumer<E> c, final WaitStrategy wait, final ExitCondition exit) {
+        MessagePassingQueueUtil.drain(this, c, wait, exit);
+    }
+
+    @Override
+    public void fill(final Supplier<E> s, final WaitStrategy wait, final ExitCondition exit) {
+        MessagePassingQueueUtil.fill(this, s, wait, exit);
+    }
+
+    /**
+     * 添加
+     * 当前块还有空间时，只需一次元素写入和一次索引写入
+     *
+     * @param e
+     * @return
+     */
+    @Override
+    public boolean offer(final E e) {
+        if (null == e) {
+            throw new NullPointerException();
+        }
+        // local load of field to avoid repeated loads after volatile reads
+        final E[] buffer = producerBuffer;
+        final long index = lpProducerIndex();
+        final long mask = producerMask;
+        final long offset = calcCircularRefElementOffset(index, mask);
+        // expected hot path
+        if (index < producerBufferLimit) {
+            writeToQueue(buffer, e, index, offset);
+            return true;
+        }
+        return offerColdPath(buffer, mask, index, offset, e, null);
+    }
+
+    /**
+     * 当前块 limit 用完，重新计算 limit 或者链接新块
+     *
+     * @param buffer 当前生产者 数组块
+     * @param mask   当前生产者 mask
+     * @param pIndex 生产者索引
+     * @param offset pIndex 在当前块中的 offset
+     * @param v      要添加的元素，为null时从 s 中获取
+     * @param s      元素生产者
+     * @return
+     */
+    abstract boolean offerColdPath(E[] buffer, long mask, long pIndex, long offset, E v, Supplier<? extends E> s);
+
+    /**
+     * 取出
+     *
+     * @return
+     */
+    @SuppressWarnings("unchecked")
+    @Override
+    public E poll() {
+        // local load of field to avoid repeated loads after volatile reads
+        final E[] buffer = consumerBuffer;
+        final long index = lpConsumerIndex();
+        final long mask = consumerMask;
+        final long offset = calcCircularRefElementOffset(index, mask);
+        final Object e = lvRefElement(buffer, offset);
+        boolean isNextBuffer = e == JUMP;
+        if (null != e && !isNextBuffer) {
+            soRefElement(buffer, offset, null);
+            soConsumerIndex(index + 1); // ordered store -> atomic and ordered for size()
+            return (E) e;
+        } else if (isNextBuffer) {
+            // 跳到下一个块
+            return newBufferPoll(buffer, index);
+        }
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public E peek() {
+        final E[] buffer = consumerBuffer;
+        final long index = lpConsumerIndex();
+        final long mask = consumerMask;
+        final long offset = calcCircularRefElementOffset(index, mask);
+        final Object e = lvRefElement(buffer, offset);
+        if (e == JUMP) {
+            return newBufferPeek(buffer, index);
+        }
+        return (E) e;
+    }
+
+    /**
+     * 链接新块
+     * 元素先写入新块，再链接，最后在旧块写入 JUMP，保证消费者看到 JUMP 时新块已可见
+     */
+    final void linkOldToNew(final long currIndex, final E[] oldBuffer, final long offset,
+                            final E[] newBuffer, final long offsetInNew, final E e) {
+        soRefElement(newBuffer, offsetInNew, e);
+        // link to next buffer and add next indicator as element of old buffer
+        soNext(oldBuffer, newBuffer);
+        soRefElement(oldBuffer, offset, JUMP);
+        // index is visible after elements (isEmpty/size/poll)
+        soProducerIndex(currIndex + 1); // this ensures atomic write of long on 32bit platforms
+    }
+
+    final void writeToQueue(final E[] buffer, final E e, final long index, final long offset) {
+        soRefElement(buffer, offset, e);
+        soProducerIndex(index + 1); // this ensures atomic write of long on 32bit platforms
+    }
+
+    private void soNext(E[] curr, E[] next) {
+        final long offset = nextArrayOffset(curr);
+        soRefElement(curr, offset, next);
+    }
+
+    @SuppressWarnings("unchecked")
+    private E[] lvNextArrayAndUnlink(E[] curr) {
+        final long offset = nextArrayOffset(curr);
+        final E[] nextBuffer = (E[]) lvRefElement(curr, offset);
+        // prevent GC nepotism
+        soRefElement(curr, offset, null);
+        return nextBuffer;
+    }
+
+    private E newBufferPeek(E[] buffer, long index) {
+        E[] nextBuffer = lvNextArrayAndUnlink(buffer);
+        consumerBuffer = nextBuffer;
+        final long mask = length(nextBuffer) - 2;
+        consumerMask = mask;
+        final long offset = calcCircularRefElementOffset(index, mask);
+        return lvRefElement(nextBuffer, offset);
+    }
+
+    private E newBufferPoll(E[] buffer, long index) {
+        E[] nextBuffer = lvNextArrayAndUnlink(buffer);
+        consumerBuffer = nextBuffer;
+        final long mask = length(nextBuffer) - 2;
+        consumerMask = mask;
+        final long offset = calcCircularRefElementOffset(index, mask);
+        final E n = lvRefElement(nextBuffer, offset);
+        if (null == n) {
+            throw new IllegalStateException("new buffer must have at least one element");
+        }
+        soRefElement(nextBuffer, offset, null);
+        soConsumerIndex(index + 1); // ordered store -> atomic and ordered for size()
+        return n;
+    }
+}
+
+abstract class BaseSpscLinkedArrayQueueL1Pad<E> extends AbstractQueue<E> implements IndexedQueue {
+    byte b000, b001, b002, b003, b004, b005, b006, b007;//  8b
+    byte b010, b011, b012, b013, b014, b015, b016, b017;// 16b
+    byte b020, b021, b022, b023, b024, b025, b026, b027;// 24b
+    byte b030, b031, b032, b033, b034, b035, b036, b037;// 32b
+    byte b040, b041, b042, b043, b044, b045, b046, b047;// 40b
+    byte b050, b051, b052, b053, b054, b055, b056, b057;// 48b
+    byte b060, b061, b062, b063, b064, b065, b066, b067;// 56b
+    byte b070, b071, b072, b073, b074, b075, b076, b077;// 64b
+    byte b100, b101, b102, b103, b104, b105, b106, b107;// 72b
+    byte b110, b111, b112, b113, b114, b115, b116, b117;// 80b
+    byte b120, b121, b122, b123, b124, b125, b126, b127;// 88b
+    byte b130, b131, b132, b133, b134, b135, b136, b137;// 96b
+    byte b140, b141, b142, b143, b144, b145, b146, b147;//104b
+    byte b150, b151, b152, b153, b154, b155, b156, b157;//112b
+    byte b160, b161, b162, b163, b164, b165, b166, b167;//120b
+    byte b170, b171, b172, b173, b174, b175, b176, b177;//128b
+}
+
+// 消费者 冷字段
+abstract class BaseSpscLinkedArrayQueueConsumerColdFields<E> extends BaseSpscLinkedArrayQueueL1Pad<E> {
+    protected long consumerMask;
+    protected E[] consumerBuffer;
+}
+
+// 消费者索引
+abstract class BaseSpscLinkedArrayQueueConsumerIndexField<E> extends BaseSpscLinkedArrayQueueConsumerColdFields<E> {
+    private final static long C_INDEX_OFFSET = fieldOffset(BaseSpscLinkedArrayQueueConsumerIndexField.class, "consumerIndex");
+
+    private volatile long consumerIndex;
+
+    @Override
+    public final long lvConsumerIndex() {
+        return consumerIndex;
+    }
+
+    final long lpConsumerIndex() {
+        return UNSAFE.getLong(this, C_INDEX_OFFSET);
+    }
+
+    final void soConsumerIndex(final long newValue) {
+        UNSAFE.putOrderedLong(this, C_INDEX_OFFSET, newValue);
+    }
+}
+
+abstract class BaseSpscLinkedArrayQueueL2Pad<E> extends BaseSpscLinkedArrayQueueConsumerIndexField<E> {
+    byte b000, b001, b002, b003, b004, b005, b006, b007;//  8b
+    byte b010, b011, b012, b013, b014, b015, b016, b017;// 16b
+    byte b020, b021, b022, b023, b024, b025, b026, b027;// 24b
+    byte b030, b031, b032, b033, b034, b035, b036, b037;// 32b
+    byte b040, b041, b042, b043, b044, b045, b046, b047;// 40b
+    byte b050, b051, b052, b053, b054, b055, b056, b057;// 48b
+    byte b060, b061, b062, b063, b064, b065, b066, b067;// 56b
+    byte b070, b071, b072, b073, b074, b075, b076, b077;// 64b
+    byte b100, b101, b102, b103, b104, b105, b106, b107;// 72b
+    byte b110, b111, b112, b113, b114, b115, b116, b117;// 80b
+    byte b120, b121, b122, b123, b124, b125, b126, b127;// 88b
+    byte b130, b131, b132, b133, b134, b135, b136, b137;// 96b
+    byte b140, b141, b142, b143, b144, b145, b146, b147;//104b
+    byte b150, b151, b152, b153, b154, b155, b156, b157;//112b
+    byte b160, b161, b162, b163, b164, b165, b166, b167;//120b
+    byte b170, b171, b172, b173, b174, b175, b176, b177;//128b
+}
+
+// 生产者索引
+abstract class BaseSpscLinkedArrayQueueProducerIndexField<E> extends BaseSpscLinkedArrayQueueL2Pad<E> {
+    private final static long P_INDEX_OFFSET = fieldOffset(BaseSpscLinkedArrayQueueProducerIndexField.class, "producerIndex");
+
+    private volatile long producerIndex;
+
+    @Override
+    public final long lvProducerIndex() {
+        return producerIndex;
+    }
+
+    final long lpProducerIndex() {
+        return UNSAFE.getLong(this, P_INDEX_OFFSET);
+    }
+
+    final void soProducerIndex(final long newValue) {
+        UNSAFE.putOrderedLong(this, P_INDEX_OFFSET, newValue);
+    }
+}
+
+// 生产者 冷字段
+abstract class BaseSpscLinkedArrayQueueProducerColdFields<E> extends BaseSpscLinkedArrayQueueProducerIndexField<E> {
+    // 当前块内 无需检查即可写入的 上限
+    protected long producerBufferLimit;
+    protected long producerMask; // fixed for chunked and unbounded
+    protected E[] producerBuffer;
+}
+
+abstract class BaseSpscLinkedArrayQueueL3Pad<E> extends BaseSpscLinkedArrayQueueProducerColdFields<E> {
+    byte b000, b001, b002, b003, b004, b005, b006, b007;//  8b
+    byte b010, b011, b012, b013, b014, b015, b016, b017;// 16b
+    byte b020, b021, b022, b023, b024, b025, b026, b027;// 24b
+    byte b030, b031, b032, b033, b034, b035, b036, b037;// 32b
+    byte b040, b041, b042, b043, b044, b045, b046, b047;// 40b
+    byte b050, b051, b052, b053, b054, b055, b056, b057;// 48b
+    byte b060, b061, b062, b063, b064, b065, b066, b067;// 56b
+    byte b070, b071, b072, b073, b074, b075, b076, b077;// 64b
+    byte b100, b101, b102, b103, b104, b105, b106, b107;// 72b
+    byte b110, b111, b112, b113, b114, b115, b116, b117;// 80b
+    byte b120, b121, b122, b123, b124, b125, b126, b127;// 88b
+    byte b130, b131, b132, b133, b134, b135, b136, b137;// 96b
+    byte b140, b141, b142, b143, b144, b145, b146, b147;//104b
+    byte b150, b151, b152, b153, b154, b155, b156, b157;//112b
+    byte b160, b161, b162, b163, b164, b165, b166, b167;//120b
+    byte b170, b171, b172, b173, b174, b175, b176, b177;//128b
+}
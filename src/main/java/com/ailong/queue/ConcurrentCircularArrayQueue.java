@@ -40,6 +40,11 @@ public abstract class ConcurrentCircularArrayQueue<E> extends ConcurrentCircular
         return IndexedQueueSizeUtil.size(this);
     }
 
+    @Override
+    public int estimatedSize() {
+        return IndexedQueueSizeUtil.estimatedSize(this, 0, mask + 1);
+    }
+
     @Override
     public boolean isEmpty() {
         return IndexedQueueSizeUtil.isEmpty(this);
@@ -0,0 +1,42 @@
+package com.ailong.queue;
+
+import com.ailong.queue.wait.ContentionBackoff;
+
+/**
+ * cas 竞争 退避 工具
+ * <p>
+ * backoff 为 null 表示 立即重试，什么都不做
+ * </p>
+ */
+final class ContentionBackoffUtil {
+
+    private ContentionBackoffUtil() {
+
+    }
+
+    /**
+     * cas 失败，按 backoff 退避后 重试
+     *
+     * @param backoff  退避策略
+     * @param failures 本次操作 失败次数
+     * @return 总是 true，可以直接 写在 cas 循环条件里
+     */
+    static boolean retry(final ContentionBackoff backoff, final int failures) {
+        if (null != backoff) {
+            backoff.onFailure(failures);
+        }
+        return true;
+    }
+
+    /**
+     * 操作结束
+     *
+     * @param backoff  退避策略
+     * @param failures 本次操作 失败次数
+     */
+    static void complete(final ContentionBackoff backoff, final int failures) {
+        if (null != backoff) {
+            backoff.onComplete(failures);
+        }
+    }
+}
@@ -16,4 +16,13 @@ public interface IndexedQueue {
      */
     long lvProducerIndex();
 
+    /**
+     * 大小 估算
+     * 与 size() 不同，索引 不稳定时 只重试有限次数，不会 与繁忙的 生产者/消费者 一直竞争；
+     * 适合 监控线程 频繁读取，结果 可能略大于 实际大小，不超过 容量
+     *
+     * @return
+     */
+    int estimatedSize();
+
 }
@@ -1,6 +1,12 @@
 package com.ailong.queue;
 
 public final class IndexedQueueSizeUtil {
+    // estimatedSize 最多 读取 生产者/消费者索引 的轮数
+    static final int ESTIMATE_TRIES = 2;
+
+    private IndexedQueueSizeUtil() {
+
+    }
 
     /**
      * 队列大小
@@ -39,6 +45,32 @@ public final class IndexedQueueSizeUtil {
         }
     }
 
+    /**
+     * 队列大小 估算
+     * 最多 ESTIMATE_TRIES 轮 读取索引，消费者索引 仍在变化时 重读 生产者索引，
+     * 用 最后一次 读到的 消费者索引 和 其后 读到的 生产者索引。
+     * 消费者索引 先于 生产者索引 读取，结果 可能偏大，截断到 maxSize
+     *
+     * @param iq
+     * @param indexShift 索引 步长 为 2^indexShift 时（例如 BaseMpscLinkedArrayQueue 为 1）
+     * @param maxSize    容量，无界 为 Integer.MAX_VALUE
+     * @return
+     */
+    public static int estimatedSize(IndexedQueue iq, int indexShift, long maxSize) {
+        long before = iq.lvConsumerIndex();
+        long producerIndex = iq.lvProducerIndex();
+        for (int i = 1; i < ESTIMATE_TRIES; i++) {
+            final long after = iq.lvConsumerIndex();
+            if (before == after) {
+                break;
+            }
+            before = after;
+            producerIndex = iq.lvProducerIndex();
+        }
+        final long size = (producerIndex - before) >> indexShift;
+        return (int) Math.max(0, Math.min(size, Math.min(maxSize, Integer.MAX_VALUE)));
+    }
+
     /**
      * 是否位空
      * 消费索引 == 生产索引 = 空
@@ -0,0 +1,50 @@
+package com.ailong.queue;
+
+import static com.ailong.queue.util.UnsafeRefArrayAccess.REF_ARRAY_BASE;
+import static com.ailong.queue.util.UnsafeRefArrayAccess.REF_ELEMENT_SHIFT;
+
+/**
+ * 链式数组 队列工具
+ * <p>
+ * 每个数组块的最后一个位置存放下一个数组块的引用
+ * </p>
+ */
+final class LinkedArrayQueueUtil {
+
+    private LinkedArrayQueueUtil() {
+
+    }
+
+    /**
+     * 数组长度
+     *
+     * @param buf
+     * @return
+     */
+    static int length(Object[] buf) {
+        return buf.length;
+    }
+
+    /**
+     * 索引最低位用作 resize 标记，实际索引为 index >> 1
+     * This method assumes index is actually (index << 1) because lower bit is used for resize. This is compensated
+     * for by reducing the element shift. The computation is constant folded, so there's no cost.
+     *
+     * @param index (index << 1)
+     * @param mask  ((length - 1) << 1)
+     * @return
+     */
+    static long modifiedCalcCircularRefElementOffset(long index, long mask) {
+        return REF_ARRAY_BASE + ((index & mask) << (REF_ELEMENT_SHIFT - 1));
+    }
+
+    /**
+     * 下一个数组块 引用的 offset（数组最后一个位置）
+     *
+     * @param curr
+     * @return
+     */
+    static long nextArrayOffset(Object[] curr) {
+        return REF_ARRAY_BASE + ((long) (length(curr) - 1) << REF_ELEMENT_SHIFT);
+    }
+}
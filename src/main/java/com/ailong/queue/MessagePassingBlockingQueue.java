@@ -0,0 +1,297 @@
+package com.ailong.queue;
+
+import java.util.AbstractQueue;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import static com.ailong.queue.util.UnsafeAccess.UNSAFE;
+
+/**
+ * 阻塞队列 适配器
+ * 包装 MpscArrayQueue / MpmcArrayQueue，提供 BlockingQueue 语义（take / put / 超时 poll / 超时 offer）
+ * <p>
+ * 没有锁：非阻塞的 offer / poll 直接调用底层队列，成功后只有在 记录了等待者 时才去唤醒；
+ * 阻塞操作 先自旋重试，再登记等待者 并 park。
+ * 等待者 先登记再检查队列，唤醒方 先修改队列再检查等待者，两边都是全屏障，不会丢失唤醒
+ * </p>
+ * <p>
+ * 包装 MpscArrayQueue 时，poll / take / drainTo 只能由一个线程调用；
+ * 用作 ThreadPoolExecutor 的 workQueue 时 使用 MpmcArrayQueue
+ * </p>
+ * <p>
+ * 底层队列 不支持 删除指定元素：remove(Object) 总是返回 false，
+ * ThreadPoolExecutor.execute 与 shutdown 竞争时 任务留在队列中 由工作线程执行，ThreadPoolExecutor.remove 返回 false；
+ * ThreadPoolExecutor.purge 经过 iterator().remove()，不支持，抛出 UnsupportedOperationException
+ * </p>
+ *
+ * @param <E>
+ */
+public class MessagePassingBlockingQueue<E> extends AbstractQueue<E> implements BlockingQueue<E> {
+    // park 之前 自旋重试次数
+    static final int SPIN_TRIES = 128;
+
+    private final ConcurrentCircularArrayQueue<E> queue;
+    // 消费者 用 ordered store 发布索引（mpsc），唤醒生产者前 需要补 全屏障
+    private final boolean fenceAfterPoll;
+    // 等待 非空 的消费者
+    private final ConcurrentLinkedQueue<Waiter> notEmptyWaiters = new ConcurrentLinkedQueue<>();
+    // 等待 非满 的生产者
+    private final ConcurrentLinkedQueue<Waiter> notFullWaiters = new ConcurrentLinkedQueue<>();
+
+    /**
+     * 单消费者
+     *
+     * @param queue
+     */
+    public MessagePassingBlockingQueue(MpscArrayQueue<E> queue) {
+        this(queue, true);
+    }
+
+    /**
+     * 多消费者
+     *
+     * @param queue
+     */
+    public MessagePassingBlockingQueue(MpmcArrayQueue<E> queue) {
+        // poll 的 cas 已经是全屏障
+        this(queue, false);
+    }
+
+    private MessagePassingBlockingQueue(ConcurrentCircularArrayQueue<E> queue, boolean fenceAfterPoll) {
+        if (null == queue)
+            throw new NullPointerException();
+        this.queue = queue;
+        this.fenceAfterPoll = fenceAfterPoll;
+    }
+
+    @Override
+    public boolean offer(E e) {
+        if (null == e)
+            throw new NullPointerException();
+        if (queue.offer(e)) {
+            // offer 的 cas 已经是全屏障
+            if (!notEmptyWaiters.isEmpty()) {
+                signal(notEmptyWaiters, 1);
+            }
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public E poll() {
+        final E e = queue.poll();
+        if (null != e) {
+            signalNotFull(1);
+        }
+        return e;
+    }
+
+    @Override
+    public E peek() {
+        return queue.peek();
+    }
+
+    @Override
+    public void put(E e) throws InterruptedException {
+        offerWait(e, false, 0L);
+    }
+
+    @Override
+    public boolean offer(E e, long timeout, TimeUnit unit) throws InterruptedException {
+        return offerWait(e, true, unit.toNanos(timeout));
+    }
+
+    @Override
+    public E take() throws InterruptedException {
+        return pollWait(false, 0L);
+    }
+
+    @Override
+    public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+        return pollWait(true, unit.toNanos(timeout));
+    }
+
+    @Override
+    public int remainingCapacity() {
+        return Math.max(0, queue.capacity() - queue.size());
+    }
+
+    @Override
+    public int drainTo(Collection<? super E> c) {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int drainTo(Collection<? super E> c, int maxElements) {
+        if (null == c)
+            throw new NullPointerException();
+        if (c == this)
+            throw new IllegalArgumentException();
+        final int drained = queue.drain(c::add, maxElements);
+        if (drained > 0) {
+            signalNotFull(drained);
+        }
+        return drained;
+    }
+
+    /**
+     * 不支持 删除指定元素
+     *
+     * @param o
+     * @return 总是 false
+     */
+    @Override
+    public boolean remove(Object o) {
+        return false;
+    }
+
+    @Override
+    public int size() {
+        return queue.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return queue.isEmpty();
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        return queue.iterator();
+    }
+
+    @Override
+    public String toString() {
+        return this.getClass().getName() + "[" + queue + "]";
+    }
+
+    private boolean offerWait(final E e, final boolean timed, long nanos) throws InterruptedException {
+        if (null == e)
+            throw new NullPointerException();
+        if (Thread.interrupted())
+            throw new InterruptedException();
+        for (int i = 0; i < SPIN_TRIES; i++) {
+            if (offer(e)) {
+                return true;
+            }
+        }
+
+        final long deadline = timed ? System.nanoTime() + nanos : 0L;
+        final Waiter w = new Waiter(Thread.currentThread());
+        try {
+            while (true) {
+                enlist(notFullWaiters, w);
+                // 登记后 再检查一次，消费者 在此之前腾出的空间 一定能看到
+                if (offer(e)) {
+                    return true;
+                }
+                if (timed) {
+                    nanos = deadline - System.nanoTime();
+                    if (nanos <= 0L) {
+                        return false;
+                    }
+                    LockSupport.parkNanos(this, nanos);
+                } else {
+                    LockSupport.park(this);
+                }
+                if (Thread.interrupted())
+                    throw new InterruptedException();
+            }
+        } finally {
+            delist(notFullWaiters, w);
+        }
+    }
+
+    private E pollWait(final boolean timed, long nanos) throws InterruptedException {
+        if (Thread.interrupted())
+            throw new InterruptedException();
+        E e;
+        for (int i = 0; i < SPIN_TRIES; i++) {
+            if (null != (e = poll())) {
+                return e;
+            }
+        }
+
+        final long deadline = timed ? System.nanoTime() + nanos : 0L;
+        final Waiter w = new Waiter(Thread.currentThread());
+        try {
+            while (true) {
+                enlist(notEmptyWaiters, w);
+                // 登记后 再检查一次，生产者 在此之前添加的元素 一定能看到
+                if (null != (e = poll())) {
+                    return e;
+                }
+                if (!queue.isEmpty()) {
+                    // 生产者 已占位 还未写入元素，不 park
+                    continue;
+                }
+                if (timed) {
+                    nanos = deadline - System.nanoTime();
+                    if (nanos <= 0L) {
+                        return null;
+                    }
+                    LockSupport.parkNanos(this, nanos);
+                } else {
+                    LockSupport.park(this);
+                }
+                if (Thread.interrupted())
+                    throw new InterruptedException();
+            }
+        } finally {
+            delist(notEmptyWaiters, w);
+        }
+    }
+
+    private void signalNotFull(final int permits) {
+        // mpsc 消费者 用 ordered store 发布消费者索引，读等待者之前 补一个全屏障
+        if (fenceAfterPoll) {
+            UNSAFE.fullFence();
+        }
+        if (!notFullWaiters.isEmpty()) {
+            signal(notFullWaiters, permits);
+        }
+    }
+
+    /**
+     * 被唤醒的 等待者 从列表中移除，再次等待时 重新登记
+     */
+    private static void enlist(final ConcurrentLinkedQueue<Waiter> waiters, final Waiter w) {
+        if (!w.queued) {
+            w.queued = true;
+            waiters.offer(w);
+        }
+    }
+
+    /**
+     * 退出等待，如果已经被唤醒（唤醒 被自己消耗掉了），转交给下一个等待者
+     */
+    private static void delist(final ConcurrentLinkedQueue<Waiter> waiters, final Waiter w) {
+        if (!waiters.remove(w)) {
+            signal(waiters, 1);
+        }
+    }
+
+    private static void signal(final ConcurrentLinkedQueue<Waiter> waiters, int permits) {
+        Waiter w;
+        while (permits-- > 0 && null != (w = waiters.poll())) {
+            w.queued = false;
+            LockSupport.unpark(w.thread);
+        }
+    }
+
+    // 等待者
+    static final class Waiter {
+        final Thread thread;
+        // 是否 在等待列表中
+        volatile boolean queued;
+
+        Waiter(Thread thread) {
+            this.thread = thread;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.ailong.queue;
+
+/**
+ * 消息经过 队列
+ * int 基本类型，不装箱
+ * <p>
+ * 用 emptyValue 表示空位置，不允许添加 emptyValue
+ * </p>
+ */
+public interface MessagePassingIntQueue {
+
+    /**
+     * 消费
+     */
+    interface IntConsumer {
+        void accept(int e);
+    }
+
+    /**
+     * 添加
+     *
+     * @param e 不能等于 emptyValue
+     * @return
+     */
+    boolean offer(int e);
+
+    /**
+     * 取出
+     *
+     * @return 队列为空时返回 emptyValue
+     */
+    int poll();
+
+    /**
+     * 查看，不取出
+     *
+     * @return 队列为空时返回 emptyValue
+     */
+    int peek();
+
+    /**
+     * 空位置 标记值
+     *
+     * @return
+     */
+    int emptyValue();
+
+    /**
+     * 大小
+     *
+     * @return
+     */
+    int size();
+
+    /**
+     * 清空
+     */
+    void clear();
+
+    boolean isEmpty();
+
+    int capacity();
+
+    boolean relaxedOffer(int e);
+
+    int relaxedPoll();
+
+    int relaxedPeek();
+
+    /**
+     * 消费
+     *
+     * @param c
+     * @param limit
+     * @return
+     */
+    int drain(IntConsumer c, int limit);
+
+    int drain(IntConsumer c);
+}
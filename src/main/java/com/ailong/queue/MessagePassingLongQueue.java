@@ -0,0 +1,80 @@
+package com.ailong.queue;
+
+/**
+ * 消息经过 队列
+ * long 基本类型，不装箱
+ * <p>
+ * 用 emptyValue 表示空位置，不允许添加 emptyValue
+ * </p>
+ */
+public interface MessagePassingLongQueue {
+
+    /**
+     * 消费
+     */
+    interface LongConsumer {
+        void accept(long e);
+    }
+
+    /**
+     * 添加
+     *
+     * @param e 不能等于 emptyValue
+     * @return
+     */
+    boolean offer(long e);
+
+    /**
+     * 取出
+     *
+     * @return 队列为空时返回 emptyValue
+     */
+    long poll();
+
+    /**
+     * 查看，不取出
+     *
+     * @return 队列为空时返回 emptyValue
+     */
+    long peek();
+
+    /**
+     * 空位置 标记值
+     *
+     * @return
+     */
+    long emptyValue();
+
+    /**
+     * 大小
+     *
+     * @return
+     */
+    int size();
+
+    /**
+     * 清空
+     */
+    void clear();
+
+    boolean isEmpty();
+
+    int capacity();
+
+    boolean relaxedOffer(long e);
+
+    long relaxedPoll();
+
+    long relaxedPeek();
+
+    /**
+     * 消费
+     *
+     * @param c
+     * @param limit
+     * @return
+     */
+    int drain(LongConsumer c, int limit);
+
+    int drain(LongConsumer c);
+}
@@ -82,10 +82,38 @@ public interface MessagePassingQueue<T> {
 
     int capacity();
 
+    /**
+     * 弱添加
+     * 与 offer 不同，队列未满时 也可能返回 false（例如 没有重新读取消费者索引 确认是否真的满了），
+     * 适合 失败后本来就会重试的生产者
+     * <p>
+     * 没有可省掉的检查时 实现 直接委托给 offer / poll / peek：
+     * 单生产者 先写元素 再发布生产者索引，offer / poll / peek 本来就只看元素是否为空；
+     * 多生产者 不能只看元素是否为空，上一圈的生产者 占位后 还没写入元素时 位置也是空的，
+     * 必须 用消费者索引 判断是否已满，offer 已经只在 producerLimit 用完时 才重新读取；
+     * 单生产者多消费者 取出时 上一圈的消费者 cas 成功后 还没置空元素，旧元素 会被再次取出，
+     * 必须 用生产者索引 判断是否为空，poll 已经只在缓存的生产者索引用完时 才重新读取
+     * </p>
+     *
+     * @param e
+     * @return
+     */
     boolean relaxedOffer(T e);
 
+    /**
+     * 弱取出
+     * 与 poll 不同，队列不为空时 也可能返回 null（例如 生产者已占位 但元素还不可见 时 不自旋等待，
+     * 也不重新读取生产者索引 确认是否真的为空），适合 循环消费的消费者
+     *
+     * @return
+     */
     T relaxedPoll();
 
+    /**
+     * 弱查看，语义同 relaxedPoll
+     *
+     * @return
+     */
     T relaxedPeek();
 
     /**
@@ -1,12 +1,19 @@
 package com.ailong.queue;
 
+import com.ailong.queue.metrics.LogLinearHistogram;
 import com.ailong.queue.util.RangeUtil;
+import com.ailong.queue.wait.ContentionBackoff;
 
+import static com.ailong.queue.ContentionBackoffUtil.complete;
+import static com.ailong.queue.ContentionBackoffUtil.retry;
 import static com.ailong.queue.util.UnsafeAccess.UNSAFE;
 import static com.ailong.queue.util.UnsafeAccess.fieldOffset;
+import static com.ailong.queue.util.UnsafeLongArrayAccess.allocateLongArray;
 import static com.ailong.queue.util.UnsafeLongArrayAccess.calcCircularLongElementOffset;
+import static com.ailong.queue.util.UnsafeLongArrayAccess.lpLongElement;
 import static com.ailong.queue.util.UnsafeLongArrayAccess.lvLongElement;
 import static com.ailong.queue.util.UnsafeLongArrayAccess.soLongElement;
+import static com.ailong.queue.util.UnsafeLongArrayAccess.spLongElement;
 import static com.ailong.queue.util.UnsafeRefArrayAccess.calcCircularRefElementOffset;
 import static com.ailong.queue.util.UnsafeRefArrayAccess.lpRefElement;
 import static com.ailong.queue.util.UnsafeRefArrayAccess.soRefElement;
@@ -19,11 +26,67 @@ import static com.ailong.queue.util.UnsafeRefArrayAccess.soRefElement;
 public class MpmcArrayQueue<E> extends MpmcArrayQueueL3Pad<E> {
     public static final int MAX_LOOK_AHEAD_STEP = Integer.getInteger("jctools.mpmc.max.lookahead.step", 4096);
     private final int lookAheadStep;
+    // cas 生产者索引 失败后的退避，null 表示 立即重试
+    private final ContentionBackoff producerBackoff;
+    // cas 消费者索引 失败后的退避，null 表示 立即重试
+    private final ContentionBackoff consumerBackoff;
+    // 元素 停留时间（入队 到 出队）直方图，null 表示 不记录
+    private final LogLinearHistogram sojournHistogram;
+    // 与 sequenceBuffer 平行，每个位置 入队时的 System.nanoTime()
+    private final long[] stampBuffer;
 
     public MpmcArrayQueue(final int capacity) {
+        this(capacity, null);
+    }
+
+    /**
+     * @param capacity 容量
+     * @param backoff  offer / poll cas 竞争 退避策略，null 表示 立即重试
+     */
+    public MpmcArrayQueue(final int capacity, final ContentionBackoff backoff) {
+        this(capacity, backoff, null);
+    }
+
+    /**
+     * 记录 停留时间：入队时 把 System.nanoTime() 写入 与 sequenceBuffer 平行的 stampBuffer，
+     * 出队时 在 释放位置 之前 读出，记录 差值 到 sojournHistogram；
+     * 时间戳 由 序列号的 ordered store 发布，不增加额外的屏障。
+     * 批量 fill / drain 每批 只取一次时间
+     *
+     * @param capacity         容量
+     * @param backoff          offer / poll cas 竞争 退避策略，null 表示 立即重试
+     * @param sojournHistogram 停留时间 直方图（纳秒），null 表示 不记录
+     */
+    public MpmcArrayQueue(final int capacity, final ContentionBackoff backoff, final LogLinearHistogram sojournHistogram) {
+        this(capacity, backoff, backoff, sojournHistogram);
+    }
+
+    /**
+     * 生产者 和 消费者 分别指定 退避策略，例如 只统计 offer 的 cas 失败
+     *
+     * @param capacity         容量
+     * @param producerBackoff  offer / fill cas 竞争 退避策略，null 表示 立即重试
+     * @param consumerBackoff  poll / drain cas 竞争 退避策略，null 表示 立即重试
+     * @param sojournHistogram 停留时间 直方图（纳秒），null 表示 不记录
+     */
+    public MpmcArrayQueue(final int capacity, final ContentionBackoff producerBackoff, final ContentionBackoff consumerBackoff,
+                          final LogLinearHistogram sojournHistogram) {
         super(RangeUtil.checkGreaterThanOrEqual(capacity, 2, "capacity"));
         //查看步长
         lookAheadStep = Math.max(2, Math.min(capacity() / 4, MAX_LOOK_AHEAD_STEP));
+        this.producerBackoff = producerBackoff;
+        this.consumerBackoff = consumerBackoff;
+        this.sojournHistogram = sojournHistogram;
+        this.stampBuffer = null == sojournHistogram ? null : allocateLongArray(sequenceBuffer.length);
+    }
+
+    /**
+     * 停留时间 直方图
+     *
+     * @return 没有开启 返回 null
+     */
+    public LogLinearHistogram sojournHistogram() {
+        return sojournHistogram;
     }
 
     /**
@@ -53,6 +116,8 @@ public class MpmcArrayQueue<E> extends MpmcArrayQueueL3Pad<E> {
         long seq;
         // 消费者索引
         long cIndex = Long.MIN_VALUE;// start with bogus value, hope we don't need it
+        // cas 失败次数
+        int failures = 0;
 
         do {
             // cas循环处理
@@ -68,17 +133,21 @@ public class MpmcArrayQueue<E> extends MpmcArrayQueueL3Pad<E> {
                 // Extra check required to ensure [Queue.offer == false iff queue is full]
                 if (pIndex - capacity >= cIndex && // test against cached cIndex
                         pIndex - capacity >= (cIndex = lvConsumerIndex())) { // test against latest cIndex
+                    complete(producerBackoff, failures);
                     return false;
                 } else {
                     seq = pIndex + 1; // (+) hack to make it go around again without CAS
                 }
             }
         }
-        while (seq > pIndex || // another producer has moved the sequence(or +)
-                !casProducerIndex(pIndex, pIndex + 1)); // failed to increment
+        while ((seq > pIndex || // another producer has moved the sequence(or +)
+                !casProducerIndex(pIndex, pIndex + 1)) // failed to increment
+                && retry(producerBackoff, ++failures));
+        complete(producerBackoff, failures);
 
         // 设置value
         soRefElement(buffer, calcCircularRefElementOffset(pIndex, mask), e);
+        stamp(seqOffset);
         // seq++;
         soLongElement(sBuffer, seqOffset, pIndex + 1);
         return true;
@@ -102,6 +171,8 @@ public class MpmcArrayQueue<E> extends MpmcArrayQueueL3Pad<E> {
         //预期序列
         long expectedSeq;
         long pIndex = -1; // start with bogus value, hope we don't need it
+        // cas 失败次数
+        int failures = 0;
 
         do {
             // cas循环处理
@@ -118,26 +189,64 @@ public class MpmcArrayQueue<E> extends MpmcArrayQueueL3Pad<E> {
                 if (cIndex >= pIndex && // test against cached pIndex
                         cIndex == (pIndex = lvProducerIndex())) { // update pIndex if we must
                     // strict empty check, this ensures [Queue.poll() == null iff isEmpty()]
+                    complete(consumerBackoff, failures);
                     return null;
                 } else {
                     seq = expectedSeq + 1; // trip another go around
                 }
             }
         }
-        while (seq > expectedSeq || // another consumer beat us to it
-                !casConsumerIndex(cIndex, cIndex + 1)); // failed the CAS
+        while ((seq > expectedSeq || // another consumer beat us to it
+                !casConsumerIndex(cIndex, cIndex + 1)) // failed the CAS
+                && retry(consumerBackoff, ++failures));
+        complete(consumerBackoff, failures);
         // offset
         final long offset = calcCircularRefElementOffset(cIndex, mask);
         //取出value
         final E e = lpRefElement(buffer, offset);
         //原位置设置未null
         soRefElement(buffer, offset, null);
+        recordSojourn(seqOffset);
         // i.e. seq += capacity
         // 序列位置设置（cIndex+mask+1）走了一圈
         soLongElement(sBuffer, seqOffset, cIndex + mask + 1);
         return e;
     }
 
+    private void stamp(final long seqOffset) {
+        if (null != stampBuffer) {
+            stamp(seqOffset, System.nanoTime());
+        }
+    }
+
+    private void recordSojourn(final long seqOffset) {
+        if (null != stampBuffer) {
+            recordSojourn(seqOffset, System.nanoTime());
+        }
+    }
+
+    /**
+     * 生产者 占位后、发布序列号 之前 写入时间戳
+     *
+     * @param seqOffset 位置 在 sequenceBuffer 中的 offset，stampBuffer 相同
+     */
+    private void stamp(final long seqOffset, final long now) {
+        final long[] stampBuffer = this.stampBuffer;
+        if (null != stampBuffer) {
+            spLongElement(stampBuffer, seqOffset, now);
+        }
+    }
+
+    /**
+     * 消费者 释放位置 之前 读出时间戳，释放后 下一圈的生产者 会覆盖它
+     */
+    private void recordSojourn(final long seqOffset, final long now) {
+        final long[] stampBuffer = this.stampBuffer;
+        if (null != stampBuffer) {
+            sojournHistogram.record(now - lpLongElement(stampBuffer, seqOffset));
+        }
+    }
+
     @Override
     public E peek() {
         long cIndex;
@@ -175,6 +284,7 @@ public class MpmcArrayQueue<E> extends MpmcArrayQueueL3Pad<E> {
                 !casProducerIndex(pIndex, pIndex + 1)); // failed to increment
 
         soRefElement(buffer, calcCircularRefElementOffset(pIndex, mask), e);
+        stamp(seqOffset);
         soLongElement(sBuffer, seqOffset, pIndex + 1);
         return true;
     }
@@ -203,6 +313,7 @@ public class MpmcArrayQueue<E> extends MpmcArrayQueueL3Pad<E> {
         final long offset = calcCircularRefElementOffset(cIndex, mask);
         final E e = lpRefElement(buffer, offset);
         soRefElement(buffer, offset, null);
+        recordSojourn(seqOffset);
         soLongElement(sBuffer, seqOffset, cIndex + mask + 1);
         return e;
     }
@@ -213,6 +324,9 @@ public class MpmcArrayQueue<E> extends MpmcArrayQueueL3Pad<E> {
         return lpRefElement(buffer, calcCircularRefElementOffset(currConsumerIndex, mask));
     }
 
+    /**
+     * 逐个 cas 取出，c 抛出异常时 只丢失 交给它的那一个元素，其余元素 仍在队列中
+     */
     @Override
     public int drain(Consumer<E> c, int limit) {
         if (null == c)
@@ -222,76 +336,111 @@ public class MpmcArrayQueue<E> extends MpmcArrayQueueL3Pad<E> {
         if (limit == 0)
             return 0;
 
+        for (int i = 0; i < limit; i++) {
+            final E e = relaxedPoll();
+            if (null == e) {
+                return i;
+            }
+            c.accept(e);
+        }
+        return limit;
+    }
+
+    /**
+     * 批量取出 最多 batchSize 个元素，多消费者 每批只 cas 一次消费者索引
+     * <p>
+     * 批次 取 batchSize 与 生产者已占位数量 的较小值，批次末尾的位置 已写入 就一次 cas 占住整批；
+     * 末尾 还没有写入 时 批次减半 再看，直到 1 个，不会 退回到 每个元素 cas 一次。
+     * 占住之后 先 逐个 等待写入、取出、释放 整批位置，再 逐个交给 c；
+     * c 抛出异常时 队列 不受影响，但 本批 还没交给 c 的元素 已经取出，会丢失
+     * </p>
+     *
+     * @param c         消费
+     * @param batchSize 每批 最多取出的元素数
+     * @return 取出的元素数，队列为空 返回 0
+     */
+    public int drainBatch(Consumer<E> c, int batchSize) {
+        if (null == c)
+            throw new IllegalArgumentException("c is null");
+        if (batchSize < 0)
+            throw new IllegalArgumentException("batchSize is negative: " + batchSize);
+        if (batchSize == 0)
+            return 0;
+        return claimAndConsume(c, (int) Math.min(batchSize, mask + 1));
+    }
+
+    private int claimAndConsume(final Consumer<E> c, final int batchSize) {
         final long[] sBuffer = sequenceBuffer;
         final long mask = this.mask;
-        final E[] buffer = this.buffer;
-        final int maxLookAheadStep = Math.min(this.lookAheadStep, limit);
-        int consumed = 0;
+        int failures = 0;
 
-        while (consumed < limit) {
-            final int remaining = limit - consumed;
-            final int lookAheadStep = Math.min(remaining, maxLookAheadStep);
+        while (true) {
             final long cIndex = lvConsumerIndex();
-            final long lookAheadIndex = cIndex + lookAheadStep - 1;
-            final long lookAheadSeqOffset = calcCircularLongElementOffset(lookAheadIndex, mask);
-            final long lookAheadSeq = lvLongElement(sBuffer, lookAheadSeqOffset);
-            final long expectedLookAheadSeq = lookAheadIndex + 1;
-            if (lookAheadSeq == expectedLookAheadSeq && casConsumerIndex(cIndex, expectedLookAheadSeq)) {
-                for (int i = 0; i < lookAheadStep; i++) {
-                    final long index = cIndex + i;
-                    final long seqOffset = calcCircularLongElementOffset(index, mask);
-                    final long offset = calcCircularRefElementOffset(index, mask);
-                    final long expectedSeq = index + 1;
-                    while (lvLongElement(sBuffer, seqOffset) != expectedSeq) {
-
-                    }
-                    final E e = lpRefElement(buffer, offset);
-                    soRefElement(buffer, offset, null);
-                    soLongElement(sBuffer, seqOffset, index + mask + 1);
-                    c.accept(e);
+            // 生产者 已占位的数量，批次 不超过它
+            final long available = lvProducerIndex() - cIndex;
+            if (available <= 0) {
+                complete(consumerBackoff, failures);
+                return 0;
+            }
+            int step = (int) Math.min(batchSize, available);
+            boolean stale = false;
+            while (true) {
+                final long lookAheadIndex = cIndex + step - 1;
+                final long lookAheadSeq = lvLongElement(sBuffer, calcCircularLongElementOffset(lookAheadIndex, mask));
+                final long expectedLookAheadSeq = lookAheadIndex + 1;
+                if (lookAheadSeq == expectedLookAheadSeq) {
+                    break;
                 }
-                consumed += lookAheadStep;
-            } else {
-                if (lookAheadSeq < expectedLookAheadSeq) {
-                    if (notAvailable(cIndex, mask, sBuffer, cIndex + 1)) {
-                        return consumed;
-                    }
+                if (lookAheadSeq > expectedLookAheadSeq) {
+                    // 其他消费者 已经取走，cIndex 过期
+                    stale = true;
+                    break;
+                }
+                // 生产者 还没写到 批次末尾
+                if (step == 1) {
+                    complete(consumerBackoff, failures);
+                    return 0;
                 }
-                return consumed + drainOneByOne(c, remaining);
+                step >>>= 1;
+            }
+            if (!stale && casConsumerIndex(cIndex, cIndex + step)) {
+                complete(consumerBackoff, failures);
+                consumeClaimed(c, cIndex, step);
+                return step;
             }
+            retry(consumerBackoff, ++failures);
         }
-        return limit;
     }
 
-    private int drainOneByOne(Consumer<E> c, int limit) {
+    /**
+     * 取出 已占住的 [cIndex, cIndex + count)，全部释放后 再调用 c，
+     * c 抛出异常 也不会 留下 已占住 但没有释放的位置（否则 绕回来的生产者 会一直等待）
+     */
+    @SuppressWarnings("unchecked")
+    private void consumeClaimed(final Consumer<E> c, final long cIndex, final int count) {
         final long[] sBuffer = sequenceBuffer;
         final long mask = this.mask;
         final E[] buffer = this.buffer;
+        final Object[] batch = new Object[count];
+        final long now = null == stampBuffer ? 0L : System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            final long index = cIndex + i;
+            final long seqOffset = calcCircularLongElementOffset(index, mask);
+            final long offset = calcCircularRefElementOffset(index, mask);
+            final long expectedSeq = index + 1;
+            // 批次末尾 已写入，前面的位置 生产者 一定已经占位，等待 写入完成
+            while (lvLongElement(sBuffer, seqOffset) != expectedSeq) {
 
-        long cIndex;
-        long seqOffset;
-        long seq;
-        long expectedSeq;
-        for (int i = 0; i < limit; i++) {
-            do {
-                cIndex = lvConsumerIndex();
-                seqOffset = calcCircularLongElementOffset(cIndex, mask);
-                seq = lvLongElement(sBuffer, seqOffset);
-                expectedSeq = cIndex + 1;
-                if (seq < expectedSeq) {
-                    return i;
-                }
             }
-            while (seq > expectedSeq || // another consumer beat us to it
-                    !casConsumerIndex(cIndex, cIndex + 1)); // failed the CAS
-
-            final long offset = calcCircularRefElementOffset(cIndex, mask);
             final E e = lpRefElement(buffer, offset);
             soRefElement(buffer, offset, null);
-            soLongElement(sBuffer, seqOffset, cIndex + mask + 1);
-            c.accept(e);
+            recordSojourn(seqOffset, now);
+            soLongElement(sBuffer, seqOffset, index + mask + 1);
+            batch[i] = e;
+        }
+        for (int i = 0; i < count; i++) {
+            c.accept((E) batch[i]);
         }
-        return limit;
     }
 
     @Override
@@ -318,6 +467,7 @@ public class MpmcArrayQueue<E> extends MpmcArrayQueueL3Pad<E> {
             final long lookAheadSeq = lvLongElement(sBuffer, lookAheadSeqOffset);
             final long expectedLookAheadSeq = lookAheadIndex;
             if (lookAheadSeq == expectedLookAheadSeq && casProducerIndex(pIndex, expectedLookAheadSeq + 1)) {
+                final long now = null == stampBuffer ? 0L : System.nanoTime();
                 for (int i = 0; i < lookAheadStep; i++) {
                     final long index = pIndex + i;
                     final long seqOffset = calcCircularLongElementOffset(index, mask);
@@ -326,6 +476,7 @@ public class MpmcArrayQueue<E> extends MpmcArrayQueueL3Pad<E> {
 
                     }
                     soRefElement(buffer, offset, s.get());
+                    stamp(seqOffset, now);
                     soLongElement(sBuffer, seqOffset, index + 1);
                 }
                 produced += lookAheadStep;
@@ -370,6 +521,7 @@ public class MpmcArrayQueue<E> extends MpmcArrayQueueL3Pad<E> {
             while (seq > pIndex || // another producer has moved the sequence
                     !casProducerIndex(pIndex, pIndex + 1)); // failed to increment
             soRefElement(buffer, calcCircularRefElementOffset(pIndex, mask), s.get());
+            stamp(seqOffset);
             soLongElement(sBuffer, seqOffset, pIndex + 1);
         }
         return limit;
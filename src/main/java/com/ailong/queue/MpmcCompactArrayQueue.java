@@ -0,0 +1,385 @@
+package com.ailong.queue;
+
+import com.ailong.queue.util.RangeUtil;
+
+import static com.ailong.queue.util.UnsafeAccess.UNSAFE;
+import static com.ailong.queue.util.UnsafeAccess.fieldOffset;
+import static com.ailong.queue.util.UnsafeRefArrayAccess.calcCircularRefElementOffset;
+import static com.ailong.queue.util.UnsafeRefArrayAccess.lvRefElement;
+import static com.ailong.queue.util.UnsafeRefArrayAccess.soRefElement;
+import static com.ailong.queue.util.UnsafeRefArrayAccess.spRefElement;
+
+/**
+ * 无锁有界队列
+ * 多生产者---多消费者
+ * <p>
+ * 与 MpmcArrayQueue 不同，没有 sequenceBuffer，只有一个 E[]：元素引用 本身 就是状态，null 为空。
+ * 每次操作 只写 buffer 一条缓存行，也省掉 每个位置 一个 long 的内存
+ * </p>
+ * <p>
+ * 消费者 有两个索引：
+ * consumerClaimIndex 用 cas 认领位置；consumerIndex 在 位置置 null 之后 按顺序 释放。
+ * 生产者 用 consumerIndex 判断是否已满，所以 认领到的位置 一定已经是 null，直接写入。
+ * 消费者 认领 index 时 已有 producerIndex > index，
+ * 说明 上一圈 index - capacity 已经释放（置 null），位置上 不会是 上一圈的旧元素，
+ * 等到 非 null 就是 本圈的元素
+ * </p>
+ * <p>
+ * 代价：释放 必须 按顺序，认领后 被挂起的消费者 会挡住 后面消费者的释放，
+ * 其他消费者 仍可 继续认领，直到 队列 被占满一圈
+ * </p>
+ *
+ * @param <E>
+ */
+public class MpmcCompactArrayQueue<E> extends MpmcCompactArrayQueueL4Pad<E> {
+
+    public MpmcCompactArrayQueue(final int capacity) {
+        super(RangeUtil.checkGreaterThanOrEqual(capacity, 2, "capacity"));
+    }
+
+    @Override
+    public boolean offer(final E e) {
+        if (null == e) {
+            throw new NullPointerException();
+        }
+        final long mask = this.mask;
+        final long capacity = mask + 1;
+
+        long producerLimit = lvProducerLimit();
+        long pIndex;
+        do {
+            pIndex = lvProducerIndex();
+            if (pIndex >= producerLimit) {
+                producerLimit = lvConsumerIndex() + capacity;
+                if (pIndex >= producerLimit) {
+                    return false; // FULL :(
+                }
+                soProducerLimit(producerLimit);
+            }
+        }
+        while (!casProducerIndex(pIndex, pIndex + 1));
+
+        // 位置 已经由 consumerIndex 释放，一定是 null
+        soRefElement(buffer, calcCircularRefElementOffset(pIndex, mask), e);
+        return true;
+    }
+
+    @Override
+    public E poll() {
+        long cIndex;
+        long pIndex = -1;
+        do {
+            cIndex = lvConsumerClaimIndex();
+            if (cIndex >= pIndex && cIndex >= (pIndex = lvProducerIndex())) {
+                return null;
+            }
+        }
+        while (!casConsumerClaimIndex(cIndex, cIndex + 1));
+
+        return take(cIndex);
+    }
+
+    @Override
+    public E peek() {
+        final E[] buffer = this.buffer;
+        final long mask = this.mask;
+        long cIndex;
+        E e;
+        do {
+            cIndex = lvConsumerClaimIndex();
+            if (cIndex >= lvProducerIndex()) {
+                return null;
+            }
+            // 生产者 已经认领 还没有写入 时 为 null
+            e = lvRefElement(buffer, calcCircularRefElementOffset(cIndex, mask));
+        }
+        // 读的过程中 被 其他消费者 认领，重来
+        while (null == e || cIndex != lvConsumerClaimIndex());
+        return e;
+    }
+
+    // 多生产者 要用消费者索引 判断是否已满，与 offer 相同，见 MessagePassingQueue#relaxedOffer
+    @Override
+    public boolean relaxedOffer(final E e) {
+        return offer(e);
+    }
+
+    @Override
+    public E relaxedPoll() {
+        final E[] buffer = this.buffer;
+        final long mask = this.mask;
+        long cIndex;
+        do {
+            cIndex = lvConsumerClaimIndex();
+            // producerIndex > cIndex 之后 位置上 不会是 上一圈的元素，null 表示 生产者 还没写入
+            if (cIndex >= lvProducerIndex() ||
+                    null == lvRefElement(buffer, calcCircularRefElementOffset(cIndex, mask))) {
+                return null;
+            }
+        }
+        while (!casConsumerClaimIndex(cIndex, cIndex + 1));
+
+        return take(cIndex);
+    }
+
+    @Override
+    public E relaxedPeek() {
+        final long cIndex = lvConsumerClaimIndex();
+        if (cIndex >= lvProducerIndex()) {
+            return null;
+        }
+        return lvRefElement(buffer, calcCircularRefElementOffset(cIndex, mask));
+    }
+
+    /**
+     * 取走 已认领 位置上的元素，置 null 后 按顺序 释放给 生产者
+     *
+     * @param cIndex 已认领的 消费者索引
+     * @return 元素
+     */
+    private E take(final long cIndex) {
+        final E[] buffer = this.buffer;
+        final long offset = calcCircularRefElementOffset(cIndex, mask);
+        E e;
+        // 生产者 已经认领 还没有写入
+        while (null == (e = lvRefElement(buffer, offset))) {
+            // spin
+        }
+        // 由 下面 consumerIndex 的 ordered store 发布
+        spRefElement(buffer, offset, null);
+        // 等 前面的消费者 释放，它 可能 已经被挂起，让出 cpu
+        while (lvConsumerIndex() != cIndex) {
+            Thread.yield();
+        }
+        soConsumerIndex(cIndex + 1);
+        return e;
+    }
+
+    @Override
+    public int drain(final Consumer<E> c, final int limit) {
+        return MessagePassingQueueUtil.drain(this, c, limit);
+    }
+
+    /**
+     * 一次 cas 认领 一批位置，认领到的位置 都已释放，逐个写入
+     */
+    @Override
+    public int fill(final Supplier<E> s, final int limit) {
+        if (null == s)
+            throw new IllegalArgumentException("supplier is null");
+        if (limit < 0)
+            throw new IllegalArgumentException("limit is negative:" + limit);
+        if (limit == 0)
+            return 0;
+
+        final E[] buffer = this.buffer;
+        final long mask = this.mask;
+        final long capacity = mask + 1;
+
+        long producerLimit = lvProducerLimit();
+        long pIndex;
+        int actualLimit;
+        do {
+            pIndex = lvProducerIndex();
+            long available = producerLimit - pIndex;
+            if (available <= 0) {
+                producerLimit = lvConsumerIndex() + capacity;
+                available = producerLimit - pIndex;
+                if (available <= 0) {
+                    return 0; // FULL :(
+                }
+                soProducerLimit(producerLimit);
+            }
+            actualLimit = Math.min((int) available, limit);
+        }
+        while (!casProducerIndex(pIndex, pIndex + actualLimit));
+
+        for (int i = 0; i < actualLimit; i++) {
+            soRefElement(buffer, calcCircularRefElementOffset(pIndex + i, mask), s.get());
+        }
+        return actualLimit;
+    }
+
+    @Override
+    public int drain(final Consumer<E> c) {
+        return MessagePassingQueueUtil.drain(this, c);
+    }
+
+    @Override
+    public int fill(final Supplier<E> s) {
+        return MessagePassingQueueUtil.fillBounded(this, s);
+    }
+
+    @Override
+    public void drain(final Consumer<E> c, final WaitStrategy wait, final ExitCondition exit) {
+        MessagePassingQueueUtil.drain(this, c, wait, exit);
+    }
+
+    @Override
+    public void fill(final Supplier<E> s, final WaitStrategy wait, final ExitCondition exit) {
+        MessagePassingQueueUtil.fill(this, s, wait, exit);
+    }
+}
+
+abstract class MpmcCompactArrayQueueL1Pad<E> extends ConcurrentCircularArrayQueue<E> {
+    byte b000, b001, b002, b003, b004, b005, b006, b007;//  8b
+    byte b010, b011, b012, b013, b014, b015, b016, b017;// 16b
+    byte b020, b021, b022, b023, b024, b025, b026, b027;// 24b
+    byte b030, b031, b032, b033, b034, b035, b036, b037;// 32b
+    byte b040, b041, b042, b043, b044, b045, b046, b047;// 40b
+    byte b050, b051, b052, b053, b054, b055, b056, b057;// 48b
+    byte b060, b061, b062, b063, b064, b065, b066, b067;// 56b
+    byte b070, b071, b072, b073, b074, b075, b076, b077;// 64b
+    byte b100, b101, b102, b103, b104, b105, b106, b107;// 72b
+    byte b110, b111, b112, b113, b114, b115, b116, b117;// 80b
+    byte b120, b121, b122, b123, b124, b125, b126, b127;// 88b
+    byte b130, b131, b132, b133, b134, b135, b136, b137;// 96b
+    byte b140, b141, b142, b143, b144, b145, b146, b147;//104b
+    byte b150, b151, b152, b153, b154, b155, b156, b157;//112b
+    byte b160, b161, b162, b163, b164, b165, b166, b167;//120b
+    byte b170, b171, b172, b173, b174, b175, b176, b177;//128b
+
+    MpmcCompactArrayQueueL1Pad(int capacity) {
+        super(capacity);
+    }
+}
+
+// 生产者索引，生产者上限 与 生产者索引 同一缓存行，只有生产者写
+abstract class MpmcCompactArrayQueueProducerIndexField<E> extends MpmcCompactArrayQueueL1Pad<E> {
+    private final static long P_INDEX_OFFSET = fieldOffset(MpmcCompactArrayQueueProducerIndexField.class, "producerIndex");
+    private final static long P_LIMIT_OFFSET = fieldOffset(MpmcCompactArrayQueueProducerIndexField.class, "producerLimit");
+
+    private volatile long producerIndex;
+    // 缓存的 consumerIndex + capacity，减少 读 消费者缓存行
+    private volatile long producerLimit;
+
+    MpmcCompactArrayQueueProducerIndexField(int capacity) {
+        super(capacity);
+        producerLimit = capacity();
+    }
+
+    @Override
+    public final long lvProducerIndex() {
+        return producerIndex;
+    }
+
+    final boolean casProducerIndex(long expect, long newValue) {
+        return UNSAFE.compareAndSwapLong(this, P_INDEX_OFFSET, expect, newValue);
+    }
+
+    final long lvProducerLimit() {
+        return producerLimit;
+    }
+
+    final void soProducerLimit(long newValue) {
+        UNSAFE.putOrderedLong(this, P_LIMIT_OFFSET, newValue);
+    }
+}
+
+abstract class MpmcCompactArrayQueueL2Pad<E> extends MpmcCompactArrayQueueProducerIndexField<E> {
+    byte b000, b001, b002, b003, b004, b005, b006, b007;//  8b
+    byte b010, b011, b012, b013, b014, b015, b016, b017;// 16b
+    byte b020, b021, b022, b023, b024, b025, b026, b027;// 24b
+    byte b030, b031, b032, b033, b034, b035, b036, b037;// 32b
+    byte b040, b041, b042, b043, b044, b045, b046, b047;// 40b
+    byte b050, b051, b052, b053, b054, b055, b056, b057;// 48b
+    byte b060, b061, b062, b063, b064, b065, b066, b067;// 56b
+    byte b070, b071, b072, b073, b074, b075, b076, b077;// 64b
+    byte b100, b101, b102, b103, b104, b105, b106, b107;// 72b
+    byte b110, b111, b112, b113, b114, b115, b116, b117;// 80b
+    byte b120, b121, b122, b123, b124, b125, b126, b127;// 88b
+    byte b130, b131, b132, b133, b134, b135, b136, b137;// 96b
+    byte b140, b141, b142, b143, b144, b145, b146, b147;//104b
+    byte b150, b151, b152, b153, b154, b155, b156, b157;//112b
+    byte b160, b161, b162, b163, b164, b165, b166, b167;//120b
+    byte b170, b171, b172, b173, b174, b175, b176, b177;//128b
+
+    MpmcCompactArrayQueueL2Pad(int capacity) {
+        super(capacity);
+    }
+}
+
+// 消费者 释放索引，小于它的位置 都已经置 null
+abstract class MpmcCompactArrayQueueConsumerIndexField<E> extends MpmcCompactArrayQueueL2Pad<E> {
+    private final static long C_INDEX_OFFSET = fieldOffset(MpmcCompactArrayQueueConsumerIndexField.class, "consumerIndex");
+
+    private volatile long consumerIndex;
+
+    MpmcCompactArrayQueueConsumerIndexField(int capacity) {
+        super(capacity);
+    }
+
+    @Override
+    public final long lvConsumerIndex() {
+        return consumerIndex;
+    }
+
+    final void soConsumerIndex(long newValue) {
+        UNSAFE.putOrderedLong(this, C_INDEX_OFFSET, newValue);
+    }
+}
+
+abstract class MpmcCompactArrayQueueL3Pad<E> extends MpmcCompactArrayQueueConsumerIndexField<E> {
+    byte b000, b001, b002, b003, b004, b005, b006, b007;//  8b
+    byte b010, b011, b012, b013, b014, b015, b016, b017;// 16b
+    byte b020, b021, b022, b023, b024, b025, b026, b027;// 24b
+    byte b030, b031, b032, b033, b034, b035, b036, b037;// 32b
+    byte b040, b041, b042, b043, b044, b045, b046, b047;// 40b
+    byte b050, b051, b052, b053, b054, b055, b056, b057;// 48b
+    byte b060, b061, b062, b063, b064, b065, b066, b067;// 56b
+    byte b070, b071, b072, b073, b074, b075, b076, b077;// 64b
+    byte b100, b101, b102, b103, b104, b105, b106, b107;// 72b
+    byte b110, b111, b112, b113, b114, b115, b116, b117;// 80b
+    byte b120, b121, b122, b123, b124, b125, b126, b127;// 88b
+    byte b130, b131, b132, b133, b134, b135, b136, b137;// 96b
+    byte b140, b141, b142, b143, b144, b145, b146, b147;//104b
+    byte b150, b151, b152, b153, b154, b155, b156, b157;//112b
+    byte b160, b161, b162, b163, b164, b165, b166, b167;//120b
+    byte b170, b171, b172, b173, b174, b175, b176, b177;//128b
+
+    MpmcCompactArrayQueueL3Pad(int capacity) {
+        super(capacity);
+    }
+}
+
+// 消费者 认领索引
+abstract class MpmcCompactArrayQueueConsumerClaimIndexField<E> extends MpmcCompactArrayQueueL3Pad<E> {
+    private final static long C_CLAIM_INDEX_OFFSET = fieldOffset(MpmcCompactArrayQueueConsumerClaimIndexField.class, "consumerClaimIndex");
+
+    private volatile long consumerClaimIndex;
+
+    MpmcCompactArrayQueueConsumerClaimIndexField(int capacity) {
+        super(capacity);
+    }
+
+    final long lvConsumerClaimIndex() {
+        return consumerClaimIndex;
+    }
+
+    final boolean casConsumerClaimIndex(long expect, long newValue) {
+        return UNSAFE.compareAndSwapLong(this, C_CLAIM_INDEX_OFFSET, expect, newValue);
+    }
+}
+
+abstract class MpmcCompactArrayQueueL4Pad<E> extends MpmcCompactArrayQueueConsumerClaimIndexField<E> {
+    byte b000, b001, b002, b003, b004, b005, b006, b007;//  8b
+    byte b010, b011, b012, b013, b014, b015, b016, b017;// 16b
+    byte b020, b021, b022, b023, b024, b025, b026, b027;// 24b
+    byte b030, b031, b032, b033, b034, b035, b036, b037;// 32b
+    byte b040, b041, b042, b043, b044, b045, b046, b047;// 40b
+    byte b050, b051, b052, b053, b054, b055, b056, b057;// 48b
+    byte b060, b061, b062, b063, b064, b065, b066, b067;// 56b
+    byte b070, b071, b072, b073, b074, b075, b076, b077;// 64b
+    byte b100, b101, b102, b103, b104, b105, b106, b107;// 72b
+    byte b110, b111, b112, b113, b114, b115, b116, b117;// 80b
+    byte b120, b121, b122, b123, b124, b125, b126, b127;// 88b
+    byte b130, b131, b132, b133, b134, b135, b136, b137;// 96b
+    byte b140, b141, b142, b143, b144, b145, b146, b147;//104b
+    byte b150, b151, b152, b153, b154, b155, b156, b157;//112b
+    byte b160, b161, b162, b163, b164, b165, b166, b167;//120b
+    byte b170, b171, b172, b173, b174, b175, b176, b177;//128b
+
+    MpmcCompactArrayQueueL4Pad(int capacity) {
+        super(capacity);
+    }
+}
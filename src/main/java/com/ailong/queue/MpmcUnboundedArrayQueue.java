@@ -0,0 +1,515 @@
+package com.ailong.queue;
+
+import com.ailong.queue.util.RangeUtil;
+
+import java.util.AbstractQueue;
+import java.util.Iterator;
+
+import static com.ailong.queue.util.UnsafeAccess.UNSAFE;
+import static com.ailong.queue.util.UnsafeAccess.fieldOffset;
+import static com.ailong.queue.util.UnsafeRefArrayAccess.allocateRefArray;
+import static com.ailong.queue.util.UnsafeRefArrayAccess.calcRefElementOffset;
+import static com.ailong.queue.util.UnsafeRefArrayAccess.lvRefElement;
+
+/**
+ * 无锁 无界 队列
+ * 多生产者--多消费者
+ * <p>
+ * 由 固定大小的块 组成的链表，块内 生产者/消费者 各自 getAndAdd 块内索引 占位，不需要 cas 循环；
+ * 块写满后 由第一个发现的生产者 链接新块，消费者 消费完一个块后 移动 head，旧块 交给 GC。
+ * </p>
+ * <p>
+ * 消费者 占到的位置 生产者还没写入时，用 TAKEN 标记该位置 并重试下一个位置，
+ * 生产者 cas 写入失败后 同样重试下一个位置，双方都不会 等待对方
+ * </p>
+ *
+ * @param <E>
+ */
+public class MpmcUnboundedArrayQueue<E> extends MpmcUnboundedArrayQueueL3Pad<E> {
+
+    /**
+     * @param chunkSize 块大小
+     */
+    public MpmcUnboundedArrayQueue(final int chunkSize) {
+        super(chunkSize);
+        final MpmcUnboundedChunk<E> first = new MpmcUnboundedChunk<>(chunkSize, 0);
+        spHead(first);
+        soTail(first);
+    }
+
+    @Override
+    public boolean offer(final E e) {
+        if (null == e) {
+            throw new NullPointerException();
+        }
+        final int chunkSize = this.chunkSize;
+        while (true) {
+            final MpmcUnboundedChunk<E> tail = lvTail();
+            final long index = tail.getAndIncrementEnqIndex();
+            if (index < chunkSize) {
+                if (tail.casElement(index, null, e)) {
+                    return true;
+                }
+                // 已被消费者 标记为 TAKEN
+                continue;
+            }
+            // 当前块 已满
+            if (tail != lvTail()) {
+                continue;
+            }
+            final MpmcUnboundedChunk<E> next = tail.lvNext();
+            if (null == next) {
+                final MpmcUnboundedChunk<E> newChunk = new MpmcUnboundedChunk<>(chunkSize, tail.chunkIndex + 1, e);
+                if (tail.casNext(null, newChunk)) {
+                    casTail(tail, newChunk);
+                    return true;
+                }
+            } else {
+                casTail(tail, next);
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public E poll() {
+        final int chunkSize = this.chunkSize;
+        while (true) {
+            final MpmcUnboundedChunk<E> head = lvHead();
+            if (head.lvDeqIndex() >= head.lvEnqIndex() && null == head.lvNext()) {
+                return null;
+            }
+            final long index = head.getAndIncrementDeqIndex();
+            if (index < chunkSize) {
+                final Object e = head.getAndSetElement(index, MpmcUnboundedChunk.TAKEN);
+                if (null != e) {
+                    return (E) e;
+                }
+                // 生产者 还没写入，它会 换一个位置
+                continue;
+            }
+            // 当前块 已消费完
+            final MpmcUnboundedChunk<E> next = head.lvNext();
+            if (null == next) {
+                return null;
+            }
+            casHead(head, next);
+        }
+    }
+
+    /**
+     * 从 head 向后 找第一个已写入 且 未被取出的元素，不保证线性一致
+     */
+    @SuppressWarnings("unchecked")
+    @Override
+    public E peek() {
+        final int chunkSize = this.chunkSize;
+        MpmcUnboundedChunk<E> chunk = lvHead();
+        while (null != chunk) {
+            final long end = Math.min(chunk.lvEnqIndex(), chunkSize);
+            for (long i = Math.max(chunk.lvDeqIndex(), 0); i < end; i++) {
+                final Object e = chunk.lvElement(i);
+                if (null != e && MpmcUnboundedChunk.TAKEN != e) {
+                    return (E) e;
+                }
+            }
+            chunk = chunk.lvNext();
+        }
+        return null;
+    }
+
+    @Override
+    public boolean relaxedOffer(final E e) {
+        return offer(e);
+    }
+
+    @Override
+    public E relaxedPoll() {
+        return poll();
+    }
+
+    @Override
+    public E relaxedPeek() {
+        return peek();
+    }
+
+    @Override
+    public int drain(final Consumer<E> c, final int limit) {
+        return MessagePassingQueueUtil.drain(this, c, limit);
+    }
+
+    @Override
+    public int fill(final Supplier<E> s, final int limit) {
+        if (null == s)
+            throw new IllegalArgumentException("supplier is null");
+        if (limit < 0)
+            throw new IllegalArgumentException("limit is negative:" + limit);
+        for (int i = 0; i < limit; i++) {
+            offer(s.get());
+        }
+        return limit;
+    }
+
+    @Override
+    public int drain(final Consumer<E> c) {
+        return MessagePassingQueueUtil.drain(this, c);
+    }
+
+    @Override
+    public int fill(final Supplier<E> s) {
+        return MessagePassingQueueUtil.fillUnbounded(this, s);
+    }
+
+    @Override
+    public void drain(final Consumer<E> c, final WaitStrategy wait, final ExitCondition exit) {
+        MessagePassingQueueUtil.drain(this, c, wait, exit);
+    }
+
+    @Override
+    public void fill(final Supplier<E> s, final WaitStrategy wait, final ExitCondition exit) {
+        MessagePassingQueueUtil.fill(this, s, wait, exit);
+    }
+
+    /**
+     * 估算大小
+     * 块序号 * 块大小 + 块内索引，被 TAKEN 标记的位置 生产者/消费者索引都已越过，相互抵消
+     *
+     * @return
+     */
+    @Override
+    public int size() {
+        final int chunkSize = this.chunkSize;
+        while (true) {
+            final MpmcUnboundedChunk<E> head = lvHead();
+            final long consumed = head.chunkIndex * chunkSize + Math.min(head.lvDeqIndex(), chunkSize);
+            final MpmcUnboundedChunk<E> tail = lvTail();
+            final long produced = tail.chunkIndex * chunkSize + Math.min(tail.lvEnqIndex(), chunkSize);
+            if (head == lvHead()) {
+                final long size = produced - consumed;
+                return (int) Math.max(0, Math.min(size, Integer.MAX_VALUE));
+            }
+        }
+    }
+
+    @Override
+    public boolean isEmpty() {
+        final MpmcUnboundedChunk<E> head = lvHead();
+        return head.lvDeqIndex() >= Math.min(head.lvEnqIndex(), chunkSize) && null == head.lvNext();
+    }
+
+    @Override
+    public void clear() {
+        while (null != poll()) {
+            // if you stare into the void
+        }
+    }
+
+    @Override
+    public int capacity() {
+        return UNBOUNDED_CAPACITY;
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public String toString() {
+        return this.getClass().getName();
+    }
+}
+
+/**
+ * 块
+ * 块内 生产者/消费者索引 分别在独立的缓存行
+ *
+ * @param <E>
+ */
+final class MpmcUnboundedChunk<E> extends MpmcUnboundedChunkL3Pad<E> {
+    // 消费者 抢先占用的位置
+    static final Object TAKEN = new Object();
+
+    MpmcUnboundedChunk(int chunkSize, long chunkIndex) {
+        super(chunkSize, chunkIndex);
+    }
+
+    /**
+     * 新块 第一个元素 由创建者直接放入，块被链接（cas next）后 才对其他线程可见
+     */
+    MpmcUnboundedChunk(int chunkSize, long chunkIndex, E first) {
+        super(chunkSize, chunkIndex);
+        UNSAFE.putObject(buffer, calcRefElementOffset(0), first);
+        spEnqIndex(1);
+    }
+
+    Object lvElement(long index) {
+        return lvRefElement(buffer, calcRefElementOffset(index));
+    }
+
+    boolean casElement(long index, Object expect, Object newValue) {
+        return UNSAFE.compareAndSwapObject(buffer, calcRefElementOffset(index), expect, newValue);
+    }
+
+    Object getAndSetElement(long index, Object newValue) {
+        return UNSAFE.getAndSetObject(buffer, calcRefElementOffset(index), newValue);
+    }
+}
+
+// 冷字段
+abstract class MpmcUnboundedChunkColdFields<E> {
+    private final static long NEXT_OFFSET = fieldOffset(MpmcUnboundedChunkColdFields.class, "next");
+
+    protected final Object[] buffer;
+    // 块序号，估算 size 用
+    protected final long chunkIndex;
+    private volatile MpmcUnboundedChunk<E> next;
+
+    MpmcUnboundedChunkColdFields(int chunkSize, long chunkIndex) {
+        this.buffer = allocateRefArray(chunkSize);
+        this.chunkIndex = chunkIndex;
+    }
+
+    final MpmcUnboundedChunk<E> lvNext() {
+        return next;
+    }
+
+    final boolean casNext(MpmcUnboundedChunk<E> expect, MpmcUnboundedChunk<E> newValue) {
+        return UNSAFE.compareAndSwapObject(this, NEXT_OFFSET, expect, newValue);
+    }
+}
+
+abstract class MpmcUnboundedChunkL1Pad<E> extends MpmcUnboundedChunkColdFields<E> {
+    byte b000, b001, b002, b003, b004, b005, b006, b007;//  8b
+    byte b010, b011, b012, b013, b014, b015, b016, b017;// 16b
+    byte b020, b021, b022, b023, b024, b025, b026, b027;// 24b
+    byte b030, b031, b032, b033, b034, b035, b036, b037;// 32b
+    byte b040, b041, b042, b043, b044, b045, b046, b047;// 40b
+    byte b050, b051, b052, b053, b054, b055, b056, b057;// 48b
+    byte b060, b061, b062, b063, b064, b065, b066, b067;// 56b
+    byte b070, b071, b072, b073, b074, b075, b076, b077;// 64b
+    byte b100, b101, b102, b103, b104, b105, b106, b107;// 72b
+    byte b110, b111, b112, b113, b114, b115, b116, b117;// 80b
+    byte b120, b121, b122, b123, b124, b125, b126, b127;// 88b
+    byte b130, b131, b132, b133, b134, b135, b136, b137;// 96b
+    byte b140, b141, b142, b143, b144, b145, b146, b147;//104b
+    byte b150, b151, b152, b153, b154, b155, b156, b157;//112b
+    byte b160, b161, b162, b163, b164, b165, b166, b167;//120b
+    byte b170, b171, b172, b173, b174, b175, b176, b177;//128b
+
+    MpmcUnboundedChunkL1Pad(int chunkSize, long chunkIndex) {
+        super(chunkSize, chunkIndex);
+    }
+}
+
+// 块内 生产者索引
+abstract class MpmcUnboundedChunkEnqIndexField<E> extends MpmcUnboundedChunkL1Pad<E> {
+    private final static long ENQ_INDEX_OFFSET = fieldOffset(MpmcUnboundedChunkEnqIndexField.class, "enqIndex");
+
+    private volatile long enqIndex;
+
+    MpmcUnboundedChunkEnqIndexField(int chunkSize, long chunkIndex) {
+        super(chunkSize, chunkIndex);
+    }
+
+    final long lvEnqIndex() {
+        return enqIndex;
+    }
+
+    final void spEnqIndex(long newValue) {
+        UNSAFE.putLong(this, ENQ_INDEX_OFFSET, newValue);
+    }
+
+    final long getAndIncrementEnqIndex() {
+        return UNSAFE.getAndAddLong(this, ENQ_INDEX_OFFSET, 1);
+    }
+}
+
+abstract class MpmcUnboundedChunkL2Pad<E> extends MpmcUnboundedChunkEnqIndexField<E> {
+    byte b000, b001, b002, b003, b004, b005, b006, b007;//  8b
+    byte b010, b011, b012, b013, b014, b015, b016, b017;// 16b
+    byte b020, b021, b022, b023, b024, b025, b026, b027;// 24b
+    byte b030, b031, b032, b033, b034, b035, b036, b037;// 32b
+    byte b040, b041, b042, b043, b044, b045, b046, b047;// 40b
+    byte b050, b051, b052, b053, b054, b055, b056, b057;// 48b
+    byte b060, b061, b062, b063, b064, b065, b066, b067;// 56b
+    byte b070, b071, b072, b073, b074, b075, b076, b077;// 64b
+    byte b100, b101, b102, b103, b104, b105, b106, b107;// 72b
+    byte b110, b111, b112, b113, b114, b115, b116, b117;// 80b
+    byte b120, b121, b122, b123, b124, b125, b126, b127;// 88b
+    byte b130, b131, b132, b133, b134, b135, b136, b137;// 96b
+    byte b140, b141, b142, b143, b144, b145, b146, b147;//104b
+    byte b150, b151, b152, b153, b154, b155, b156, b157;//112b
+    byte b160, b161, b162, b163, b164, b165, b166, b167;//120b
+    byte b170, b171, b172, b173, b174, b175, b176, b177;//128b
+
+    MpmcUnboundedChunkL2Pad(int chunkSize, long chunkIndex) {
+        super(chunkSize, chunkIndex);
+    }
+}
+
+// 块内 消费者索引
+abstract class MpmcUnboundedChunkDeqIndexField<E> extends MpmcUnboundedChunkL2Pad<E> {
+    private final static long DEQ_INDEX_OFFSET = fieldOffset(MpmcUnboundedChunkDeqIndexField.class, "deqIndex");
+
+    private volatile long deqIndex;
+
+    MpmcUnboundedChunkDeqIndexField(int chunkSize, long chunkIndex) {
+        super(chunkSize, chunkIndex);
+    }
+
+    final long lvDeqIndex() {
+        return deqIndex;
+    }
+
+    final long getAndIncrementDeqIndex() {
+        return UNSAFE.getAndAddLong(this, DEQ_INDEX_OFFSET, 1);
+    }
+}
+
+abstract class MpmcUnboundedChunkL3Pad<E> extends MpmcUnboundedChunkDeqIndexField<E> {
+    byte b000, b001, b002, b003, b004, b005, b006, b007;//  8b
+    byte b010, b011, b012, b013, b014, b015, b016, b017;// 16b
+    byte b020, b021, b022, b023, b024, b025, b026, b027;// 24b
+    byte b030, b031, b032, b033, b034, b035, b036, b037;// 32b
+    byte b040, b041, b042, b043, b044, b045, b046, b047;// 40b
+    byte b050, b051, b052, b053, b054, b055, b056, b057;// 48b
+    byte b060, b061, b062, b063, b064, b065, b066, b067;// 56b
+    byte b070, b071, b072, b073, b074, b075, b076, b077;// 64b
+    byte b100, b101, b102, b103, b104, b105, b106, b107;// 72b
+    byte b110, b111, b112, b113, b114, b115, b116, b117;// 80b
+    byte b120, b121, b122, b123, b124, b125, b126, b127;// 88b
+    byte b130, b131, b132, b133, b134, b135, b136, b137;// 96b
+    byte b140, b141, b142, b143, b144, b145, b146, b147;//104b
+    byte b150, b151, b152, b153, b154, b155, b156, b157;//112b
+    byte b160, b161, b162, b163, b164, b165, b166, b167;//120b
+    byte b170, b171, b172, b173, b174, b175, b176, b177;//128b
+
+    MpmcUnboundedChunkL3Pad(int chunkSize, long chunkIndex) {
+        super(chunkSize, chunkIndex);
+    }
+}
+
+// 冷字段 块大小
+abstract class MpmcUnboundedArrayQueueColdFields<E> extends AbstractQueue<E> implements MessagePassingQueue<E> {
+    protected final int chunkSize;
+
+    MpmcUnboundedArrayQueueColdFields(int chunkSize) {
+        this.chunkSize = RangeUtil.checkGreaterThanOrEqual(chunkSize, 2, "chunkSize");
+    }
+}
+
+abstract class MpmcUnboundedArrayQueueL1Pad<E> extends MpmcUnboundedArrayQueueColdFields<E> {
+    byte b000, b001, b002, b003, b004, b005, b006, b007;//  8b
+    byte b010, b011, b012, b013, b014, b015, b016, b017;// 16b
+    byte b020, b021, b022, b023, b024, b025, b026, b027;// 24b
+    byte b030, b031, b032, b033, b034, b035, b036, b037;// 32b
+    byte b040, b041, b042, b043, b044, b045, b046, b047;// 40b
+    byte b050, b051, b052, b053, b054, b055, b056, b057;// 48b
+    byte b060, b061, b062, b063, b064, b065, b066, b067;// 56b
+    byte b070, b071, b072, b073, b074, b075, b076, b077;// 64b
+    byte b100, b101, b102, b103, b104, b105, b106, b107;// 72b
+    byte b110, b111, b112, b113, b114, b115, b116, b117;// 80b
+    byte b120, b121, b122, b123, b124, b125, b126, b127;// 88b
+    byte b130, b131, b132, b133, b134, b135, b136, b137;// 96b
+    byte b140, b141, b142, b143, b144, b145, b146, b147;//104b
+    byte b150, b151, b152, b153, b154, b155, b156, b157;//112b
+    byte b160, b161, b162, b163, b164, b165, b166, b167;//120b
+    byte b170, b171, b172, b173, b174, b175, b176, b177;//128b
+
+    MpmcUnboundedArrayQueueL1Pad(int chunkSize) {
+        super(chunkSize);
+    }
+}
+
+// 消费者 当前块
+abstract class MpmcUnboundedArrayQueueHeadField<E> extends MpmcUnboundedArrayQueueL1Pad<E> {
+    private final static long HEAD_OFFSET = fieldOffset(MpmcUnboundedArrayQueueHeadField.class, "head");
+
+    private volatile MpmcUnboundedChunk<E> head;
+
+    MpmcUnboundedArrayQueueHeadField(int chunkSize) {
+        super(chunkSize);
+    }
+
+    final MpmcUnboundedChunk<E> lvHead() {
+        return head;
+    }
+
+    final void spHead(MpmcUnboundedChunk<E> newValue) {
+        UNSAFE.putObject(this, HEAD_OFFSET, newValue);
+    }
+
+    final boolean casHead(MpmcUnboundedChunk<E> expect, MpmcUnboundedChunk<E> newValue) {
+        return UNSAFE.compareAndSwapObject(this, HEAD_OFFSET, expect, newValue);
+    }
+}
+
+abstract class MpmcUnboundedArrayQueueL2Pad<E> extends MpmcUnboundedArrayQueueHeadField<E> {
+    byte b000, b001, b002, b003, b004, b005, b006, b007;//  8b
+    byte b010, b011, b012, b013, b014, b015, b016, b017;// 16b
+    byte b020, b021, b022, b023, b024, b025, b026, b027;// 24b
+    byte b030, b031, b032, b033, b034, b035, b036, b037;// 32b
+    byte b040, b041, b042, b043, b044, b045, b046, b047;// 40b
+    byte b050, b051, b052, b053, b054, b055, b056, b057;// 48b
+    byte b060, b061, b062, b063, b064, b065, b066, b067;// 56b
+    byte b070, b071, b072, b073, b074, b075, b076, b077;// 64b
+    byte b100, b101, b102, b103, b104, b105, b106, b107;// 72b
+    byte b110, b111, b112, b113, b114, b115, b116, b117;// 80b
+    byte b120, b121, b122, b123, b124, b125, b126, b127;// 88b
+    byte b130, b131, b132, b133, b134, b135, b136, b137;// 96b
+    byte b140, b141, b142, b143, b144, b145, b146, b147;//104b
+    byte b150, b151, b152, b153, b154, b155, b156, b157;//112b
+    byte b160, b161, b162, b163, b164, b165, b166, b167;//120b
+    byte b170, b171, b172, b173, b174, b175, b176, b177;//128b
+
+    MpmcUnboundedArrayQueueL2Pad(int chunkSize) {
+        super(chunkSize);
+    }
+}
+
+// 生产者 当前块
+abstract class MpmcUnboundedArrayQueueTailField<E> extends MpmcUnboundedArrayQueueL2Pad<E> {
+    private final static long TAIL_OFFSET = fieldOffset(MpmcUnboundedArrayQueueTailField.class, "tail");
+
+    private volatile MpmcUnboundedChunk<E> tail;
+
+    MpmcUnboundedArrayQueueTailField(int chunkSize) {
+        super(chunkSize);
+    }
+
+    final MpmcUnboundedChunk<E> lvTail() {
+        return tail;
+    }
+
+    final void soTail(MpmcUnboundedChunk<E> newValue) {
+        UNSAFE.putOrderedObject(this, TAIL_OFFSET, newValue);
+    }
+
+    final boolean casTail(MpmcUnboundedChunk<E> expect, MpmcUnboundedChunk<E> newValue) {
+        return UNSAFE.compareAndSwapObject(this, TAIL_OFFSET, expect, newValue);
+    }
+}
+
+abstract class MpmcUnboundedArrayQueueL3Pad<E> extends MpmcUnboundedArrayQueueTailField<E> {
+    byte b000, b001, b002, b003, b004, b005, b006, b007;//  8b
+    byte b010, b011, b012, b013, b014, b015, b016, b017;// 16b
+    byte b020, b021, b022, b023, b024, b025, b026, b027;// 24b
+    byte b030, b031, b032, b033, b034, b035, b036, b037;// 32b
+    byte b040, b041, b042, b043, b044, b045, b046, b047;// 40b
+    byte b050, b051, b052, b053, b054, b055, b056, b057;// 48b
+    byte b060, b061, b062, b063, b064, b065, b066, b067;// 56b
+    byte b070, b071, b072, b073, b074, b075, b076, b077;// 64b
+    byte b100, b101, b102, b103, b104, b105, b106, b107;// 72b
+    byte b110, b111, b112, b113, b114, b115, b116, b117;// 80b
+    byte b120, b121, b122, b123, b124, b125, b126, b127;// 88b
+    byte b130, b131, b132, b133, b134, b135, b136, b137;// 96b
+    byte b140, b141, b142, b143, b144, b145, b146, b147;//104b
+    byte b150, b151, b152, b153, b154, b155, b156, b157;//112b
+    byte b160, b161, b162, b163, b164, b165, b166, b167;//120b
+    byte b170, b171, b172, b173, b174, b175, b176, b177;//128b
+
+    MpmcUnboundedArrayQueueL3Pad(int chunkSize) {
+        super(chunkSize);
+    }
+}
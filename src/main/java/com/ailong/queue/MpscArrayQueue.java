@@ -1,5 +1,10 @@
 package com.ailong.queue;
 
+import com.ailong.queue.wait.ContentionBackoff;
+
+import static com.ailong.queue.ContentionBackoffUtil.complete;
+import static com.ailong.queue.ContentionBackoffUtil.retry;
+import static com.ailong.queue.util.UnsafeAccess.SUPPORTS_GET_AND_ADD_LONG;
 import static com.ailong.queue.util.UnsafeAccess.UNSAFE;
 import static com.ailong.queue.util.UnsafeAccess.fieldOffset;
 import static com.ailong.queue.util.UnsafeRefArrayAccess.calcCircularRefElementOffset;
@@ -13,10 +18,20 @@ import static com.ailong.queue.util.UnsafeRefArrayAccess.soRefElement;
  * @param <E>
  */
 public class MpscArrayQueue<E> extends MpscArrayQueueL3Pad<E> {
+    // cas 生产者索引 失败后的退避，null 表示 立即重试
+    private final ContentionBackoff backoff;
 
     public MpscArrayQueue(final int capacity) {
+        this(capacity, null);
+    }
 
+    /**
+     * @param capacity 容量
+     * @param backoff  生产者 cas 竞争 退避策略，null 表示 立即重试
+     */
+    public MpscArrayQueue(final int capacity, final ContentionBackoff backoff) {
         super(capacity);
+        this.backoff = backoff;
     }
 
     /**
@@ -32,10 +47,12 @@ public class MpscArrayQueue<E> extends MpscArrayQueueL3Pad<E> {
         }
 
         final long mask = this.mask; // mask
+        final ContentionBackoff backoff = this.backoff;
         long producerLimit = lvProducerLimit(); // limit
         long pIndex;
+        int failures = 0;
 
-        do {
+        while (true) {
             //循环处理 生产者索引
             //先做一次 limit 判断 并 扩大 limit
             //p index
@@ -48,6 +65,7 @@ public class MpscArrayQueue<E> extends MpscArrayQueueL3Pad<E> {
                 producerLimit = cIndex + mask + 1;
 
                 if (pIndex >= producerLimit) {
+                    complete(backoff, failures);
                     return false; // FULL :(
                 } else {
                     // update producer limit to the next index that we must recheck the consumer index
@@ -56,7 +74,13 @@ public class MpscArrayQueue<E> extends MpscArrayQueueL3Pad<E> {
                 }
             }
 
-        } while (!casProducerIndex(pIndex, pIndex + 1)); //cas 操作生产者index
+            if (casProducerIndex(pIndex, pIndex + 1)) { //cas 操作生产者index
+                break;
+            }
+            // cas 失败，其他生产者 抢先占位
+            retry(backoff, ++failures);
+        }
+        complete(backoff, failures);
 
         final long offset = calcCircularRefElementOffset(pIndex, mask);
         soRefElement(buffer, offset, e);
@@ -115,6 +139,7 @@ public class MpscArrayQueue<E> extends MpscArrayQueueL3Pad<E> {
         return e;
     }
 
+    // 多生产者 要用消费者索引 判断是否已满，与 offer 相同，见 MessagePassingQueue#relaxedOffer
     @Override
     public boolean relaxedOffer(E e) {
         return offer(e);
@@ -397,6 +422,23 @@ abstract class MpscArrayQueueProducerIndexField<E> extends MpscArrayQueueL1Pad<E
     final boolean casProducerIndex(long expect, long newValue) {
         return UNSAFE.compareAndSwapLong(this, P_INDEX_OFFSET, expect, newValue);
     }
+
+    /**
+     * 原子加，不支持 getAndAddLong 时 退化为 cas 循环
+     *
+     * @param delta
+     * @return 加之前的值
+     */
+    final long getAndAddProducerIndex(long delta) {
+        if (SUPPORTS_GET_AND_ADD_LONG) {
+            return UNSAFE.getAndAddLong(this, P_INDEX_OFFSET, delta);
+        }
+        long pIndex;
+        do {
+            pIndex = lvProducerIndex();
+        } while (!casProducerIndex(pIndex, pIndex + delta));
+        return pIndex;
+    }
 }
 
 abstract class MpscArrayQueueL1Pad<E> extends ConcurrentCircularArrayQueue<E> {
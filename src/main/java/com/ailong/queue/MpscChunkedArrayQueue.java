@@ -0,0 +1,88 @@
+package com.ailong.queue;
+
+import com.ailong.queue.util.Pow2;
+import com.ailong.queue.util.RangeUtil;
+
+import static com.ailong.queue.LinkedArrayQueueUtil.length;
+
+/**
+ * 无锁 有界 队列
+ * 多生产者--单消费者
+ * <p>
+ * 以 initialCapacity 大小的块起步，积压增加时按需链接新块，
+ * 总容量达到 maxCapacity 后 offer 返回 false
+ * </p>
+ *
+ * @param <E>
+ */
+public class MpscChunkedArrayQueue<E> extends MpscChunkedArrayQueueL4Pad<E> {
+
+    public MpscChunkedArrayQueue(int maxCapacity) {
+        super(Math.max(2, Math.min(1024, Pow2.roundToPowerOfTwo(maxCapacity / 8))), maxCapacity);
+    }
+
+    /**
+     * @param initialCapacity 块容量
+     * @param maxCapacity     最大容量
+     */
+    public MpscChunkedArrayQueue(int initialCapacity, int maxCapacity) {
+        super(initialCapacity, maxCapacity);
+    }
+
+    @Override
+    protected long availableInQueue(long pIndex, long cIndex) {
+        return maxQueueCapacity - (pIndex - cIndex);
+    }
+
+    @Override
+    public int capacity() {
+        return (int) (maxQueueCapacity / 2);
+    }
+
+    @Override
+    protected int getNextBufferSize(E[] buffer) {
+        return length(buffer);
+    }
+
+    @Override
+    protected long getCurrentBufferCapacity(long mask) {
+        return mask;
+    }
+}
+
+abstract class MpscChunkedArrayQueueL4Pad<E> extends MpscChunkedArrayQueueColdProducerFields<E> {
+    byte b000, b001, b002, b003, b004, b005, b006, b007;//  8b
+    byte b010, b011, b012, b013, b014, b015, b016, b017;// 16b
+    byte b020, b021, b022, b023, b024, b025, b026, b027;// 24b
+    byte b030, b031, b032, b033, b034, b035, b036, b037;// 32b
+    byte b040, b041, b042, b043, b044, b045, b046, b047;// 40b
+    byte b050, b051, b052, b053, b054, b055, b056, b057;// 48b
+    byte b060, b061, b062, b063, b064, b065, b066, b067;// 56b
+    byte b070, b071, b072, b073, b074, b075, b076, b077;// 64b
+    byte b100, b101, b102, b103, b104, b105, b106, b107;// 72b
+    byte b110, b111, b112, b113, b114, b115, b116, b117;// 80b
+    byte b120, b121, b122, b123, b124, b125, b126, b127;// 88b
+    byte b130, b131, b132, b133, b134, b135, b136, b137;// 96b
+    byte b140, b141, b142, b143, b144, b145, b146, b147;//104b
+    byte b150, b151, b152, b153, b154, b155, b156, b157;//112b
+    byte b160, b161, b162, b163, b164, b165, b166, b167;//120b
+    byte b170, b171, b172, b173, b174, b175, b176, b177;//128b
+
+    MpscChunkedArrayQueueL4Pad(int initialCapacity, int maxCapacity) {
+        super(initialCapacity, maxCapacity);
+    }
+}
+
+// 最大容量
+abstract class MpscChunkedArrayQueueColdProducerFields<E> extends BaseMpscLinkedArrayQueue<E> {
+    // 最大容量 << 1，与生产者/消费者索引同一单位
+    protected final long maxQueueCapacity;
+
+    MpscChunkedArrayQueueColdProducerFields(int initialCapacity, int maxCapacity) {
+        super(initialCapacity);
+        RangeUtil.checkGreaterThanOrEqual(maxCapacity, 4, "maxCapacity");
+        RangeUtil.checkLessThan(Pow2.roundToPowerOfTwo(initialCapacity), Pow2.roundToPowerOfTwo(maxCapacity),
+                "initialCapacity");
+        maxQueueCapacity = ((long) Pow2.roundToPowerOfTwo(maxCapacity)) << 1;
+    }
+}
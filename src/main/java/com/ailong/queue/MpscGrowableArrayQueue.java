@@ -0,0 +1,46 @@
+package com.ailong.queue;
+
+import com.ailong.queue.util.Pow2;
+import com.ailong.queue.util.RangeUtil;
+
+import static com.ailong.queue.LinkedArrayQueueUtil.length;
+
+/**
+ * 无锁 有界 队列
+ * 多生产者--单消费者
+ * <p>
+ * 每次扩容 新块大小翻倍，直到 maxCapacity；
+ * 达到最大块后不再产生新的 JUMP，消费者热路径与 MpscArrayQueue 相同
+ * </p>
+ *
+ * @param <E>
+ */
+public class MpscGrowableArrayQueue<E> extends MpscChunkedArrayQueue<E> {
+
+    public MpscGrowableArrayQueue(int maxCapacity) {
+        super(Math.max(2, Pow2.roundToPowerOfTwo(maxCapacity / 8)), maxCapacity);
+    }
+
+    /**
+     * @param initialCapacity 初始块容量
+     * @param maxCapacity     最大容量
+     */
+    public MpscGrowableArrayQueue(int initialCapacity, int maxCapacity) {
+        super(initialCapacity, maxCapacity);
+    }
+
+    @Override
+    protected int getNextBufferSize(E[] buffer) {
+        final long maxSize = maxQueueCapacity / 2;
+        RangeUtil.checkLessThanOrEqual(length(buffer), maxSize, "buffer.length");
+        // 容量翻倍，再加上指向下一块的位置
+        final int newSize = 2 * (length(buffer) - 1);
+        return newSize + 1;
+    }
+
+    @Override
+    protected long getCurrentBufferCapacity(long mask) {
+        // 最大块 可以用满整个容量
+        return (mask + 2 == maxQueueCapacity) ? maxQueueCapacity : mask;
+    }
+}
@@ -0,0 +1,346 @@
+package com.ailong.queue;
+
+import static com.ailong.queue.util.UnsafeAccess.UNSAFE;
+import static com.ailong.queue.util.UnsafeAccess.fieldOffset;
+import static com.ailong.queue.util.UnsafeLongArrayAccess.calcCircularLongElementOffset;
+import static com.ailong.queue.util.UnsafeLongArrayAccess.lvLongElement;
+import static com.ailong.queue.util.UnsafeLongArrayAccess.soLongElement;
+
+/**
+ * 无锁有界 long 队列
+ * 多生产者--单消费者
+ * <p>
+ * 与 MpscArrayQueue 相同的算法，元素直接存放在 long[] 中，热路径不分配对象
+ * </p>
+ */
+public class MpscLongArrayQueue extends MpscLongArrayQueueL3Pad {
+
+    /**
+     * 空标记为 Long.MIN_VALUE
+     *
+     * @param capacity
+     */
+    public MpscLongArrayQueue(final int capacity) {
+        this(capacity, Long.MIN_VALUE);
+    }
+
+    /**
+     * @param capacity
+     * @param emptyValue 空位置 标记值，不能作为元素添加
+     */
+    public MpscLongArrayQueue(final int capacity, final long emptyValue) {
+        super(capacity, emptyValue);
+    }
+
+    /**
+     * 添加
+     *
+     * @param e
+     * @return
+     */
+    @Override
+    public boolean offer(final long e) {
+        if (emptyValue == e) {
+            throw new IllegalArgumentException("e is the empty value: " + e);
+        }
+
+        final long mask = this.mask; // mask
+        long producerLimit = lvProducerLimit(); // limit
+        long pIndex;
+
+        do {
+            pIndex = lvProducerIndex();
+            //生产者index >= limit
+            if (pIndex >= producerLimit) {
+                //消费者 索引
+                final long cIndex = lvConsumerIndex();
+                producerLimit = cIndex + mask + 1;
+
+                if (pIndex >= producerLimit) {
+                    return false; // FULL :(
+                } else {
+                    // update producer limit to the next index that we must recheck the consumer index
+                    // this is racy, but the race is benign
+                    soProducerLimit(producerLimit);
+                }
+            }
+
+        } while (!casProducerIndex(pIndex, pIndex + 1)); //cas 操作生产者index
+
+        final long offset = calcCircularLongElementOffset(pIndex, mask);
+        soLongElement(buffer, offset, e);
+        return true; // AWESOME :)
+    }
+
+    /**
+     * 取出数据
+     *
+     * @return 队列为空时返回 emptyValue
+     */
+    @Override
+    public long poll() {
+        final long emptyValue = this.emptyValue;
+        // 消费者 索引
+        final long cIndex = lpConsumerIndex();
+        final long offset = calcCircularLongElementOffset(cIndex, mask);
+
+        final long[] buffer = this.buffer;
+
+        // If we can't see the next available element we can't poll
+        long e = lvLongElement(buffer, offset);
+        if (emptyValue == e) {
+            //判断 消费索引和生产索引是否相等
+            if (cIndex != lvProducerIndex()) {
+                do {
+                    e = lvLongElement(buffer, offset);
+                } while (emptyValue == e);
+            } else {
+                return emptyValue;
+            }
+        }
+        //取出的位置设置为空
+        soLongElement(buffer, offset, emptyValue);
+        soConsumerIndex(cIndex + 1);
+        return e;
+    }
+
+    @Override
+    public long peek() {
+        final long emptyValue = this.emptyValue;
+        final long[] buffer = this.buffer;
+
+        final long cIndex = lpConsumerIndex();
+        final long offset = calcCircularLongElementOffset(cIndex, mask);
+        long e = lvLongElement(buffer, offset);
+        if (emptyValue == e) {
+            if (cIndex != lvProducerIndex()) {
+                do {
+                    e = lvLongElement(buffer, offset);
+                } while (emptyValue == e);
+            } else {
+                return emptyValue;
+            }
+        }
+        return e;
+    }
+
+    // 多生产者 要用消费者索引 判断是否已满，与 offer 相同，见 MessagePassingQueue#relaxedOffer
+    @Override
+    public boolean relaxedOffer(long e) {
+        return offer(e);
+    }
+
+    @Override
+    public long relaxedPoll() {
+        final long emptyValue = this.emptyValue;
+        final long[] buffer = this.buffer;
+        final long cIndex = lpConsumerIndex();
+        final long offset = calcCircularLongElementOffset(cIndex, mask);
+
+        // If we can't see the next available element we can't poll
+        long e = lvLongElement(buffer, offset);
+        if (emptyValue == e) {
+            return emptyValue;
+        }
+
+        soLongElement(buffer, offset, emptyValue);
+        soConsumerIndex(cIndex + 1);
+        return e;
+    }
+
+    @Override
+    public long relaxedPeek() {
+        return lvLongElement(buffer, calcCircularLongElementOffset(lpConsumerIndex(), mask));
+    }
+
+    @Override
+    public int drain(final LongConsumer c, final int limit) {
+        if (null == c)
+            throw new IllegalArgumentException("c is null");
+        if (limit < 0)
+            throw new IllegalArgumentException("limit is negative: " + limit);
+        if (limit == 0)
+            return 0;
+
+        final long emptyValue = this.emptyValue;
+        final long[] buffer = this.buffer;
+        final long mask = this.mask;
+        final long cIndex = lpConsumerIndex();
+
+        for (int i = 0; i < limit; i++) {
+            final long index = cIndex + i;
+            final long offset = calcCircularLongElementOffset(index, mask);
+            final long e = lvLongElement(buffer, offset);
+            if (emptyValue == e) {
+                return i;
+            }
+            soLongElement(buffer, offset, emptyValue);
+            soConsumerIndex(index + 1); // ordered store -> atomic and ordered for size()
+            c.accept(e);
+        }
+        return limit;
+    }
+
+    @Override
+    public int drain(LongConsumer c) {
+        return drain(c, capacity());
+    }
+}
+
+abstract class MpscLongArrayQueueL3Pad extends MpscLongArrayQueueConsumerIndexField {
+    byte b000, b001, b002, b003, b004, b005, b006, b007;//  8b
+    byte b010, b011, b012, b013, b014, b015, b016, b017;// 16b
+    byte b020, b021, b022, b023, b024, b025, b026, b027;// 24b
+    byte b030, b031, b032, b033, b034, b035, b036, b037;// 32b
+    byte b040, b041, b042, b043, b044, b045, b046, b047;// 40b
+    byte b050, b051, b052, b053, b054, b055, b056, b057;// 48b
+    byte b060, b061, b062, b063, b064, b065, b066, b067;// 56b
+    byte b070, b071, b072, b073, b074, b075, b076, b077;// 64b
+    byte b100, b101, b102, b103, b104, b105, b106, b107;// 72b
+    byte b110, b111, b112, b113, b114, b115, b116, b117;// 80b
+    byte b120, b121, b122, b123, b124, b125, b126, b127;// 88b
+    byte b130, b131, b132, b133, b134, b135, b136, b137;// 96b
+    byte b140, b141, b142, b143, b144, b145, b146, b147;//104b
+    byte b150, b151, b152, b153, b154, b155, b156, b157;//112b
+    byte b160, b161, b162, b163, b164, b165, b166, b167;//120b
+    byte b170, b171, b172, b173, b174, b175, b176, b177;//128b
+
+    MpscLongArrayQueueL3Pad(int capacity, long emptyValue) {
+        super(capacity, emptyValue);
+    }
+}
+
+// 消费者 索引
+abstract class MpscLongArrayQueueConsumerIndexField extends MpscLongArrayQueueL2Pad {
+    private final static long C_INDEX_OFFSET = fieldOffset(MpscLongArrayQueueConsumerIndexField.class, "consumerIndex");
+
+    private volatile long consumerIndex;
+
+    MpscLongArrayQueueConsumerIndexField(int capacity, long emptyValue) {
+        super(capacity, emptyValue);
+    }
+
+    @Override
+    public final long lvConsumerIndex() {
+        return consumerIndex;
+    }
+
+    final long lpConsumerIndex() {
+        return UNSAFE.getLong(this, C_INDEX_OFFSET);
+    }
+
+    final void soConsumerIndex(long newValue) {
+        UNSAFE.putOrderedLong(this, C_INDEX_OFFSET, newValue);
+    }
+}
+
+abstract class MpscLongArrayQueueL2Pad extends MpscLongArrayQueueProducerLimitField {
+    byte b000, b001, b002, b003, b004, b005, b006, b007;//  8b
+    byte b010, b011, b012, b013, b014, b015, b016, b017;// 16b
+    byte b020, b021, b022, b023, b024, b025, b026, b027;// 24b
+    byte b030, b031, b032, b033, b034, b035, b036, b037;// 32b
+    byte b040, b041, b042, b043, b044, b045, b046, b047;// 40b
+    byte b050, b051, b052, b053, b054, b055, b056, b057;// 48b
+    byte b060, b061, b062, b063, b064, b065, b066, b067;// 56b
+    byte b070, b071, b072, b073, b074, b075, b076, b077;// 64b
+    byte b100, b101, b102, b103, b104, b105, b106, b107;// 72b
+    byte b110, b111, b112, b113, b114, b115, b116, b117;// 80b
+    byte b120, b121, b122, b123, b124, b125, b126, b127;// 88b
+    byte b130, b131, b132, b133, b134, b135, b136, b137;// 96b
+    byte b140, b141, b142, b143, b144, b145, b146, b147;//104b
+    byte b150, b151, b152, b153, b154, b155, b156, b157;//112b
+    byte b160, b161, b162, b163, b164, b165, b166, b167;//120b
+    byte b170, b171, b172, b173, b174, b175, b176, b177;//128b
+
+    MpscLongArrayQueueL2Pad(int capacity, long emptyValue) {
+        super(capacity, emptyValue);
+    }
+}
+
+// 生产者 limit 容量
+abstract class MpscLongArrayQueueProducerLimitField extends MpscLongArrayQueueMidPad {
+    private final static long P_LIMIT_OFFSET = fieldOffset(MpscLongArrayQueueProducerLimitField.class, "producerLimit");
+
+    // First unavailable index the producer may claim up to before rereading the consumer index
+    private volatile long producerLimit;
+
+    MpscLongArrayQueueProducerLimitField(int capacity, long emptyValue) {
+        super(capacity, emptyValue);
+        this.producerLimit = capacity();
+    }
+
+    final long lvProducerLimit() {
+        return producerLimit;
+    }
+
+    final void soProducerLimit(long newValue) {
+        UNSAFE.putOrderedLong(this, P_LIMIT_OFFSET, newValue);
+    }
+}
+
+// mid pad 中间
+abstract class MpscLongArrayQueueMidPad extends MpscLongArrayQueueProducerIndexField {
+    byte b000, b001, b002, b003, b004, b005, b006, b007;//  8b
+    byte b010, b011, b012, b013, b014, b015, b016, b017;// 16b
+    byte b020, b021, b022, b023, b024, b025, b026, b027;// 24b
+    byte b030, b031, b032, b033, b034, b035, b036, b037;// 32b
+    byte b040, b041, b042, b043, b044, b045, b046, b047;// 40b
+    byte b050, b051, b052, b053, b054, b055, b056, b057;// 48b
+    byte b060, b061, b062, b063, b064, b065, b066, b067;// 56b
+    byte b070, b071, b072, b073, b074, b075, b076, b077;// 64b
+    byte b100, b101, b102, b103, b104, b105, b106, b107;// 72b
+    byte b110, b111, b112, b113, b114, b115, b116, b117;// 80b
+    byte b120, b121, b122, b123, b124, b125, b126, b127;// 88b
+    byte b130, b131, b132, b133, b134, b135, b136, b137;// 96b
+    byte b140, b141, b142, b143, b144, b145, b146, b147;//104b
+    byte b150, b151, b152, b153, b154, b155, b156, b157;//112b
+    byte b160, b161, b162, b163, b164, b165, b166, b167;//120b
+    byte b170, b171, b172, b173, b174, b175, b176, b177;//128b
+
+    MpscLongArrayQueueMidPad(int capacity, long emptyValue) {
+        super(capacity, emptyValue);
+    }
+}
+
+// 生产者 索引
+abstract class MpscLongArrayQueueProducerIndexField extends MpscLongArrayQueueL1Pad {
+    private final static long P_INDEX_OFFSET = fieldOffset(MpscLongArrayQueueProducerIndexField.class, "producerIndex");
+
+    private volatile long producerIndex;
+
+    MpscLongArrayQueueProducerIndexField(int capacity, long emptyValue) {
+        super(capacity, emptyValue);
+    }
+
+    @Override
+    public final long lvProducerIndex() {
+        return producerIndex;
+    }
+
+    final boolean casProducerIndex(long expect, long newValue) {
+        return UNSAFE.compareAndSwapLong(this, P_INDEX_OFFSET, expect, newValue);
+    }
+}
+
+abstract class MpscLongArrayQueueL1Pad extends ConcurrentCircularLongArrayQueue {
+    byte b000, b001, b002, b003, b004, b005, b006, b007;//  8b
+    byte b010, b011, b012, b013, b014, b015, b016, b017;// 16b
+    byte b020, b021, b022, b023, b024, b025, b026, b027;// 24b
+    byte b030, b031, b032, b033, b034, b035, b036, b037;// 32b
+    byte b040, b041, b042, b043, b044, b045, b046, b047;// 40b
+    byte b050, b051, b052, b053, b054, b055, b056, b057;// 48b
+    byte b060, b061, b062, b063, b064, b065, b066, b067;// 56b
+    byte b070, b071, b072, b073, b074, b075, b076, b077;// 64b
+    byte b100, b101, b102, b103, b104, b105, b106, b107;// 72b
+    byte b110, b111, b112, b113, b114, b115, b116, b117;// 80b
+    byte b120, b121, b122, b123, b124, b125, b126, b127;// 88b
+    byte b130, b131, b132, b133, b134, b135, b136, b137;// 96b
+    byte b140, b141, b142, b143, b144, b145, b146, b147;//104b
+    byte b150, b151, b152, b153, b154, b155, b156, b157;//112b
+    byte b160, b161, b162, b163, b164, b165, b166, b167;//120b
+    byte b170, b171, b172, b173, b174, b175, b176, b177;//128b
+
+    MpscLongArrayQueueL1Pad(int capacity, long emptyValue) {
+        super(capacity, emptyValue);
+    }
+}
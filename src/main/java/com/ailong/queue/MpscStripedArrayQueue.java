@@ -0,0 +1,296 @@
+package com.ailong.queue;
+
+import com.ailong.queue.util.PortableJvmInfo;
+import com.ailong.queue.util.Pow2;
+import com.ailong.queue.util.RangeUtil;
+
+import java.util.AbstractQueue;
+import java.util.Iterator;
+
+/**
+ * 无锁有界 分道 队列
+ * 多生产者--单消费者
+ * <p>
+ * 内部 N 条 MpscArrayQueue 通道，生产者 按线程 id 的哈希 固定使用其中一条，
+ * 不同通道的生产者 不再争抢同一个生产者索引；消费者 轮流消费各通道。
+ * </p>
+ * <p>
+ * 只保证 同一生产者 的元素按顺序消费，不保证 全局 FIFO；
+ * 每条通道 容量 capacity / N，某条通道满时 offer 返回 false，即使其他通道还有空位
+ * </p>
+ *
+ * @param <E>
+ */
+public class MpscStripedArrayQueue<E> extends MpscStripedArrayQueueL2Pad<E> {
+
+    public MpscStripedArrayQueue(final int capacity) {
+        this(capacity, PortableJvmInfo.CPUs);
+    }
+
+    /**
+     * @param capacity 总容量
+     * @param lanes    通道数，向上取2的N次方
+     */
+    public MpscStripedArrayQueue(final int capacity, final int lanes) {
+        super(capacity, lanes);
+    }
+
+    @Override
+    public boolean offer(final E e) {
+        return producerLane().offer(e);
+    }
+
+    @Override
+    public E poll() {
+        final MpscArrayQueue<E>[] lanes = this.lanes;
+        final int laneMask = this.laneMask;
+        final int start = consumerLane;
+        for (int i = 0; i <= laneMask; i++) {
+            final int lane = (start + i) & laneMask;
+            final E e = lanes[lane].poll();
+            if (null != e) {
+                // 下次 从下一条通道开始
+                consumerLane = lane + 1;
+                return e;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public E peek() {
+        final MpscArrayQueue<E>[] lanes = this.lanes;
+        final int laneMask = this.laneMask;
+        final int start = consumerLane;
+        for (int i = 0; i <= laneMask; i++) {
+            final E e = lanes[(start + i) & laneMask].peek();
+            if (null != e) {
+                return e;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public boolean relaxedOffer(final E e) {
+        return producerLane().relaxedOffer(e);
+    }
+
+    @Override
+    public E relaxedPoll() {
+        final MpscArrayQueue<E>[] lanes = this.lanes;
+        final int laneMask = this.laneMask;
+        final int start = consumerLane;
+        for (int i = 0; i <= laneMask; i++) {
+            final int lane = (start + i) & laneMask;
+            final E e = lanes[lane].relaxedPoll();
+            if (null != e) {
+                consumerLane = lane + 1;
+                return e;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public E relaxedPeek() {
+        final MpscArrayQueue<E>[] lanes = this.lanes;
+        final int laneMask = this.laneMask;
+        final int start = consumerLane;
+        for (int i = 0; i <= laneMask; i++) {
+            final E e = lanes[(start + i) & laneMask].relaxedPeek();
+            if (null != e) {
+                return e;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 轮流批量消费各通道，每条通道 每轮最多 limit / N（至少 1）个，
+     * 直到 取满 limit 或 一整轮 都没有元素
+     */
+    @Override
+    public int drain(final Consumer<E> c, final int limit) {
+        if (null == c)
+            throw new IllegalArgumentException("c is null");
+        if (limit < 0)
+            throw new IllegalArgumentException("limit is negative: " + limit);
+        if (limit == 0)
+            return 0;
+
+        final MpscArrayQueue<E>[] lanes = this.lanes;
+        final int laneMask = this.laneMask;
+        final int quota = Math.max(1, limit / (laneMask + 1));
+        int lane = consumerLane;
+        int drained = 0;
+        int idleLanes = 0;
+        while (drained < limit && idleLanes <= laneMask) {
+            final int n = lanes[lane & laneMask].drain(c, Math.min(quota, limit - drained));
+            drained += n;
+            idleLanes = n == 0 ? idleLanes + 1 : 0;
+            lane++;
+        }
+        consumerLane = lane & laneMask;
+        return drained;
+    }
+
+    @Override
+    public int fill(final Supplier<E> s, final int limit) {
+        return producerLane().fill(s, limit);
+    }
+
+    @Override
+    public int drain(final Consumer<E> c) {
+        return drain(c, capacity());
+    }
+
+    @Override
+    public int fill(final Supplier<E> s) {
+        return producerLane().fill(s);
+    }
+
+    @Override
+    public void drain(final Consumer<E> c, final WaitStrategy wait, final ExitCondition exit) {
+        MessagePassingQueueUtil.drain(this, c, wait, exit);
+    }
+
+    @Override
+    public void fill(final Supplier<E> s, final WaitStrategy wait, final ExitCondition exit) {
+        MessagePassingQueueUtil.fill(this, s, wait, exit);
+    }
+
+    @Override
+    public int size() {
+        long size = 0;
+        for (MpscArrayQueue<E> lane : lanes) {
+            size += lane.size();
+        }
+        return (int) Math.min(size, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public boolean isEmpty() {
+        for (MpscArrayQueue<E> lane : lanes) {
+            if (!lane.isEmpty()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void clear() {
+        while (null != poll()) {
+            // if you stare into the void
+        }
+    }
+
+    @Override
+    public int capacity() {
+        return lanes.length * lanes[0].capacity();
+    }
+
+    /**
+     * 通道数
+     *
+     * @return
+     */
+    public int lanes() {
+        return lanes.length;
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public String toString() {
+        return this.getClass().getName();
+    }
+
+    /**
+     * 当前线程 对应的通道
+     * 线程 id 打散后 取低位，同一线程 总是同一通道
+     */
+    private MpscArrayQueue<E> producerLane() {
+        long id = Thread.currentThread().getId();
+        id = (id ^ (id >>> 33)) * 0xff51afd7ed558ccdL;
+        id ^= id >>> 33;
+        return lanes[(int) id & laneMask];
+    }
+}
+
+// 冷字段 通道
+abstract class MpscStripedArrayQueueColdFields<E> extends AbstractQueue<E> implements MessagePassingQueue<E> {
+    protected final MpscArrayQueue<E>[] lanes;
+    protected final int laneMask;
+
+    @SuppressWarnings("unchecked")
+    MpscStripedArrayQueueColdFields(int capacity, int lanes) {
+        RangeUtil.checkGreaterThanOrEqual(lanes, 1, "lanes");
+        final int laneCount = Pow2.roundToPowerOfTwo(lanes);
+        final int laneCapacity = Math.max(2, Pow2.roundToPowerOfTwo(capacity) / laneCount);
+        this.lanes = new MpscArrayQueue[laneCount];
+        for (int i = 0; i < laneCount; i++) {
+            this.lanes[i] = new MpscArrayQueue<>(laneCapacity);
+        }
+        this.laneMask = laneCount - 1;
+    }
+}
+
+abstract class MpscStripedArrayQueueL1Pad<E> extends MpscStripedArrayQueueColdFields<E> {
+    byte b000, b001, b002, b003, b004, b005, b006, b007;//  8b
+    byte b010, b011, b012, b013, b014, b015, b016, b017;// 16b
+    byte b020, b021, b022, b023, b024, b025, b026, b027;// 24b
+    byte b030, b031, b032, b033, b034, b035, b036, b037;// 32b
+    byte b040, b041, b042, b043, b044, b045, b046, b047;// 40b
+    byte b050, b051, b052, b053, b054, b055, b056, b057;// 48b
+    byte b060, b061, b062, b063, b064, b065, b066, b067;// 56b
+    byte b070, b071, b072, b073, b074, b075, b076, b077;// 64b
+    byte b100, b101, b102, b103, b104, b105, b106, b107;// 72b
+    byte b110, b111, b112, b113, b114, b115, b116, b117;// 80b
+    byte b120, b121, b122, b123, b124, b125, b126, b127;// 88b
+    byte b130, b131, b132, b133, b134, b135, b136, b137;// 96b
+    byte b140, b141, b142, b143, b144, b145, b146, b147;//104b
+    byte b150, b151, b152, b153, b154, b155, b156, b157;//112b
+    byte b160, b161, b162, b163, b164, b165, b166, b167;//120b
+    byte b170, b171, b172, b173, b174, b175, b176, b177;//128b
+
+    MpscStripedArrayQueueL1Pad(int capacity, int lanes) {
+        super(capacity, lanes);
+    }
+}
+
+// 消费者 下次开始的通道，只有消费者读写
+abstract class MpscStripedArrayQueueConsumerField<E> extends MpscStripedArrayQueueL1Pad<E> {
+    protected int consumerLane;
+
+    MpscStripedArrayQueueConsumerField(int capacity, int lanes) {
+        super(capacity, lanes);
+    }
+}
+
+abstract class MpscStripedArrayQueueL2Pad<E> extends MpscStripedArrayQueueConsumerField<E> {
+    byte b000, b001, b002, b003, b004, b005, b006, b007;//  8b
+    byte b010, b011, b012, b013, b014, b015, b016, b017;// 16b
+    byte b020, b021, b022, b023, b024, b025, b026, b027;// 24b
+    byte b030, b031, b032, b033, b034, b035, b036, b037;// 32b
+    byte b040, b041, b042, b043, b044, b045, b046, b047;// 40b
+    byte b050, b051, b052, b053, b054, b055, b056, b057;// 48b
+    byte b060, b061, b062, b063, b064, b065, b066, b067;// 56b
+    byte b070, b071, b072, b073, b074, b075, b076, b077;// 64b
+    byte b100, b101, b102, b103, b104, b105, b106, b107;// 72b
+    byte b110, b111, b112, b113, b114, b115, b116, b117;// 80b
+    byte b120, b121, b122, b123, b124, b125, b126, b127;// 88b
+    byte b130, b131, b132, b133, b134, b135, b136, b137;// 96b
+    byte b140, b141, b142, b143, b144, b145, b146, b147;//104b
+    byte b150, b151, b152, b153, b154, b155, b156, b157;//112b
+    byte b160, b161, b162, b163, b164, b165, b166, b167;//120b
+    byte b170, b171, b172, b173, b174, b175, b176, b177;//128b
+
+    MpscStripedArrayQueueL2Pad(int capacity, int lanes) {
+        super(capacity, lanes);
+    }
+}
@@ -0,0 +1,123 @@
+package com.ailong.queue;
+
+import com.ailong.queue.util.PortableJvmInfo;
+import com.ailong.queue.util.ThreadHints;
+
+import static com.ailong.queue.util.UnsafeRefArrayAccess.calcCircularRefElementOffset;
+import static com.ailong.queue.util.UnsafeRefArrayAccess.soRefElement;
+
+/**
+ * 无锁有界 队列
+ * 多生产者--单消费者
+ * <p>
+ * 生产者 用 getAndAddLong（XADD）占位，替代 MpscArrayQueue 的 cas 循环，
+ * 每次 offer 只有一次原子操作，不会因为 cas 失败 反复争抢生产者索引所在的缓存行。
+ * </p>
+ * <p>
+ * 满：xadd 占到的索引 不能回退，所以 只在 空位 多于 XADD_HEADROOM 时 使用 xadd；
+ * 空位 不多时 退回 MpscArrayQueue 的 cas 占位，队列满 返回 false，与其他队列 相同。
+ * 只有 多于 XADD_HEADROOM 个生产者 同时处在 检查 与 xadd 之间（例如 检查后 被调度出去）时，
+ * 才可能 占到 超过容量的索引，这时 生产者 等待消费者 腾出这个位置后 再写入
+ * </p>
+ * <p>
+ * 消费者端 与 MpscArrayQueue 相同
+ * </p>
+ *
+ * @param <E>
+ */
+public class MpscXaddArrayQueue<E> extends MpscArrayQueue<E> {
+    // 空位 不超过 这个数量时 不使用 xadd
+    static final int XADD_HEADROOM = PortableJvmInfo.CPUs;
+
+    public MpscXaddArrayQueue(final int capacity) {
+        super(capacity);
+    }
+
+    @Override
+    public boolean offer(final E e) {
+        if (null == e) {
+            throw new NullPointerException();
+        }
+
+        final long mask = this.mask;
+        long producerLimit = lvProducerLimit();
+        if (producerLimit - lvProducerIndex() <= XADD_HEADROOM) {
+            producerLimit = lvConsumerIndex() + mask + 1;
+            if (producerLimit - lvProducerIndex() <= XADD_HEADROOM) {
+                // 接近满，cas 占位，满 返回 false
+                return super.offer(e);
+            }
+            soProducerLimit(producerLimit);
+        }
+
+        final long pIndex = getAndAddProducerIndex(1);
+        if (pIndex >= producerLimit) {
+            waitForSlot(pIndex, 1);
+        }
+        soRefElement(buffer, calcCircularRefElementOffset(pIndex, mask), e);
+        return true; // AWESOME :)
+    }
+
+    @Override
+    public boolean relaxedOffer(E e) {
+        return offer(e);
+    }
+
+    @Override
+    public int fill(Supplier<E> s, int limit) {
+        if (null == s)
+            throw new IllegalArgumentException("supplier is null");
+        if (limit < 0)
+            throw new IllegalArgumentException("limit is negative:" + limit);
+        if (limit == 0)
+            return 0;
+
+        final long mask = this.mask;
+        long producerLimit = lvProducerLimit();
+        long available = producerLimit - lvProducerIndex();
+        if (available <= XADD_HEADROOM) {
+            producerLimit = lvConsumerIndex() + mask + 1;
+            available = producerLimit - lvProducerIndex();
+            if (available <= XADD_HEADROOM) {
+                // 接近满，cas 占位，满 返回 0
+                return super.fill(s, limit);
+            }
+            soProducerLimit(producerLimit);
+        }
+
+        final int actualLimit = (int) Math.min(available - XADD_HEADROOM, limit);
+        final long pIndex = getAndAddProducerIndex(actualLimit);
+        if (pIndex + actualLimit > producerLimit) {
+            waitForSlot(pIndex, actualLimit);
+        }
+        final E[] buffer = this.buffer;
+        for (int i = 0; i < actualLimit; i++) {
+            soRefElement(buffer, calcCircularRefElementOffset(pIndex + i, mask), s.get());
+        }
+        return actualLimit;
+    }
+
+    /**
+     * 已占位的元素数，超出容量的部分 不计
+     *
+     * @return
+     */
+    @Override
+    public int size() {
+        return Math.min(super.size(), capacity());
+    }
+
+    /**
+     * 多于 XADD_HEADROOM 个生产者 同时占位，占到的索引 超过了容量，等待 消费者索引 前进到 [pIndex, pIndex + count) 都可以写入，
+     * 消费者 先置空元素 再发布消费者索引，看到新的消费者索引时 位置一定已经空出
+     */
+    private void waitForSlot(final long pIndex, final int count) {
+        final long capacity = mask + 1;
+        final long lastIndex = pIndex + count - 1;
+        long producerLimit;
+        while (lastIndex >= (producerLimit = lvConsumerIndex() + capacity)) {
+            ThreadHints.onSpinWait();
+        }
+        soProducerLimit(producerLimit);
+    }
+}
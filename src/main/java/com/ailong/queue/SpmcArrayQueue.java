@@ -134,6 +134,7 @@ public class SpmcArrayQueue<E> extends SpmcArrayQueueL3Pad<E> {
         return true;
     }
 
+    // 要用生产者索引 判断是否为空，与 poll 相同，见 MessagePassingQueue#relaxedOffer
     @Override
     public E relaxedPoll() {
         return poll();
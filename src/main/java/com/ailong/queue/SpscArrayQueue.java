@@ -80,6 +80,7 @@ public class SpscArrayQueue<E> extends SpscArrayQueueL3Pad<E> {
         return lvRefElement(buffer, calcCircularRefElementOffset(lpConsumerIndex(), mask));
     }
 
+    // 单生产者 与 offer 相同，见 MessagePassingQueue#relaxedOffer
     @Override
     public boolean relaxedOffer(final E message) {
         return offer(message);
@@ -132,6 +133,45 @@ public class SpscArrayQueue<E> extends SpscArrayQueueL3Pad<E> {
         return limit;
     }
 
+    /**
+     * 批量消费，与 drain(c, limit) 相同，只是 消费者索引 延迟发布：
+     * 每个元素 仍然逐个置空（生产者 只看元素是否为空），消费者索引 只在最后发布一次，
+     * 省掉 每个元素 对生产者正在读的缓存行 的一次 ordered store；
+     * 期间 size() 会比实际偏大。c.accept 中 不能再调用本队列的 poll / drain
+     */
+    public int drainBatched(final Consumer<E> c, final int limit) {
+        if (null == c)
+            throw new IllegalArgumentException("c is null");
+        if (limit < 0)
+            throw new IllegalArgumentException("limit is negative: " + limit);
+        if (limit == 0)
+            return 0;
+
+        final E[] buffer = this.buffer;
+        final long mask = this.mask;
+        final long consumerIndex = this.lpConsumerIndex();
+
+        int i = 0;
+        try {
+            while (i < limit) {
+                final long offset = calcCircularRefElementOffset(consumerIndex + i, mask);
+                final E e = lvRefElement(buffer, offset);
+                if (null == e) {
+                    break;
+                }
+                soRefElement(buffer, offset, null);
+                i++;
+                c.accept(e);
+            }
+        } finally {
+            // c.accept 抛出异常时 已取出的元素 也要发布
+            if (i != 0) {
+                soConsumerIndex(consumerIndex + i); // ordered store -> atomic and ordered for size()
+            }
+        }
+        return i;
+    }
+
     @Override
     public int fill(final Supplier<E> s, final int limit) {
         if (null == s)
@@ -202,6 +242,53 @@ public class SpscArrayQueue<E> extends SpscArrayQueueL3Pad<E> {
         }
     }
 
+    /**
+     * 与 drain(c, w, exit) 相同，消费者索引 每批最多 4096 个元素 或 队列为空 进入等待前 发布一次
+     */
+    public void drainBatched(final Consumer<E> c, final WaitStrategy w, final ExitCondition exit) {
+        if (null == c)
+            throw new IllegalArgumentException("c is null");
+        if (null == w)
+            throw new IllegalArgumentException("wait is null");
+        if (null == exit)
+            throw new IllegalArgumentException("exit condition is null");
+
+        final E[] buffer = this.buffer;
+        final long mask = this.mask;
+        long consumerIndex = this.lpConsumerIndex();
+        long publishedIndex = consumerIndex;
+
+        int counter = 0;
+        try {
+            while (exit.keepRunning()) {
+                for (int i = 0; i < 4096; i++) {
+                    final long offset = calcCircularRefElementOffset(consumerIndex, mask);
+                    final E e = lvRefElement(buffer, offset);
+                    if (null == e) {
+                        if (publishedIndex != consumerIndex) {
+                            publishedIndex = consumerIndex;
+                            soConsumerIndex(consumerIndex); // ordered store -> atomic and ordered for size()
+                        }
+                        counter = w.idle(counter);
+                        continue;
+                    }
+                    consumerIndex++;
+                    counter = 0;
+                    soRefElement(buffer, offset, null);
+                    c.accept(e);
+                }
+                if (publishedIndex != consumerIndex) {
+                    publishedIndex = consumerIndex;
+                    soConsumerIndex(consumerIndex);
+                }
+            }
+        } finally {
+            if (publishedIndex != consumerIndex) {
+                soConsumerIndex(consumerIndex);
+            }
+        }
+    }
+
     @Override
     public void fill(final Supplier<E> s, final WaitStrategy w, final ExitCondition e) {
         if (null == w)
@@ -0,0 +1,274 @@
+package com.ailong.queue;
+
+import static com.ailong.queue.util.UnsafeAccess.UNSAFE;
+import static com.ailong.queue.util.UnsafeAccess.fieldOffset;
+import static com.ailong.queue.util.UnsafeIntArrayAccess.calcCircularIntElementOffset;
+import static com.ailong.queue.util.UnsafeIntArrayAccess.lvIntElement;
+import static com.ailong.queue.util.UnsafeIntArrayAccess.soIntElement;
+
+/**
+ * 无锁 有界 int 队列
+ * 单生产者-单消费者
+ * <p>
+ * 与 SpscArrayQueue 相同的向前查看(look ahead)算法，元素直接存放在 int[] 中
+ * 与 SpscLongArrayQueue 逐行对应（元素是基本类型，不能用泛型 共用实现），修改时 两个一起改
+ * </p>
+ */
+public class SpscIntArrayQueue extends SpscIntArrayQueueL3Pad {
+
+    /**
+     * 空标记为 Integer.MIN_VALUE
+     *
+     * @param capacity
+     */
+    public SpscIntArrayQueue(final int capacity) {
+        this(capacity, Integer.MIN_VALUE);
+    }
+
+    /**
+     * @param capacity
+     * @param emptyValue 空位置 标记值，不能作为元素添加
+     */
+    public SpscIntArrayQueue(final int capacity, final int emptyValue) {
+        super(Math.max(capacity, 4), emptyValue);
+    }
+
+    @Override
+    public boolean offer(final int e) {
+        if (emptyValue == e) {
+            throw new IllegalArgumentException("e is the empty value: " + e);
+        }
+
+        final int[] buffer = this.buffer;
+        final long mask = this.mask;
+        final long producerIndex = this.lpProducerIndex();
+
+        //判断是否能添加进去
+        if (producerIndex >= producerLimit &&
+                !offerSlowPath(buffer, mask, producerIndex)) {
+            return false;
+        }
+        final long offset = calcCircularIntElementOffset(producerIndex, mask);
+
+        soIntElement(buffer, offset, e);
+        soProducerIndex(producerIndex + 1); // ordered store -> atomic and ordered for size()
+        return true;
+    }
+
+    private boolean offerSlowPath(final int[] buffer, final long mask, final long producerIndex) {
+        //向前步长
+        final int lookAheadStep = this.lookAheadStep;
+        // 取向前步长元素，如果为空，设置 生产limit
+        if (emptyValue == lvIntElement(buffer,
+                calcCircularIntElementOffset(producerIndex + lookAheadStep, mask))) {
+            producerLimit = producerIndex + lookAheadStep;
+        } else {
+            // 不为空 // 取当前生产索引位置的值，
+            // 如果不为空，返回false
+            final long offset = calcCircularIntElementOffset(producerIndex, mask);
+            if (emptyValue != lvIntElement(buffer, offset)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int poll() {
+        // 当前 消费索引
+        final long consumerIndex = this.lpConsumerIndex();
+        final long offset = calcCircularIntElementOffset(consumerIndex, mask);
+        // local load of field to avoid repeated loads after volatile reads
+        final int[] buffer = this.buffer;
+        final int e = lvIntElement(buffer, offset);
+        if (emptyValue == e) {
+            return emptyValue;
+        }
+        soIntElement(buffer, offset, emptyValue);
+        soConsumerIndex(consumerIndex + 1); // ordered store -> atomic and ordered for size()
+        return e;
+    }
+
+    @Override
+    public int peek() {
+        return lvIntElement(buffer, calcCircularIntElementOffset(lpConsumerIndex(), mask));
+    }
+
+    // 单生产者 与 offer 相同，见 MessagePassingQueue#relaxedOffer
+    @Override
+    public boolean relaxedOffer(final int e) {
+        return offer(e);
+    }
+
+    @Override
+    public int relaxedPoll() {
+        return poll();
+    }
+
+    @Override
+    public int relaxedPeek() {
+        return peek();
+    }
+
+    @Override
+    public int drain(final IntConsumer c) {
+        return drain(c, capacity());
+    }
+
+    @Override
+    public int drain(final IntConsumer c, final int limit) {
+        if (null == c)
+            throw new IllegalArgumentException("c is null");
+        if (limit < 0)
+            throw new IllegalArgumentException("limit is negative: " + limit);
+        if (limit == 0)
+            return 0;
+
+        final int emptyValue = this.emptyValue;
+        final int[] buffer = this.buffer;
+        final long mask = this.mask;
+        final long consumerIndex = this.lpConsumerIndex();
+
+        for (int i = 0; i < limit; i++) {
+            final long index = consumerIndex + i;
+            final long offset = calcCircularIntElementOffset(index, mask);
+            final int e = lvIntElement(buffer, offset);
+            if (emptyValue == e) {
+                return i;
+            }
+            soIntElement(buffer, offset, emptyValue);
+            soConsumerIndex(index + 1); // ordered store -> atomic and ordered for size()
+            c.accept(e);
+        }
+        return limit;
+    }
+}
+
+abstract class SpscIntArrayQueueColdField extends ConcurrentCircularIntArrayQueue {
+    // 向前查看步长
+    final int lookAheadStep;
+
+    SpscIntArrayQueueColdField(int capacity, int emptyValue) {
+        super(capacity, emptyValue);
+        lookAheadStep = Math.min(capacity() / 4, SpscArrayQueue.MAX_LOOK_AHEAD_STEP);
+    }
+}
+
+abstract class SpscIntArrayQueueL1Pad extends SpscIntArrayQueueColdField {
+    byte b000, b001, b002, b003, b004, b005, b006, b007;//  8b
+    byte b010, b011, b012, b013, b014, b015, b016, b017;// 16b
+    byte b020, b021, b022, b023, b024, b025, b026, b027;// 24b
+    byte b030, b031, b032, b033, b034, b035, b036, b037;// 32b
+    byte b040, b041, b042, b043, b044, b045, b046, b047;// 40b
+    byte b050, b051, b052, b053, b054, b055, b056, b057;// 48b
+    byte b060, b061, b062, b063, b064, b065, b066, b067;// 56b
+    byte b070, b071, b072, b073, b074, b075, b076, b077;// 64b
+    byte b100, b101, b102, b103, b104, b105, b106, b107;// 72b
+    byte b110, b111, b112, b113, b114, b115, b116, b117;// 80b
+    byte b120, b121, b122, b123, b124, b125, b126, b127;// 88b
+    byte b130, b131, b132, b133, b134, b135, b136, b137;// 96b
+    byte b140, b141, b142, b143, b144, b145, b146, b147;//104b
+    byte b150, b151, b152, b153, b154, b155, b156, b157;//112b
+    byte b160, b161, b162, b163, b164, b165, b166, b167;//120b
+    byte b170, b171, b172, b173, b174, b175, b176, b177;//128b
+
+    SpscIntArrayQueueL1Pad(int capacity, int emptyValue) {
+        super(capacity, emptyValue);
+    }
+}
+
+// 生产者索引
+abstract class SpscIntArrayQueueProducerIndexFields extends SpscIntArrayQueueL1Pad {
+    private final static long P_INDEX_OFFSET = fieldOffset(SpscIntArrayQueueProducerIndexFields.class, "producerIndex");
+
+    private volatile long producerIndex;
+    protected long producerLimit;
+
+    SpscIntArrayQueueProducerIndexFields(int capacity, int emptyValue) {
+        super(capacity, emptyValue);
+    }
+
+    @Override
+    public final long lvProducerIndex() {
+        return producerIndex;
+    }
+
+    final long lpProducerIndex() {
+        return UNSAFE.getLong(this, P_INDEX_OFFSET);
+    }
+
+    final void soProducerIndex(final long newValue) {
+        UNSAFE.putOrderedLong(this, P_INDEX_OFFSET, newValue);
+    }
+
+}
+
+abstract class SpscIntArrayQueueL2Pad extends SpscIntArrayQueueProducerIndexFields {
+    byte b000, b001, b002, b003, b004, b005, b006, b007;//  8b
+    byte b010, b011, b012, b013, b014, b015, b016, b017;// 16b
+    byte b020, b021, b022, b023, b024, b025, b026, b027;// 24b
+    byte b030, b031, b032, b033, b034, b035, b036, b037;// 32b
+    byte b040, b041, b042, b043, b044, b045, b046, b047;// 40b
+    byte b050, b051, b052, b053, b054, b055, b056, b057;// 48b
+    byte b060, b061, b062, b063, b064, b065, b066, b067;// 56b
+    byte b070, b071, b072, b073, b074, b075, b076, b077;// 64b
+    byte b100, b101, b102, b103, b104, b105, b106, b107;// 72b
+    byte b110, b111, b112, b113, b114, b115, b116, b117;// 80b
+    byte b120, b121, b122, b123, b124, b125, b126, b127;// 88b
+    byte b130, b131, b132, b133, b134, b135, b136, b137;// 96b
+    byte b140, b141, b142, b143, b144, b145, b146, b147;//104b
+    byte b150, b151, b152, b153, b154, b155, b156, b157;//112b
+    byte b160, b161, b162, b163, b164, b165, b166, b167;//120b
+    byte b170, b171, b172, b173, b174, b175, b176, b177;//128b
+
+    SpscIntArrayQueueL2Pad(int capacity, int emptyValue) {
+        super(capacity, emptyValue);
+    }
+}
+
+// 消费者索引
+abstract class SpscIntArrayQueueConsumerIndexField extends SpscIntArrayQueueL2Pad {
+    private final static long C_INDEX_OFFSET = fieldOffset(SpscIntArrayQueueConsumerIndexField.class, "consumerIndex");
+
+    private volatile long consumerIndex;
+
+    SpscIntArrayQueueConsumerIndexField(int capacity, int emptyValue) {
+        super(capacity, emptyValue);
+    }
+
+    @Override
+    public final long lvConsumerIndex() {
+        return UNSAFE.getLongVolatile(this, C_INDEX_OFFSET);
+    }
+
+    final long lpConsumerIndex() {
+        return UNSAFE.getLong(this, C_INDEX_OFFSET);
+    }
+
+    final void soConsumerIndex(final long newValue) {
+        UNSAFE.putOrderedLong(this, C_INDEX_OFFSET, newValue);
+    }
+}
+
+abstract class SpscIntArrayQueueL3Pad extends SpscIntArrayQueueConsumerIndexField {
+    byte b000, b001, b002, b003, b004, b005, b006, b007;//  8b
+    byte b010, b011, b012, b013, b014, b015, b016, b017;// 16b
+    byte b020, b021, b022, b023, b024, b025, b026, b027;// 24b
+    byte b030, b031, b032, b033, b034, b035, b036, b037;// 32b
+    byte b040, b041, b042, b043, b044, b045, b046, b047;// 40b
+    byte b050, b051, b052, b053, b054, b055, b056, b057;// 48b
+    byte b060, b061, b062, b063, b064, b065, b066, b067;// 56b
+    byte b070, b071, b072, b073, b074, b075, b076, b077;// 64b
+    byte b100, b101, b102, b103, b104, b105, b106, b107;// 72b
+    byte b110, b111, b112, b113, b114, b115, b116, b117;// 80b
+    byte b120, b121, b122, b123, b124, b125, b126, b127;// 88b
+    byte b130, b131, b132, b133, b134, b135, b136, b137;// 96b
+    byte b140, b141, b142, b143, b144, b145, b146, b147;//104b
+    byte b150, b151, b152, b153, b154, b155, b156, b157;//112b
+    byte b160, b161, b162, b163, b164, b165, b166, b167;//120b
+    byte b170, b171, b172, b173, b174, b175, b176, b177;//128b
+
+    SpscIntArrayQueueL3Pad(int capacity, int emptyValue) {
+        super(capacity, emptyValue);
+    }
+}
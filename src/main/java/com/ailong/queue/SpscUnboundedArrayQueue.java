@@ -1,9 +1,66 @@
 package com.ailong.queue;
 
+import com.ailong.queue.util.Pow2;
+
+import static com.ailong.queue.util.UnsafeRefArrayAccess.allocateRefArray;
+import static com.ailong.queue.util.UnsafeRefArrayAccess.calcCircularRefElementOffset;
+import static com.ailong.queue.util.UnsafeRefArrayAccess.lvRefElement;
+
 /**
  * 无锁 无界队列
  * 单生产者---单消费者
+ * <p>
+ * 由固定大小(2的N次方)的数组块链接而成，只有当前块写满时才分配新块
+ * </p>
  * Created by jiangfei on 2020/5/6.
  */
-public class SpscUnboundedArrayQueue<E> {
+public class SpscUnboundedArrayQueue<E> extends BaseSpscLinkedArrayQueue<E> {
+
+    public SpscUnboundedArrayQueue(final int chunkSize) {
+        int chunkCapacity = Math.max(Pow2.roundToPowerOfTwo(chunkSize), 16);
+        long mask = chunkCapacity - 1;
+        // 多一个位置 存放下一个块
+        E[] buffer = allocateRefArray(chunkCapacity + 1);
+        producerBuffer = buffer;
+        producerMask = mask;
+        consumerBuffer = buffer;
+        consumerMask = mask;
+        producerBufferLimit = mask - 1; // we know it's all empty to start with
+    }
+
+    @Override
+    final boolean offerColdPath(final E[] buffer, final long mask, final long pIndex, final long offset,
+                                final E v, final Supplier<? extends E> s) {
+        // use a fixed lookahead step based on buffer capacity
+        final long lookAheadStep = (mask + 1) / 4;
+        long pBufferLimit = pIndex + lookAheadStep;
+
+        if (null == lvRefElement(buffer, calcCircularRefElementOffset(pBufferLimit, mask))) {
+            // 向前步长位置为空，扩大 limit
+            producerBufferLimit = pBufferLimit - 1; // joy, there's plenty of room
+            writeToQueue(buffer, v == null ? s.get() : v, pIndex, offset);
+        } else if (null == lvRefElement(buffer, calcCircularRefElementOffset(pIndex + 1, mask))) {
+            // buffer is not full
+            writeToQueue(buffer, v == null ? s.get() : v, pIndex, offset);
+        } else {
+            // 只剩当前一个位置，留给 JUMP，元素写入新块
+            // we got one slot left to write into, and we are not full. Need to link new buffer.
+            // allocate new buffer of same length
+            final E[] newBuffer = allocateRefArray((int) (mask + 2));
+            producerBuffer = newBuffer;
+            producerBufferLimit = pIndex + mask - 1;
+            linkOldToNew(pIndex, buffer, offset, newBuffer, offset, v == null ? s.get() : v);
+        }
+        return true;
+    }
+
+    @Override
+    public int fill(final Supplier<E> s) {
+        return MessagePassingQueueUtil.fillUnbounded(this, s);
+    }
+
+    @Override
+    public int capacity() {
+        return UNBOUNDED_CAPACITY;
+    }
 }
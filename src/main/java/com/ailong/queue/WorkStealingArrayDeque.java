@@ -0,0 +1,285 @@
+package com.ailong.queue;
+
+import com.ailong.queue.util.Pow2;
+import com.ailong.queue.util.RangeUtil;
+
+import static com.ailong.queue.util.UnsafeAccess.UNSAFE;
+import static com.ailong.queue.util.UnsafeAccess.fieldOffset;
+import static com.ailong.queue.util.UnsafeRefArrayAccess.allocateRefArray;
+import static com.ailong.queue.util.UnsafeRefArrayAccess.calcCircularRefElementOffset;
+import static com.ailong.queue.util.UnsafeRefArrayAccess.lpRefElement;
+import static com.ailong.queue.util.UnsafeRefArrayAccess.lvRefElement;
+import static com.ailong.queue.util.UnsafeRefArrayAccess.soRefElement;
+
+/**
+ * 无锁 无界 工作窃取 双端队列（Chase-Lev）
+ * 一个所有者--多个窃取者
+ * <p>
+ * 所有者 在 bottom 端 push / pop（后进先出），不需要 cas，只有取最后一个元素时 与窃取者竞争；
+ * 窃取者 在 top 端 steal（先进先出），cas top。
+ * 数组满时 所有者 复制到两倍大小的新数组，旧数组 不再写入，正在读旧数组的窃取者 依然能读到正确的元素
+ * </p>
+ *
+ * @param <E>
+ */
+public class WorkStealingArrayDeque<E> extends WorkStealingArrayDequeL3Pad<E> {
+
+    public WorkStealingArrayDeque(final int initialCapacity) {
+        super(Pow2.roundToPowerOfTwo(RangeUtil.checkGreaterThanOrEqual(initialCapacity, 2, "initialCapacity")));
+    }
+
+    /**
+     * 添加到 bottom 端，只能由所有者调用
+     *
+     * @param e
+     */
+    public void push(final E e) {
+        if (null == e) {
+            throw new NullPointerException();
+        }
+        final long b = lpBottom();
+        final long t = lvTop();
+        E[] buffer = lpBuffer();
+        if (b - t >= buffer.length) {
+            buffer = grow(buffer, b, t);
+        }
+        soRefElement(buffer, calcCircularRefElementOffset(b, buffer.length - 1), e);
+        soBottom(b + 1); // ordered store -> 元素 先于 bottom 可见
+    }
+
+    /**
+     * 从 bottom 端取出 最后添加的元素，只能由所有者调用
+     *
+     * @return 为空 返回 null
+     */
+    public E pop() {
+        final long b = lpBottom() - 1;
+        final E[] buffer = lpBuffer();
+        // volatile store -> 先让窃取者看到新的 bottom，再读 top（StoreLoad）
+        svBottom(b);
+        final long t = lvTop();
+        if (t > b) {
+            // 空
+            soBottom(b + 1);
+            return null;
+        }
+
+        final long offset = calcCircularRefElementOffset(b, buffer.length - 1);
+        E e = lpRefElement(buffer, offset);
+        if (t == b) {
+            // 最后一个元素，与窃取者 cas top 竞争
+            if (casTop(t, t + 1)) {
+                soRefElement(buffer, offset, null);
+            } else {
+                e = null;
+            }
+            soBottom(b + 1);
+            return e;
+        }
+        // t < b，窃取者 只会取 b 之前的元素
+        soRefElement(buffer, offset, null);
+        return e;
+    }
+
+    /**
+     * 从 top 端 窃取 最早添加的元素，任何线程都可以调用
+     *
+     * @return 为空 或 与其他线程竞争失败 返回 null，调用者 可以重试
+     */
+    public E steal() {
+        final long t = lvTop();
+        // volatile load -> 先读 top 再读 bottom
+        final long b = lvBottom();
+        if (t >= b) {
+            return null;
+        }
+        final E[] buffer = lvBuffer();
+        final long offset = calcCircularRefElementOffset(t, buffer.length - 1);
+        final E e = lvRefElement(buffer, offset);
+        if (!casTop(t, t + 1)) {
+            return null;
+        }
+        // 不置空：cas top 之后 所有者 可能已经在这个位置 写入了下一圈的元素，
+        // 按引用 cas 置空 遇到 同一个对象 再次 push 时（ABA）会把它清掉。
+        // 被窃取的元素 留在数组中，直到 所有者 下一圈 覆盖，最多保留 capacity 个
+        return e;
+    }
+
+    /**
+     * 估算大小
+     *
+     * @return
+     */
+    public int size() {
+        final long size = lvBottom() - lvTop();
+        return (int) Math.max(0, Math.min(size, Integer.MAX_VALUE));
+    }
+
+    public boolean isEmpty() {
+        return lvBottom() <= lvTop();
+    }
+
+    /**
+     * 当前数组 大小
+     *
+     * @return
+     */
+    public int capacity() {
+        return lvBuffer().length;
+    }
+
+    private E[] grow(final E[] buffer, final long b, final long t) {
+        final int capacity = buffer.length;
+        if (capacity == Pow2.MAX_POW2) {
+            throw new IllegalStateException("deque is too large: " + capacity);
+        }
+        final E[] newBuffer = allocateRefArray(capacity << 1);
+        final long oldMask = capacity - 1;
+        final long newMask = newBuffer.length - 1;
+        for (long i = t; i < b; i++) {
+            newBuffer[(int) (i & newMask)] = lpRefElement(buffer, calcCircularRefElementOffset(i, oldMask));
+        }
+        // ordered store -> 复制 先于 新数组 可见
+        soBuffer(newBuffer);
+        return newBuffer;
+    }
+}
+
+// 所有者写 窃取者读：数组
+abstract class WorkStealingArrayDequeBufferField<E> {
+    private final static long BUFFER_OFFSET = fieldOffset(WorkStealingArrayDequeBufferField.class, "buffer");
+
+    private volatile E[] buffer;
+
+    WorkStealingArrayDequeBufferField(int capacity) {
+        this.buffer = allocateRefArray(capacity);
+    }
+
+    final E[] lvBuffer() {
+        return buffer;
+    }
+
+    @SuppressWarnings("unchecked")
+    final E[] lpBuffer() {
+        return (E[]) UNSAFE.getObject(this, BUFFER_OFFSET);
+    }
+
+    final void soBuffer(E[] newValue) {
+        UNSAFE.putOrderedObject(this, BUFFER_OFFSET, newValue);
+    }
+}
+
+abstract class WorkStealingArrayDequeL1Pad<E> extends WorkStealingArrayDequeBufferField<E> {
+    byte b000, b001, b002, b003, b004, b005, b006, b007;//  8b
+    byte b010, b011, b012, b013, b014, b015, b016, b017;// 16b
+    byte b020, b021, b022, b023, b024, b025, b026, b027;// 24b
+    byte b030, b031, b032, b033, b034, b035, b036, b037;// 32b
+    byte b040, b041, b042, b043, b044, b045, b046, b047;// 40b
+    byte b050, b051, b052, b053, b054, b055, b056, b057;// 48b
+    byte b060, b061, b062, b063, b064, b065, b066, b067;// 56b
+    byte b070, b071, b072, b073, b074, b075, b076, b077;// 64b
+    byte b100, b101, b102, b103, b104, b105, b106, b107;// 72b
+    byte b110, b111, b112, b113, b114, b115, b116, b117;// 80b
+    byte b120, b121, b122, b123, b124, b125, b126, b127;// 88b
+    byte b130, b131, b132, b133, b134, b135, b136, b137;// 96b
+    byte b140, b141, b142, b143, b144, b145, b146, b147;//104b
+    byte b150, b151, b152, b153, b154, b155, b156, b157;//112b
+    byte b160, b161, b162, b163, b164, b165, b166, b167;//120b
+    byte b170, b171, b172, b173, b174, b175, b176, b177;//128b
+
+    WorkStealingArrayDequeL1Pad(int capacity) {
+        super(capacity);
+    }
+}
+
+// 所有者 端 索引
+abstract class WorkStealingArrayDequeBottomField<E> extends WorkStealingArrayDequeL1Pad<E> {
+    private final static long BOTTOM_OFFSET = fieldOffset(WorkStealingArrayDequeBottomField.class, "bottom");
+
+    private volatile long bottom;
+
+    WorkStealingArrayDequeBottomField(int capacity) {
+        super(capacity);
+    }
+
+    final long lvBottom() {
+        return bottom;
+    }
+
+    final long lpBottom() {
+        return UNSAFE.getLong(this, BOTTOM_OFFSET);
+    }
+
+    final void soBottom(long newValue) {
+        UNSAFE.putOrderedLong(this, BOTTOM_OFFSET, newValue);
+    }
+
+    final void svBottom(long newValue) {
+        bottom = newValue;
+    }
+}
+
+abstract class WorkStealingArrayDequeL2Pad<E> extends WorkStealingArrayDequeBottomField<E> {
+    byte b000, b001, b002, b003, b004, b005, b006, b007;//  8b
+    byte b010, b011, b012, b013, b014, b015, b016, b017;// 16b
+    byte b020, b021, b022, b023, b024, b025, b026, b027;// 24b
+    byte b030, b031, b032, b033, b034, b035, b036, b037;// 32b
+    byte b040, b041, b042, b043, b044, b045, b046, b047;// 40b
+    byte b050, b051, b052, b053, b054, b055, b056, b057;// 48b
+    byte b060, b061, b062, b063, b064, b065, b066, b067;// 56b
+    byte b070, b071, b072, b073, b074, b075, b076, b077;// 64b
+    byte b100, b101, b102, b103, b104, b105, b106, b107;// 72b
+    byte b110, b111, b112, b113, b114, b115, b116, b117;// 80b
+    byte b120, b121, b122, b123, b124, b125, b126, b127;// 88b
+    byte b130, b131, b132, b133, b134, b135, b136, b137;// 96b
+    byte b140, b141, b142, b143, b144, b145, b146, b147;//104b
+    byte b150, b151, b152, b153, b154, b155, b156, b157;//112b
+    byte b160, b161, b162, b163, b164, b165, b166, b167;//120b
+    byte b170, b171, b172, b173, b174, b175, b176, b177;//128b
+
+    WorkStealingArrayDequeL2Pad(int capacity) {
+        super(capacity);
+    }
+}
+
+// 窃取者 端 索引
+abstract class WorkStealingArrayDequeTopField<E> extends WorkStealingArrayDequeL2Pad<E> {
+    private final static long TOP_OFFSET = fieldOffset(WorkStealingArrayDequeTopField.class, "top");
+
+    private volatile long top;
+
+    WorkStealingArrayDequeTopField(int capacity) {
+        super(capacity);
+    }
+
+    final long lvTop() {
+        return top;
+    }
+
+    final boolean casTop(long expect, long newValue) {
+        return UNSAFE.compareAndSwapLong(this, TOP_OFFSET, expect, newValue);
+    }
+}
+
+abstract class WorkStealingArrayDequeL3Pad<E> extends WorkStealingArrayDequeTopField<E> {
+    byte b000, b001, b002, b003, b004, b005, b006, b007;//  8b
+    byte b010, b011, b012, b013, b014, b015, b016, b017;// 16b
+    byte b020, b021, b022, b023, b024, b025, b026, b027;// 24b
+    byte b030, b031, b032, b033, b034, b035, b036, b037;// 32b
+    byte b040, b041, b042, b043, b044, b045, b046, b047;// 40b
+    byte b050, b051, b052, b053, b054, b055, b056, b057;// 48b
+    byte b060, b061, b062, b063, b064, b065, b066, b067;// 56b
+    byte b070, b071, b072, b073, b074, b075, b076, b077;// 64b
+    byte b100, b101, b102, b103, b104, b105, b106, b107;// 72b
+    byte b110, b111, b112, b113, b114, b115, b116, b117;// 80b
+    byte b120, b121, b122, b123, b124, b125, b126, b127;// 88b
+    byte b130, b131, b132, b133, b134, b135, b136, b137;// 96b
+    byte b140, b141, b142, b143, b144, b145, b146, b147;//104b
+    byte b150, b151, b152, b153, b154, b155, b156, b157;//112b
+    byte b160, b161, b162, b163, b164, b165, b166, b167;//120b
+    byte b170, b171, b172, b173, b174, b175, b176, b177;//128b
+
+    WorkStealingArrayDequeL3Pad(int capacity) {
+        super(capacity);
+    }
+}
@@ -0,0 +1,304 @@
+package com.ailong.queue.executor;
+
+import com.ailong.queue.MessagePassingQueue;
+import com.ailong.queue.MessagePassingQueueUtil;
+import com.ailong.queue.MpscArrayQueue;
+import com.ailong.queue.util.RangeUtil;
+import com.ailong.queue.wait.BackoffWaitStrategy;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RunnableFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import static com.ailong.queue.util.UnsafeAccess.UNSAFE;
+import static com.ailong.queue.util.UnsafeAccess.fieldOffset;
+
+/**
+ * 单线程 事件循环 执行器
+ * <p>
+ * 任务 通过 MpscArrayQueue 提交，提交线程之间 只竞争 生产者索引的 cas，没有锁；
+ * 事件循环线程 每次 drain 最多 batchSize 个任务，没有任务时 按 WaitStrategy 等待，
+ * WaitStrategy park 时 提交线程 unpark 唤醒它。
+ * 所有任务 在同一个线程中 按提交顺序 串行执行，可以替代 Executors.newSingleThreadExecutor
+ * </p>
+ * <p>
+ * 队列满 抛出 RejectedExecutionException。
+ * shutdown 之后 不再接受任务，已提交的任务 执行完 之后终止；
+ * execute 检查状态 和 入队 期间 计入 submitters，事件循环 终止前 等待 submitters 归零 再最后取一次队列，
+ * 所以 execute 正常返回的任务 一定会执行（或 由 shutdownNow 返回），不会 留在队列中 永远不执行。
+ * shutdownNow 之后 不再执行 队列中的任务：只有事件循环线程 可以从 MPSC 队列 取出任务，
+ * 事件循环 终止时 把它们 移到 unexecutedTasks，其他线程 调用 shutdownNow 等待终止（当前任务 执行完）后 取走返回；
+ * 事件循环线程 在任务中 调用 时 直接取出队列。返回的任务中 Future 会被取消
+ * </p>
+ * <p>
+ * 任务抛出的异常 交给 事件循环线程的 UncaughtExceptionHandler，事件循环 继续运行
+ * </p>
+ */
+public class EventLoopExecutor extends AbstractExecutorService {
+    private final static long STATE_OFFSET = fieldOffset(EventLoopExecutor.class, "state");
+    private final static long STARTED_OFFSET = fieldOffset(EventLoopExecutor.class, "started");
+    private final static long SUBMITTERS_OFFSET = fieldOffset(EventLoopExecutor.class, "submitters");
+
+    private static final int ST_RUNNING = 0;
+    private static final int ST_SHUTTING_DOWN = 1;
+    private static final int ST_STOP = 2;
+    private static final int ST_TERMINATED = 3;
+
+    static final int DEFAULT_BATCH_SIZE = 64;
+
+    private final MpscArrayQueue<Runnable> taskQueue;
+    private final MessagePassingQueue.WaitStrategy waitStrategy;
+    private final int batchSize;
+    private final Thread thread;
+    private final CountDownLatch terminationLatch = new CountDownLatch(1);
+    // shutdownNow 后 终止时 队列中 没有执行的任务，由 shutdownNow 取走
+    private final Queue<Runnable> unexecutedTasks = new ConcurrentLinkedQueue<>();
+    private final MessagePassingQueue.Consumer<Runnable> runner = this::runTask;
+
+    private volatile int state;
+    private volatile int started;
+    // 正在 execute 中 检查状态/入队 的线程数
+    private volatile int submitters;
+    // 事件循环线程 是否 正在 WaitStrategy 中等待
+    private volatile boolean sleeping;
+
+    public EventLoopExecutor(int capacity) {
+        this(Executors.defaultThreadFactory(), capacity, DEFAULT_BATCH_SIZE, new BackoffWaitStrategy());
+    }
+
+    /**
+     * @param threadFactory 创建 事件循环线程
+     * @param capacity      任务队列 容量
+     * @param batchSize     每次 drain 最多执行的任务数
+     * @param waitStrategy  没有任务时的 等待策略
+     */
+    public EventLoopExecutor(ThreadFactory threadFactory, int capacity, int batchSize,
+                             MessagePassingQueue.WaitStrategy waitStrategy) {
+        if (null == threadFactory)
+            throw new NullPointerException("threadFactory");
+        if (null == waitStrategy)
+            throw new NullPointerException("waitStrategy");
+        this.batchSize = RangeUtil.checkGreaterThanOrEqual(batchSize, 1, "batchSize");
+        this.taskQueue = new MpscArrayQueue<>(capacity);
+        this.waitStrategy = waitStrategy;
+        this.thread = threadFactory.newThread(this::runLoop);
+        if (null == thread)
+            throw new IllegalStateException("threadFactory returned null");
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        if (null == task)
+            throw new NullPointerException();
+        // getAndAdd 是全屏障，先登记 再读状态，与 事件循环 先写 ST_TERMINATED 再读 submitters 配对
+        UNSAFE.getAndAddInt(this, SUBMITTERS_OFFSET, 1);
+        try {
+            if (state != ST_RUNNING)
+                throw new RejectedExecutionException("executor has been shut down");
+            if (!taskQueue.offer(task))
+                throw new RejectedExecutionException("task queue is full, capacity: " + taskQueue.capacity());
+        } finally {
+            UNSAFE.getAndAddInt(this, SUBMITTERS_OFFSET, -1);
+        }
+        startThread();
+        // offer 的 cas 是全屏障，与 事件循环 先写 sleeping 再检查队列 配对
+        if (sleeping) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    /**
+     * 当前线程 是否是 事件循环线程
+     *
+     * @return
+     */
+    public boolean inEventLoop() {
+        return Thread.currentThread() == thread;
+    }
+
+    /**
+     * 未执行的任务数 估算
+     *
+     * @return
+     */
+    public int pendingTasks() {
+        return taskQueue.size();
+    }
+
+    @Override
+    public void shutdown() {
+        advanceState(ST_SHUTTING_DOWN);
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        advanceState(ST_STOP);
+        final List<Runnable> tasks = new ArrayList<>();
+        if (inEventLoop()) {
+            // 不能 等待自己终止，直接取出队列，之后 并发提交的 留给 终止流程
+            Runnable task;
+            while (null != (task = taskQueue.poll())) {
+                cancel(task);
+                tasks.add(task);
+            }
+        } else {
+            awaitTerminationUninterruptibly();
+        }
+        Runnable task;
+        while (null != (task = unexecutedTasks.poll())) {
+            tasks.add(task);
+        }
+        return tasks;
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return state != ST_RUNNING;
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return terminationLatch.getCount() == 0;
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        if (inEventLoop())
+            throw new IllegalStateException("cannot await termination of the current thread");
+        return terminationLatch.await(timeout, unit);
+    }
+
+    @Override
+    protected <T> RunnableFuture<T> newTaskFor(Runnable runnable, T value) {
+        return new EventLoopFuture<>(runnable, value);
+    }
+
+    @Override
+    protected <T> RunnableFuture<T> newTaskFor(Callable<T> callable) {
+        return new EventLoopFuture<>(callable);
+    }
+
+    private void awaitTerminationUninterruptibly() {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                terminationLatch.await();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void advanceState(final int target) {
+        int s;
+        while ((s = state) < target) {
+            if (UNSAFE.compareAndSwapInt(this, STATE_OFFSET, s, target)) {
+                break;
+            }
+        }
+        // 没有提交过任务的执行器 也要启动线程 走完终止流程
+        startThread();
+        LockSupport.unpark(thread);
+    }
+
+    private void startThread() {
+        if (started == 0 && UNSAFE.compareAndSwapInt(this, STARTED_OFFSET, 0, 1)) {
+            thread.start();
+        }
+    }
+
+    private void runLoop() {
+        final MpscArrayQueue<Runnable> taskQueue = this.taskQueue;
+        final MessagePassingQueue.WaitStrategy waitStrategy = this.waitStrategy;
+        final int batchSize = this.batchSize;
+        int idleCounter = 0;
+        try {
+            while (true) {
+                final int s = state;
+                if (s >= ST_STOP) {
+                    break;
+                }
+                // 逐个 poll，任务中 shutdownNow 直接取队列 不会与 drain 缓存的消费者索引 冲突
+                if (MessagePassingQueueUtil.drain(taskQueue, runner, batchSize) > 0) {
+                    idleCounter = 0;
+                    continue;
+                }
+                if (s == ST_SHUTTING_DOWN) {
+                    if (taskQueue.isEmpty()) {
+                        break;
+                    }
+                    // 生产者 已占位 还未写入任务
+                    continue;
+                }
+                // volatile store -> 先发布 sleeping 再检查队列，与 execute 配对 不会丢失唤醒
+                sleeping = true;
+                if (taskQueue.isEmpty() && state == ST_RUNNING) {
+                    idleCounter = waitStrategy.idle(idleCounter);
+                }
+                sleeping = false;
+            }
+        } finally {
+            final boolean stop = state >= ST_STOP;
+            // volatile store，之后 开始 execute 的线程 都会被拒绝
+            state = ST_TERMINATED;
+            // 等待 已经通过状态检查的 execute 入队完成
+            while (submitters != 0) {
+                Thread.yield();
+            }
+            // 终止前 并发提交的任务
+            while (!taskQueue.isEmpty()) {
+                final Runnable task = taskQueue.poll();
+                if (null == task) {
+                    continue;
+                }
+                if (stop) {
+                    cancel(task);
+                    unexecutedTasks.offer(task);
+                } else {
+                    safeRun(task);
+                }
+            }
+            terminationLatch.countDown();
+        }
+    }
+
+    private void runTask(final Runnable task) {
+        // 同一批中 shutdownNow 之后的任务 不再执行
+        if (state >= ST_STOP) {
+            cancel(task);
+            unexecutedTasks.offer(task);
+            return;
+        }
+        safeRun(task);
+    }
+
+    private static void cancel(final Runnable task) {
+        if (task instanceof Future) {
+            ((Future<?>) task).cancel(false);
+        }
+    }
+
+    private void safeRun(final Runnable task) {
+        try {
+            task.run();
+        } catch (Throwable ex) {
+            final Thread t = Thread.currentThread();
+            t.getUncaughtExceptionHandler().uncaughtException(t, ex);
+        }
+    }
+}
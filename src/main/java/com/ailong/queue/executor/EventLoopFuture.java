@@ -0,0 +1,234 @@
+package com.ailong.queue.executor;
+
+import com.ailong.queue.util.ThreadHints;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RunnableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.LockSupport;
+
+import static com.ailong.queue.util.UnsafeAccess.UNSAFE;
+import static com.ailong.queue.util.UnsafeAccess.fieldOffset;
+
+/**
+ * EventLoopExecutor 的任务
+ * <p>
+ * 只会由事件循环线程 run，不需要 FutureTask 那样 先 cas runner 抢执行权；
+ * 结果 先写入 outcome，再用一次 cas 从 NEW 直接改为 NORMAL / EXCEPTIONAL 发布，没有 COMPLETING 中间状态；
+ * 等待者 先自旋 再入栈 park，完成时 一次取走整个等待栈 逐个唤醒
+ * </p>
+ * <p>
+ * cancel(true) 不会中断 事件循环线程，和 cancel(false) 相同
+ * </p>
+ *
+ * @param <V>
+ */
+public class EventLoopFuture<V> implements RunnableFuture<V> {
+    private final static long STATE_OFFSET = fieldOffset(EventLoopFuture.class, "state");
+    private final static long WAITERS_OFFSET = fieldOffset(EventLoopFuture.class, "waiters");
+
+    private static final int NEW = 0;
+    private static final int NORMAL = 1;
+    private static final int EXCEPTIONAL = 2;
+    private static final int CANCELLED = 3;
+
+    // get 在 park 之前 自旋次数
+    static final int SPIN_TRIES = 128;
+
+    private Callable<V> callable;
+    // 结果 或 异常，由 state 的 cas 发布
+    private Object outcome;
+    private volatile int state;
+    // 等待线程 栈
+    private volatile WaitNode waiters;
+
+    public EventLoopFuture(Callable<V> callable) {
+        if (null == callable)
+            throw new NullPointerException();
+        this.callable = callable;
+    }
+
+    public EventLoopFuture(Runnable runnable, V result) {
+        this(Executors.callable(runnable, result));
+    }
+
+    @Override
+    public void run() {
+        final Callable<V> c = callable;
+        if (state != NEW || null == c) {
+            return;
+        }
+        try {
+            outcome = c.call();
+            complete(NORMAL);
+        } catch (Throwable ex) {
+            outcome = ex;
+            complete(EXCEPTIONAL);
+        }
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        if (!casState(NEW, CANCELLED)) {
+            return false;
+        }
+        finishCompletion();
+        return true;
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return state == CANCELLED;
+    }
+
+    @Override
+    public boolean isDone() {
+        return state != NEW;
+    }
+
+    @Override
+    public V get() throws InterruptedException, ExecutionException {
+        int s = state;
+        if (s == NEW) {
+            s = awaitDone(false, 0L);
+        }
+        return report(s);
+    }
+
+    @Override
+    public V get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+        if (null == unit)
+            throw new NullPointerException();
+        int s = state;
+        if (s == NEW && (s = awaitDone(true, unit.toNanos(timeout))) == NEW) {
+            throw new TimeoutException();
+        }
+        return report(s);
+    }
+
+    @Override
+    public String toString() {
+        final String status;
+        switch (state) {
+            case NORMAL:
+                status = "[Completed normally]";
+                break;
+            case EXCEPTIONAL:
+                status = "[Completed exceptionally: " + outcome + "]";
+                break;
+            case CANCELLED:
+                status = "[Cancelled]";
+                break;
+            default:
+                final Callable<?> c = callable;
+                status = null == c ? "[Incomplete]" : "[Not completed, task = " + c + "]";
+        }
+        return super.toString() + status;
+    }
+
+    private void complete(final int s) {
+        // 已经被 cancel，丢弃结果
+        if (casState(NEW, s)) {
+            finishCompletion();
+        }
+    }
+
+    private void finishCompletion() {
+        callable = null;
+        WaitNode q;
+        while (null != (q = waiters)) {
+            if (casWaiters(q, null)) {
+                for (; null != q; q = q.next) {
+                    final Thread t = q.thread;
+                    if (null != t) {
+                        q.thread = null;
+                        LockSupport.unpark(t);
+                    }
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * 超时 或 中断的等待者 只清空 thread，节点 留在栈中 直到完成时 一起丢弃
+     *
+     * @return 超时 返回 NEW
+     */
+    private int awaitDone(final boolean timed, long nanos) throws InterruptedException {
+        int s;
+        for (int i = 0; i < SPIN_TRIES; i++) {
+            if ((s = state) != NEW) {
+                return s;
+            }
+            ThreadHints.onSpinWait();
+        }
+
+        final long deadline = timed ? System.nanoTime() + nanos : 0L;
+        WaitNode q = null;
+        try {
+            while (true) {
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+                if ((s = state) != NEW) {
+                    return s;
+                }
+                if (null == q) {
+                    q = new WaitNode(Thread.currentThread());
+                    // 入栈后 回到循环开头 再检查一次 state
+                    do {
+                        q.next = waiters;
+                    } while (!casWaiters(q.next, q));
+                    continue;
+                }
+                if (timed) {
+                    nanos = deadline - System.nanoTime();
+                    if (nanos <= 0L) {
+                        return state;
+                    }
+                    LockSupport.parkNanos(this, nanos);
+                } else {
+                    LockSupport.park(this);
+                }
+            }
+        } finally {
+            if (null != q) {
+                q.thread = null;
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private V report(final int s) throws ExecutionException {
+        if (s == NORMAL) {
+            return (V) outcome;
+        }
+        if (s == CANCELLED) {
+            throw new CancellationException();
+        }
+        throw new ExecutionException((Throwable) outcome);
+    }
+
+    private boolean casState(int expect, int newValue) {
+        return UNSAFE.compareAndSwapInt(this, STATE_OFFSET, expect, newValue);
+    }
+
+    private boolean casWaiters(WaitNode expect, WaitNode newValue) {
+        return UNSAFE.compareAndSwapObject(this, WAITERS_OFFSET, expect, newValue);
+    }
+
+    // 等待线程
+    static final class WaitNode {
+        volatile Thread thread;
+        WaitNode next;
+
+        WaitNode(Thread thread) {
+            this.thread = thread;
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.ailong.queue.metrics;
+
+/**
+ * 一个时间窗口内 队列深度 统计，不可变
+ */
+public final class DepthStats {
+    private final long windowStartMillis;
+    private final long windowEndMillis;
+    private final int samples;
+    private final int min;
+    private final int max;
+    private final double mean;
+
+    DepthStats(long windowStartMillis, long windowEndMillis, int samples, int min, int max, double mean) {
+        this.windowStartMillis = windowStartMillis;
+        this.windowEndMillis = windowEndMillis;
+        this.samples = samples;
+        this.min = min;
+        this.max = max;
+        this.mean = mean;
+    }
+
+    public long windowStartMillis() {
+        return windowStartMillis;
+    }
+
+    public long windowEndMillis() {
+        return windowEndMillis;
+    }
+
+    /**
+     * 采样次数
+     *
+     * @return
+     */
+    public int samples() {
+        return samples;
+    }
+
+    public int min() {
+        return min;
+    }
+
+    public int max() {
+        return max;
+    }
+
+    public double mean() {
+        return mean;
+    }
+
+    @Override
+    public String toString() {
+        return "DepthStats{samples=" + samples + ", min=" + min + ", max=" + max + ", mean=" + mean
+                + ", window=[" + windowStartMillis + ", " + windowEndMillis + "]}";
+    }
+}
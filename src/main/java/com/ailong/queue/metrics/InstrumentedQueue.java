@@ -0,0 +1,211 @@
+package com.ailong.queue.metrics;
+
+import com.ailong.queue.MessagePassingQueue;
+import com.ailong.queue.MessagePassingQueueUtil;
+import com.ailong.queue.util.RangeUtil;
+
+import java.util.AbstractQueue;
+import java.util.Iterator;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 统计 装饰器
+ * 包装任意 MessagePassingQueue，记录 添加/取出 次数、满/空 失败次数、最大深度
+ * <p>
+ * 成功添加后 按 depthSampleRate 分之一 的概率 读一次 size() 更新最大深度，
+ * size() 要读 消费者索引，每次添加都读 会让 生产者 和 消费者 争抢同一个缓存行；
+ * 采样 用 ThreadLocalRandom，不引入 共享计数。
+ * cas 失败次数 需要被包装的队列 使用 {@link QueueMetrics#countingOfferBackoff} / {@link QueueMetrics#countingPollBackoff} 构造，例如
+ * new InstrumentedQueue&lt;&gt;(new MpscArrayQueue&lt;&gt;(1024, metrics.countingOfferBackoff(null)), metrics)
+ * </p>
+ * <p>
+ * 线程约束 与 被包装的队列 相同
+ * </p>
+ *
+ * @param <E>
+ */
+public class InstrumentedQueue<E> extends AbstractQueue<E> implements MessagePassingQueue<E> {
+    public static final int DEFAULT_DEPTH_SAMPLE_RATE = 64;
+
+    private final MessagePassingQueue<E> queue;
+    private final QueueMetrics metrics;
+    private final int depthSampleRate;
+
+    public InstrumentedQueue(MessagePassingQueue<E> queue) {
+        this(queue, new QueueMetrics());
+    }
+
+    /**
+     * @param queue   被包装的队列
+     * @param metrics 统计
+     */
+    public InstrumentedQueue(MessagePassingQueue<E> queue, QueueMetrics metrics) {
+        this(queue, metrics, DEFAULT_DEPTH_SAMPLE_RATE);
+    }
+
+    /**
+     * @param queue           被包装的队列
+     * @param metrics         统计
+     * @param depthSampleRate 平均 每多少次 成功添加 采样一次深度，1 表示 每次都采样
+     */
+    public InstrumentedQueue(MessagePassingQueue<E> queue, QueueMetrics metrics, int depthSampleRate) {
+        if (null == queue)
+            throw new NullPointerException("queue");
+        if (null == metrics)
+            throw new NullPointerException("metrics");
+        this.queue = queue;
+        this.metrics = metrics;
+        this.depthSampleRate = RangeUtil.checkGreaterThanOrEqual(depthSampleRate, 1, "depthSampleRate");
+        metrics.bind(queue);
+    }
+
+    public QueueMetrics metrics() {
+        return metrics;
+    }
+
+    @Override
+    public boolean offer(final E e) {
+        return recordOffer(queue.offer(e));
+    }
+
+    @Override
+    public E poll() {
+        return recordPoll(queue.poll());
+    }
+
+    @Override
+    public E peek() {
+        return queue.peek();
+    }
+
+    @Override
+    public boolean relaxedOffer(final E e) {
+        return recordOffer(queue.relaxedOffer(e));
+    }
+
+    @Override
+    public E relaxedPoll() {
+        return recordPoll(queue.relaxedPoll());
+    }
+
+    @Override
+    public E relaxedPeek() {
+        return queue.relaxedPeek();
+    }
+
+    @Override
+    public int drain(final Consumer<E> c, final int limit) {
+        return recordDrain(queue.drain(c, limit), limit);
+    }
+
+    @Override
+    public int fill(final Supplier<E> s, final int limit) {
+        return recordFill(queue.fill(s, limit), limit);
+    }
+
+    @Override
+    public int drain(final Consumer<E> c) {
+        return recordDrain(queue.drain(c), Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int fill(final Supplier<E> s) {
+        // 有界队列 最多填满 capacity 个，无界队列 capacity 为 -1，不会 计为 失败
+        return recordFill(queue.fill(s), queue.capacity());
+    }
+
+    /**
+     * 经过 relaxedPoll 逐个取出，每次空轮询 都计数
+     */
+    @Override
+    public void drain(final Consumer<E> c, final WaitStrategy wait, final ExitCondition exit) {
+        MessagePassingQueueUtil.drain(this, c, wait, exit);
+    }
+
+    @Override
+    public void fill(final Supplier<E> s, final WaitStrategy wait, final ExitCondition exit) {
+        MessagePassingQueueUtil.fill(this, s, wait, exit);
+    }
+
+    @Override
+    public int size() {
+        return queue.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return queue.isEmpty();
+    }
+
+    @Override
+    public void clear() {
+        queue.clear();
+    }
+
+    @Override
+    public int capacity() {
+        return queue.capacity();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Iterator<E> iterator() {
+        if (queue instanceof Iterable) {
+            return ((Iterable<E>) queue).iterator();
+        }
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public String toString() {
+        return this.getClass().getName() + "[" + queue + ", " + metrics + "]";
+    }
+
+    private boolean recordOffer(final boolean offered) {
+        if (offered) {
+            metrics.recordOffers(1);
+            sampleDepth();
+        } else {
+            metrics.recordOfferFailure();
+        }
+        return offered;
+    }
+
+    private void sampleDepth() {
+        final int rate = depthSampleRate;
+        if (rate == 1 || ThreadLocalRandom.current().nextInt(rate) == 0) {
+            metrics.recordDepth(queue.size());
+        }
+    }
+
+    private E recordPoll(final E e) {
+        if (null != e) {
+            metrics.recordPolls(1);
+        } else {
+            metrics.recordEmptyPoll();
+        }
+        return e;
+    }
+
+    // limit 为 0 时 没有 取过元素，不算 空轮询
+    private int recordDrain(final int drained, final int limit) {
+        if (drained > 0) {
+            metrics.recordPolls(drained);
+        } else if (limit > 0) {
+            metrics.recordEmptyPoll();
+        }
+        return drained;
+    }
+
+    // 少于 limit 才是 队列 拒绝了元素，limit 为 0 时 什么都不记录
+    private int recordFill(final int filled, final int limit) {
+        if (filled > 0) {
+            metrics.recordOffers(filled);
+            sampleDepth();
+        }
+        if (filled < limit) {
+            metrics.recordOfferFailure();
+        }
+        return filled;
+    }
+}
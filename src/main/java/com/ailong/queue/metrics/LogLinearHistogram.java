@@ -0,0 +1,164 @@
+package com.ailong.queue.metrics;
+
+import com.ailong.queue.util.RangeUtil;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import static com.ailong.queue.util.UnsafeAccess.UNSAFE;
+import static com.ailong.queue.util.UnsafeAccess.fieldOffset;
+import static com.ailong.queue.util.UnsafeLongArrayAccess.allocateLongArray;
+import static com.ailong.queue.util.UnsafeLongArrayAccess.calcLongElementOffset;
+import static com.ailong.queue.util.UnsafeLongArrayAccess.lvLongElement;
+import static com.ailong.queue.util.UnsafeLongArrayAccess.soLongElement;
+
+/**
+ * 无锁 对数-线性 直方图（HdrHistogram 的分桶方式）
+ * <p>
+ * 小于 2^subBucketBits 的值 每个值一个桶；
+ * 之后 每个 2 的幂区间 [2^k, 2^(k+1)) 平均分为 2^subBucketBits 个桶，相对误差 不超过 1 / 2^subBucketBits。
+ * 覆盖 0 ~ Long.MAX_VALUE，桶数组 在构造时分配，记录时 只有一次 getAndAddLong，不分配对象
+ * </p>
+ * <p>
+ * 读取 不需要停止记录线程，读到的是 近似快照：读取期间 并发记录的值 可能只计入一部分桶
+ * </p>
+ */
+public class LogLinearHistogram {
+    private final static long MAX_VALUE_OFFSET = fieldOffset(LogLinearHistogram.class, "maxValue");
+
+    private final int subBucketBits;
+    private final long subBucketMask;
+    private final long[] counts;
+    private final LongAdder totalCount = new LongAdder();
+    private final LongAdder totalValue = new LongAdder();
+    private volatile long maxValue;
+
+    public LogLinearHistogram() {
+        this(5);
+    }
+
+    /**
+     * @param subBucketBits 每个 2 的幂区间 分为 2^subBucketBits 个桶，1 ~ 10
+     */
+    public LogLinearHistogram(int subBucketBits) {
+        RangeUtil.checkGreaterThanOrEqual(subBucketBits, 1, "subBucketBits");
+        this.subBucketBits = RangeUtil.checkLessThanOrEqual(subBucketBits, 10, "subBucketBits");
+        this.subBucketMask = (1L << subBucketBits) - 1;
+        // 线性区 1 组，最高位 为 subBucketBits ~ 62 的 各 1 组
+        this.counts = allocateLongArray((64 - subBucketBits) << subBucketBits);
+    }
+
+    /**
+     * 记录一个值，负数 按 0 记录
+     *
+     * @param value
+     */
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        UNSAFE.getAndAddLong(counts, calcLongElementOffset(bucketIndex(value)), 1L);
+        totalCount.increment();
+        totalValue.add(value);
+        long max;
+        while (value > (max = maxValue)) {
+            if (UNSAFE.compareAndSwapLong(this, MAX_VALUE_OFFSET, max, value)) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * 记录总数
+     *
+     * @return
+     */
+    public long totalCount() {
+        return totalCount.sum();
+    }
+
+    public long maxValue() {
+        return maxValue;
+    }
+
+    public double mean() {
+        final long count = totalCount.sum();
+        return count == 0 ? 0.0 : (double) totalValue.sum() / count;
+    }
+
+    /**
+     * 百分位数，返回 所在桶的 上界
+     *
+     * @param percentile 0 ~ 100
+     * @return 没有记录 返回 0
+     */
+    public long valueAtPercentile(double percentile) {
+        if (percentile < 0.0 || percentile > 100.0 || Double.isNaN(percentile)) {
+            throw new IllegalArgumentException("percentile: " + percentile + " (expected: 0 ~ 100)");
+        }
+        final long[] counts = this.counts;
+        // 各桶 逐个读取，总数 以读到的为准
+        long total = 0;
+        for (int i = 0; i < counts.length; i++) {
+            total += lvLongElement(counts, calcLongElementOffset(i));
+        }
+        if (total == 0) {
+            return 0;
+        }
+        final long target = Math.max(1, (long) Math.ceil(percentile / 100.0 * total));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += lvLongElement(counts, calcLongElementOffset(i));
+            if (seen >= target) {
+                return Math.min(highestEquivalentValue(i), maxValue);
+            }
+        }
+        return maxValue;
+    }
+
+    /**
+     * 清零，与 并发记录 不是原子的
+     */
+    public void reset() {
+        final long[] counts = this.counts;
+        for (int i = 0; i < counts.length; i++) {
+            soLongElement(counts, calcLongElementOffset(i), 0L);
+        }
+        totalCount.reset();
+        totalValue.reset();
+        maxValue = 0;
+    }
+
+    @Override
+    public String toString() {
+        return "LogLinearHistogram{count=" + totalCount() + ", mean=" + mean()
+                + ", p50=" + valueAtPercentile(50) + ", p99=" + valueAtPercentile(99)
+                + ", p999=" + valueAtPercentile(99.9) + ", max=" + maxValue() + "}";
+    }
+
+    /**
+     * 值 所在桶
+     */
+    int bucketIndex(final long value) {
+        final int msb = 63 - Long.numberOfLeadingZeros(value);
+        if (msb < subBucketBits) {
+            return (int) value;
+        }
+        // 第 group 组 的 第 sub 个桶，组内 桶宽 2^(group - 1)
+        final int group = msb - subBucketBits + 1;
+        final long sub = (value >>> (group - 1)) & subBucketMask;
+        return (int) (((long) group << subBucketBits) + sub);
+    }
+
+    /**
+     * 桶 包含的 最大值
+     */
+    long highestEquivalentValue(final int index) {
+        final int group = index >>> subBucketBits;
+        if (group == 0) {
+            return index;
+        }
+        final int shift = group - 1;
+        final long lowest = ((1L << subBucketBits) + (index & subBucketMask)) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+}
@@ -0,0 +1,143 @@
+package com.ailong.queue.metrics;
+
+import com.ailong.queue.IndexedQueue;
+import com.ailong.queue.util.RangeUtil;
+
+import java.io.Closeable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 队列深度 后台采样
+ * <p>
+ * 一个 守护线程 按固定周期 对已登记的队列 调用 estimatedSize()，只读 生产者/消费者索引，
+ * 不经过 offer / poll，数据通路上 没有任何额外开销；
+ * 每 windowSamples 次采样 为一个窗口，窗口结束时 发布 该窗口的 min / avg / max（DepthStats），
+ * 读取方 拿到的是 最近一个完整窗口
+ * </p>
+ * <p>
+ * 窗口累加 只由采样线程 修改，不需要同步；登记 / 注销 可以在任意线程
+ * </p>
+ */
+public class QueueDepthSampler implements Closeable {
+    private final ConcurrentMap<String, Sampled> queues = new ConcurrentHashMap<>();
+    private final long periodNanos;
+    private final int windowSamples;
+    private volatile ScheduledExecutorService scheduler;
+
+    /**
+     * @param period        采样周期
+     * @param unit          周期单位
+     * @param windowSamples 每个窗口 采样次数
+     */
+    public QueueDepthSampler(long period, TimeUnit unit, int windowSamples) {
+        this.periodNanos = RangeUtil.checkPositive(unit.toNanos(period), "period");
+        this.windowSamples = RangeUtil.checkGreaterThanOrEqual(windowSamples, 1, "windowSamples");
+    }
+
+    /**
+     * 登记队列，同名 替换
+     *
+     * @param name
+     * @param queue
+     */
+    public void register(String name, IndexedQueue queue) {
+        if (null == name)
+            throw new NullPointerException("name");
+        if (null == queue)
+            throw new NullPointerException("queue");
+        queues.put(name, new Sampled(queue));
+    }
+
+    public void unregister(String name) {
+        queues.remove(name);
+    }
+
+    /**
+     * 最近一个完整窗口的统计
+     *
+     * @param name
+     * @return 未登记 或 第一个窗口还没结束 返回 null
+     */
+    public DepthStats stats(String name) {
+        final Sampled sampled = queues.get(name);
+        return null == sampled ? null : sampled.stats;
+    }
+
+    /**
+     * 启动 采样线程
+     */
+    public synchronized void start() {
+        if (null != scheduler) {
+            throw new IllegalStateException("sampler already started");
+        }
+        final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                final Thread t = new Thread(r, "queue-depth-sampler");
+                t.setDaemon(true);
+                return t;
+            }
+        });
+        scheduler.scheduleAtFixedRate(this::sample, periodNanos, periodNanos, TimeUnit.NANOSECONDS);
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * 对 所有登记的队列 采样一次；由 采样线程 调用，没有 start 时 可以手动调用，同一时间 只能有一个线程调用
+     */
+    public void sample() {
+        final long now = System.currentTimeMillis();
+        for (Sampled sampled : queues.values()) {
+            sampled.sample(now, windowSamples);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        final ScheduledExecutorService scheduler = this.scheduler;
+        if (null != scheduler) {
+            scheduler.shutdownNow();
+            this.scheduler = null;
+        }
+    }
+
+    // 登记的队列 和 当前窗口
+    static final class Sampled {
+        final IndexedQueue queue;
+        // 最近一个完整窗口
+        volatile DepthStats stats;
+        // 当前窗口，只由 采样线程 访问
+        long windowStartMillis;
+        int samples;
+        int min;
+        int max;
+        long sum;
+
+        Sampled(IndexedQueue queue) {
+            this.queue = queue;
+        }
+
+        void sample(final long now, final int windowSamples) {
+            final int depth = queue.estimatedSize();
+            if (samples == 0) {
+                windowStartMillis = now;
+                min = depth;
+                max = depth;
+                sum = 0;
+            } else {
+                min = Math.min(min, depth);
+                max = Math.max(max, depth);
+            }
+            sum += depth;
+            if (++samples == windowSamples) {
+                stats = new DepthStats(windowStartMillis, now, samples, min, max, (double) sum / samples);
+                samples = 0;
+            }
+        }
+    }
+}
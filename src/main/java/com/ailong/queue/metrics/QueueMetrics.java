@@ -0,0 +1,208 @@
+package com.ailong.queue.metrics;
+
+import com.ailong.queue.MessagePassingQueue;
+import com.ailong.queue.wait.ContentionBackoff;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+
+import static com.ailong.queue.util.UnsafeAccess.UNSAFE;
+import static com.ailong.queue.util.UnsafeAccess.fieldOffset;
+
+/**
+ * 队列 统计
+ * <p>
+ * 计数 用 LongAdder，多线程 累加 分散到不同的 cell，不会 争抢同一个缓存行；
+ * 最大深度 只在超过当前值时 才 cas。
+ * 由 InstrumentedQueue 更新，cas 失败次数 由 countingOfferBackoff / countingPollBackoff 返回的退避策略 更新
+ * </p>
+ */
+public class QueueMetrics implements QueueMetricsMBean {
+    private final static long MAX_DEPTH_OFFSET = fieldOffset(QueueMetrics.class, "maxDepth");
+
+    public static final String DOMAIN = "com.ailong.queue";
+
+    private final LongAdder offers = new LongAdder();
+    private final LongAdder offerFailures = new LongAdder();
+    private final LongAdder polls = new LongAdder();
+    private final LongAdder emptyPolls = new LongAdder();
+    private final LongAdder offerCasRetries = new LongAdder();
+    private final LongAdder pollCasRetries = new LongAdder();
+    private volatile long maxDepth;
+    private volatile MessagePassingQueue<?> queue;
+    private volatile ObjectName objectName;
+
+    /**
+     * 生产者 cas 失败时 计数 再交给 delegate 退避，
+     * 作为 MpscArrayQueue 的 backoff 或 MpmcArrayQueue 的 producerBackoff 传入
+     *
+     * @param delegate 退避策略，null 表示 立即重试
+     * @return
+     */
+    public ContentionBackoff countingOfferBackoff(final ContentionBackoff delegate) {
+        return counting(offerCasRetries, delegate);
+    }
+
+    /**
+     * 消费者 cas 失败时 计数 再交给 delegate 退避，作为 MpmcArrayQueue 的 consumerBackoff 传入
+     *
+     * @param delegate 退避策略，null 表示 立即重试
+     * @return
+     */
+    public ContentionBackoff countingPollBackoff(final ContentionBackoff delegate) {
+        return counting(pollCasRetries, delegate);
+    }
+
+    private static ContentionBackoff counting(final LongAdder retries, final ContentionBackoff delegate) {
+        return new ContentionBackoff() {
+            @Override
+            public void onFailure(int failures) {
+                retries.increment();
+                if (null != delegate) {
+                    delegate.onFailure(failures);
+                }
+            }
+
+            @Override
+            public void onComplete(int failures) {
+                if (null != delegate) {
+                    delegate.onComplete(failures);
+                }
+            }
+        };
+    }
+
+    /**
+     * 注册到 platform MBeanServer，ObjectName 为 com.ailong.queue:type=Queue,name={name}
+     *
+     * @param name
+     * @return
+     */
+    public ObjectName register(final String name) {
+        try {
+            final ObjectName objectName = new ObjectName(DOMAIN + ":type=Queue,name=" + ObjectName.quote(name));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+            this.objectName = objectName;
+            return objectName;
+        } catch (JMException e) {
+            throw new IllegalStateException("register mbean failed: " + name, e);
+        }
+    }
+
+    /**
+     * 从 platform MBeanServer 注销
+     */
+    public void unregister() {
+        final ObjectName objectName = this.objectName;
+        if (null == objectName) {
+            return;
+        }
+        try {
+            final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if (server.isRegistered(objectName)) {
+                server.unregisterMBean(objectName);
+            }
+            this.objectName = null;
+        } catch (JMException e) {
+            throw new IllegalStateException("unregister mbean failed: " + objectName, e);
+        }
+    }
+
+    @Override
+    public long getOffers() {
+        return offers.sum();
+    }
+
+    @Override
+    public long getOfferFailures() {
+        return offerFailures.sum();
+    }
+
+    @Override
+    public long getPolls() {
+        return polls.sum();
+    }
+
+    @Override
+    public long getEmptyPolls() {
+        return emptyPolls.sum();
+    }
+
+    @Override
+    public long getOfferCasRetries() {
+        return offerCasRetries.sum();
+    }
+
+    @Override
+    public long getPollCasRetries() {
+        return pollCasRetries.sum();
+    }
+
+    @Override
+    public long getMaxDepth() {
+        return maxDepth;
+    }
+
+    @Override
+    public int getSize() {
+        final MessagePassingQueue<?> queue = this.queue;
+        return null == queue ? 0 : queue.size();
+    }
+
+    @Override
+    public int getCapacity() {
+        final MessagePassingQueue<?> queue = this.queue;
+        return null == queue ? 0 : queue.capacity();
+    }
+
+    @Override
+    public void reset() {
+        offers.reset();
+        offerFailures.reset();
+        polls.reset();
+        emptyPolls.reset();
+        offerCasRetries.reset();
+        pollCasRetries.reset();
+        maxDepth = 0;
+    }
+
+    @Override
+    public String toString() {
+        return "QueueMetrics{offers=" + getOffers() + ", offerFailures=" + getOfferFailures()
+                + ", polls=" + getPolls() + ", emptyPolls=" + getEmptyPolls()
+                + ", offerCasRetries=" + getOfferCasRetries() + ", pollCasRetries=" + getPollCasRetries()
+                + ", maxDepth=" + getMaxDepth() + "}";
+    }
+
+    void bind(final MessagePassingQueue<?> queue) {
+        this.queue = queue;
+    }
+
+    void recordOffers(final int n) {
+        offers.add(n);
+    }
+
+    void recordOfferFailure() {
+        offerFailures.increment();
+    }
+
+    void recordPolls(final int n) {
+        polls.add(n);
+    }
+
+    void recordEmptyPoll() {
+        emptyPolls.increment();
+    }
+
+    void recordDepth(final long depth) {
+        long max;
+        while (depth > (max = maxDepth)) {
+            if (UNSAFE.compareAndSwapLong(this, MAX_DEPTH_OFFSET, max, depth)) {
+                return;
+            }
+        }
+    }
+}
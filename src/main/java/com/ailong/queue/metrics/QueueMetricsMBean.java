@@ -0,0 +1,75 @@
+package com.ailong.queue.metrics;
+
+/**
+ * 队列 统计 JMX 接口
+ */
+public interface QueueMetricsMBean {
+
+    /**
+     * 成功添加的元素数
+     *
+     * @return
+     */
+    long getOffers();
+
+    /**
+     * 队列满 添加失败次数
+     *
+     * @return
+     */
+    long getOfferFailures();
+
+    /**
+     * 成功取出的元素数
+     *
+     * @return
+     */
+    long getPolls();
+
+    /**
+     * 队列空 取出失败次数
+     *
+     * @return
+     */
+    long getEmptyPolls();
+
+    /**
+     * 生产者 索引 cas 失败次数，队列 使用 QueueMetrics#countingOfferBackoff 时 才有
+     *
+     * @return
+     */
+    long getOfferCasRetries();
+
+    /**
+     * 消费者 索引 cas 失败次数，队列 使用 QueueMetrics#countingPollBackoff 时 才有
+     *
+     * @return
+     */
+    long getPollCasRetries();
+
+    /**
+     * 采样到的 最大深度
+     *
+     * @return
+     */
+    long getMaxDepth();
+
+    /**
+     * 当前大小
+     *
+     * @return
+     */
+    int getSize();
+
+    /**
+     * 容量，无界 返回 -1
+     *
+     * @return
+     */
+    int getCapacity();
+
+    /**
+     * 清零 所有计数 和 最大深度
+     */
+    void reset();
+}
@@ -0,0 +1,381 @@
+package com.ailong.queue.ringbuffer;
+
+import com.ailong.queue.IndexedQueue;
+import com.ailong.queue.IndexedQueueSizeUtil;
+import com.ailong.queue.util.UnsafeDirectByteBuffer;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import static com.ailong.queue.ringbuffer.RingBufferDescriptor.HEADER_LENGTH;
+import static com.ailong.queue.ringbuffer.RingBufferDescriptor.PADDING_MSG_TYPE_ID;
+import static com.ailong.queue.ringbuffer.RingBufferDescriptor.alignedRecordLength;
+import static com.ailong.queue.ringbuffer.RingBufferDescriptor.checkCapacity;
+import static com.ailong.queue.ringbuffer.RingBufferDescriptor.checkMsgLength;
+import static com.ailong.queue.ringbuffer.RingBufferDescriptor.checkMsgTypeId;
+import static com.ailong.queue.ringbuffer.RingBufferDescriptor.lengthOffset;
+import static com.ailong.queue.ringbuffer.RingBufferDescriptor.payloadOffset;
+import static com.ailong.queue.ringbuffer.RingBufferDescriptor.typeOffset;
+import static com.ailong.queue.util.UnsafeDirectByteBuffer.BYTE_ARRAY_BASE;
+import static com.ailong.queue.util.UnsafeAccess.UNSAFE;
+import static com.ailong.queue.util.UnsafeAccess.fieldOffset;
+
+/**
+ * 无锁 有界 内存映射文件 ring buffer
+ * 单生产者-单消费者，可跨进程
+ * <p>
+ * 生产者/消费者索引 与 数据 都在映射文件里，两个 JVM 映射同一个文件（如 /dev/shm 下）即可通信，
+ * 热路径上没有系统调用；索引访问 与 SpscOffHeapRingBuffer 一样 使用 ordered store / volatile load，
+ * 记录格式见 RingBufferDescriptor
+ * </p>
+ * <p>
+ * close 之后 读写/索引/大小 方法 抛出 IllegalStateException，而不是 访问已解除的映射 导致 JVM 崩溃；
+ * close 不能与 本端的读写 并发调用
+ * </p>
+ * <pre>
+ *   0                 128               256        384
+ *   +-----------------+-----------------+----------+--------------------+
+ *   | producerIndex   | consumerIndex   | capacity | data ...           |
+ *   +-----------------+-----------------+----------+--------------------+
+ * </pre>
+ */
+public class MappedSpscRingBuffer implements IndexedQueue, Closeable {
+    private final static long CLOSED_OFFSET = fieldOffset(MappedSpscRingBuffer.class, "closed");
+
+    // 索引之间 隔开两个缓存行，文件格式固定，不随 CACHE_LINE_SIZE 变化
+    static final int PRODUCER_INDEX_OFFSET = 0;
+    static final int CONSUMER_INDEX_OFFSET = 128;
+    static final int CAPACITY_OFFSET = 256;
+    public static final int INDEX_REGION_LENGTH = 384;
+
+    private final MappedByteBuffer mapped;
+    // 数据区
+    private final ByteBuffer buffer;
+    private final long address;
+    private final long producerIndexAddress;
+    private final long consumerIndexAddress;
+    private final int capacity;
+    private final long mask;
+    private final int maxMessageLength;
+
+    // 生产者 本地缓存的消费者索引，不放进文件
+    private long consumerIndexCache;
+    // claim 之后 待发布的生产者索引
+    private long producerIndexAfterClaim;
+    // 1 表示 已解除映射
+    private volatile int closed;
+
+    /**
+     * 文件不存在 或 长度为 0 时创建，否则映射已有文件，capacity 必须一致
+     *
+     * @param file     映射文件
+     * @param capacity 数据区容量
+     * @throws IOException
+     */
+    public MappedSpscRingBuffer(final File file, final int capacity) throws IOException {
+        this.capacity = checkCapacity(capacity);
+        this.mask = this.capacity - 1;
+        this.maxMessageLength = this.capacity / 8;
+
+        final long fileLength = INDEX_REGION_LENGTH + (long) this.capacity;
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            final long existingLength = raf.length();
+            if (existingLength != 0 && existingLength != fileLength) {
+                throw new IllegalStateException("file length: " + existingLength + " (expected: " + fileLength + ")");
+            }
+            // 映射 在 channel 关闭后 依然有效
+            this.mapped = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, fileLength);
+        }
+
+        final long baseAddress = UnsafeDirectByteBuffer.getAddress(mapped);
+        this.producerIndexAddress = baseAddress + PRODUCER_INDEX_OFFSET;
+        this.consumerIndexAddress = baseAddress + CONSUMER_INDEX_OFFSET;
+        final long capacityAddress = baseAddress + CAPACITY_OFFSET;
+        // 新文件 全部为 0，由先映射的一方写入容量
+        if (!UNSAFE.compareAndSwapInt(null, capacityAddress, 0, this.capacity)
+                && UNSAFE.getIntVolatile(null, capacityAddress) != this.capacity) {
+            throw new IllegalStateException("capacity: " + this.capacity + " (file: "
+                    + UNSAFE.getIntVolatile(null, capacityAddress) + ")");
+        }
+
+        mapped.position(INDEX_REGION_LENGTH);
+        this.buffer = mapped.slice();
+        mapped.position(0);
+        this.address = UnsafeDirectByteBuffer.getAddress(buffer);
+        this.consumerIndexCache = lvConsumerIndex();
+    }
+
+    /**
+     * 写入 byte[]
+     *
+     * @param msgTypeId 消息类型，>= 1
+     * @param src       消息体
+     * @param srcOffset 起始位置
+     * @param length    长度
+     * @return 空间不足 返回 false
+     */
+    public boolean write(final int msgTypeId, final byte[] src, final int srcOffset, final int length) {
+        ensureOpen();
+        checkMsgTypeId(msgTypeId);
+        checkMsgLength(length, maxMessageLength);
+        if (srcOffset < 0 || srcOffset + length > src.length) {
+            throw new IndexOutOfBoundsException("srcOffset: " + srcOffset + ", length: " + length);
+        }
+
+        final int recordIndex = claim(length);
+        if (recordIndex < 0) {
+            return false;
+        }
+        UNSAFE.copyMemory(src, BYTE_ARRAY_BASE + srcOffset, null, address + payloadOffset(recordIndex), length);
+        publish(recordIndex, msgTypeId, length);
+        return true;
+    }
+
+    /**
+     * 写入 ByteBuffer，不改变 src 的 position
+     *
+     * @param msgTypeId 消息类型，>= 1
+     * @param src       消息体
+     * @param srcIndex  起始位置（绝对索引）
+     * @param length    长度
+     * @return 空间不足 返回 false
+     */
+    public boolean write(final int msgTypeId, final ByteBuffer src, final int srcIndex, final int length) {
+        ensureOpen();
+        checkMsgTypeId(msgTypeId);
+        checkMsgLength(length, maxMessageLength);
+        if (srcIndex < 0 || srcIndex + length > src.capacity()) {
+            throw new IndexOutOfBoundsException("srcIndex: " + srcIndex + ", length: " + length);
+        }
+
+        final int recordIndex = claim(length);
+        if (recordIndex < 0) {
+            return false;
+        }
+        UnsafeDirectByteBuffer.copyToAddress(src, srcIndex, address + payloadOffset(recordIndex), length);
+        publish(recordIndex, msgTypeId, length);
+        return true;
+    }
+
+    /**
+     * 读取
+     *
+     * @param handler 消息处理
+     * @return 读取的消息数
+     */
+    public int read(final MessageHandler handler) {
+        return read(handler, Integer.MAX_VALUE);
+    }
+
+    /**
+     * 批量读取
+     * 读到数组末尾时 从数组开头继续
+     *
+     * @param handler 消息处理
+     * @param limit   最多读取的消息数
+     * @return 读取的消息数
+     */
+    public int read(final MessageHandler handler, final int limit) {
+        if (null == handler)
+            throw new IllegalArgumentException("handler is null");
+        if (limit < 0)
+            throw new IllegalArgumentException("limit is negative: " + limit);
+        ensureOpen();
+
+        final long head = lpConsumerIndex();
+        int messagesRead = readContiguous(handler, limit);
+        final long newHead = lpConsumerIndex();
+        if (messagesRead < limit && newHead != head && (newHead & mask) == 0) {
+            messagesRead += readContiguous(handler, limit - messagesRead);
+        }
+        return messagesRead;
+    }
+
+    /**
+     * 一次最多读到数组末尾，读完后统一清零并更新一次消费者索引
+     */
+    private int readContiguous(final MessageHandler handler, final int limit) {
+        final long address = this.address;
+        final long head = lpConsumerIndex();
+        final int headIndex = (int) (head & mask);
+        final int contiguousBlockLength = capacity - headIndex;
+        int messagesRead = 0;
+        int bytesRead = 0;
+
+        try {
+            while (bytesRead < contiguousBlockLength && messagesRead < limit) {
+                final int recordIndex = headIndex + bytesRead;
+                final int recordLength = UNSAFE.getIntVolatile(null, address + lengthOffset(recordIndex));
+                if (recordLength <= 0) {
+                    break;
+                }
+                bytesRead += alignedRecordLength(recordLength - HEADER_LENGTH);
+
+                final int msgTypeId = UNSAFE.getInt(address + typeOffset(recordIndex));
+                if (PADDING_MSG_TYPE_ID == msgTypeId) {
+                    continue;
+                }
+                messagesRead++;
+                handler.onMessage(msgTypeId, buffer, payloadOffset(recordIndex), recordLength - HEADER_LENGTH);
+            }
+        } finally {
+            if (bytesRead != 0) {
+                // 清零后再释放，生产者看到新的消费者索引时 这段内存一定已经清零
+                UNSAFE.setMemory(address + headIndex, bytesRead, (byte) 0);
+                soConsumerIndex(head + bytesRead);
+            }
+        }
+        return messagesRead;
+    }
+
+    /**
+     * 已使用 字节数
+     *
+     * @return
+     */
+    public int size() {
+        ensureOpen();
+        return IndexedQueueSizeUtil.size(this);
+    }
+
+    /**
+     * 已写入 字节数 估算
+     *
+     * @return
+     */
+    @Override
+    public int estimatedSize() {
+        ensureOpen();
+        return IndexedQueueSizeUtil.estimatedSize(this, 0, capacity());
+    }
+
+    public boolean isEmpty() {
+        ensureOpen();
+        return IndexedQueueSizeUtil.isEmpty(this);
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public int maxMessageLength() {
+        return maxMessageLength;
+    }
+
+    @Override
+    public long lvProducerIndex() {
+        ensureOpen();
+        return UNSAFE.getLongVolatile(null, producerIndexAddress);
+    }
+
+    @Override
+    public long lvConsumerIndex() {
+        ensureOpen();
+        return UNSAFE.getLongVolatile(null, consumerIndexAddress);
+    }
+
+    /**
+     * 解除映射，之后 不能再访问，重复调用 无效果
+     * 文件保留，另一端进程 不受影响
+     */
+    @Override
+    public void close() {
+        if (UNSAFE.compareAndSwapInt(this, CLOSED_OFFSET, 0, 1)) {
+            unmap(mapped);
+        }
+    }
+
+    public boolean isClosed() {
+        return closed != 0;
+    }
+
+    private void ensureOpen() {
+        if (closed != 0) {
+            throw new IllegalStateException("ring buffer is closed");
+        }
+    }
+
+    private long lpProducerIndex() {
+        return UNSAFE.getLong(producerIndexAddress);
+    }
+
+    private void soProducerIndex(final long newValue) {
+        UNSAFE.putOrderedLong(null, producerIndexAddress, newValue);
+    }
+
+    private long lpConsumerIndex() {
+        return UNSAFE.getLong(consumerIndexAddress);
+    }
+
+    private void soConsumerIndex(final long newValue) {
+        UNSAFE.putOrderedLong(null, consumerIndexAddress, newValue);
+    }
+
+    /**
+     * 占用 记录空间，必要时在数组末尾写入 填充记录
+     *
+     * @param length 消息体长度
+     * @return 记录起始位置，空间不足返回 -1
+     */
+    private int claim(final int length) {
+        final int capacity = this.capacity;
+        final int alignedLength = alignedRecordLength(length);
+        final long tail = lpProducerIndex();
+        final int tailIndex = (int) (tail & mask);
+        final int toBufferEnd = capacity - tailIndex;
+
+        int required = alignedLength;
+        int padding = 0;
+        if (alignedLength > toBufferEnd) {
+            // 末尾放不下，跳到数组开头
+            padding = toBufferEnd;
+            required += padding;
+        }
+
+        if (tail + required > consumerIndexCache + capacity) {
+            final long head = lvConsumerIndex();
+            if (tail + required > head + capacity) {
+                return -1; // FULL :(
+            }
+            consumerIndexCache = head;
+        }
+
+        int recordIndex = tailIndex;
+        if (padding != 0) {
+            UNSAFE.putInt(address + typeOffset(tailIndex), PADDING_MSG_TYPE_ID);
+            UNSAFE.putOrderedInt(null, address + lengthOffset(tailIndex), padding);
+            recordIndex = 0;
+        }
+        producerIndexAfterClaim = tail + required;
+        return recordIndex;
+    }
+
+    private void publish(final int recordIndex, final int msgTypeId, final int length) {
+        UNSAFE.putInt(address + typeOffset(recordIndex), msgTypeId);
+        // ordered store -> 记录头最后可见
+        UNSAFE.putOrderedInt(null, address + lengthOffset(recordIndex), length + HEADER_LENGTH);
+        soProducerIndex(producerIndexAfterClaim);
+    }
+
+    /**
+     * JDK 8 通过 cleaner 立即释放映射，取不到时 交给 GC
+     */
+    private static void unmap(final MappedByteBuffer buffer) {
+        try {
+            final Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+            cleanerMethod.setAccessible(true);
+            final Object cleaner = cleanerMethod.invoke(buffer);
+            if (null != cleaner) {
+                cleaner.getClass().getMethod("clean").invoke(cleaner);
+            }
+        } catch (Exception ignore) {
+            // 非 JDK 8，等待 GC 回收
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.ailong.queue.ringbuffer;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 消息 处理
+ * <p>
+ * 消息在 ring buffer 内原地读取，onMessage 返回后该区域会被回收，
+ * 需要保留的数据必须在 onMessage 内复制出去
+ * </p>
+ */
+public interface MessageHandler {
+
+    /**
+     * @param msgTypeId 消息类型
+     * @param buffer    ring buffer 内存，使用绝对索引读取
+     * @param index     消息体 起始位置
+     * @param length    消息体 长度
+     */
+    void onMessage(int msgTypeId, ByteBuffer buffer, int index, int length);
+}
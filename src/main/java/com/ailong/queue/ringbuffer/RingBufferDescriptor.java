@@ -0,0 +1,75 @@
+package com.ailong.queue.ringbuffer;
+
+import com.ailong.queue.util.Pow2;
+
+/**
+ * ring buffer 记录格式
+ * <pre>
+ *   0        4        8
+ *   +--------+--------+----------------------+
+ *   | length | typeId | payload ...          |
+ *   +--------+--------+----------------------+
+ * </pre>
+ * length 包含记录头，记录按 ALIGNMENT 对齐；
+ * length 使用 ordered store 最后写入，消费者看到 length > 0 即表示记录完整
+ */
+public final class RingBufferDescriptor {
+
+    // 记录头 长度
+    public static final int HEADER_LENGTH = 8;
+    // 记录 对齐
+    public static final int ALIGNMENT = HEADER_LENGTH;
+    // 填充记录 类型，写到数组末尾放不下时，用填充记录补齐
+    public static final int PADDING_MSG_TYPE_ID = -1;
+
+    private RingBufferDescriptor() {
+
+    }
+
+    /**
+     * 容量 向上取2的N次方，且至少能放下 8 条最大消息
+     *
+     * @param capacity
+     * @return
+     */
+    public static int checkCapacity(int capacity) {
+        if (capacity < 64) {
+            throw new IllegalArgumentException("capacity: " + capacity + " (expected: >= 64)");
+        }
+        return Pow2.roundToPowerOfTwo(capacity);
+    }
+
+    public static void checkMsgTypeId(int msgTypeId) {
+        if (msgTypeId < 1) {
+            throw new IllegalArgumentException("msgTypeId: " + msgTypeId + " (expected: >= 1)");
+        }
+    }
+
+    public static void checkMsgLength(int length, int maxMessageLength) {
+        if (length < 0 || length > maxMessageLength) {
+            throw new IllegalArgumentException("length: " + length + " (expected: 0-" + maxMessageLength + ')');
+        }
+    }
+
+    /**
+     * 记录 对齐后的长度
+     *
+     * @param length 消息体长度
+     * @return
+     */
+    public static int alignedRecordLength(int length) {
+        return (int) Pow2.align(length + HEADER_LENGTH, ALIGNMENT);
+    }
+
+    public static int lengthOffset(int recordIndex) {
+        return recordIndex;
+    }
+
+    public static int typeOffset(int recordIndex) {
+        return recordIndex + 4;
+    }
+
+    public static int payloadOffset(int recordIndex) {
+        return recordIndex + HEADER_LENGTH;
+    }
+}
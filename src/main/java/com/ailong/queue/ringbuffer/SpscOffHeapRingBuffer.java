@@ -0,0 +1,373 @@
+package com.ailong.queue.ringbuffer;
+
+import com.ailong.queue.IndexedQueue;
+import com.ailong.queue.IndexedQueueSizeUtil;
+import com.ailong.queue.util.PortableJvmInfo;
+import com.ailong.queue.util.UnsafeDirectByteBuffer;
+
+import java.nio.ByteBuffer;
+
+import static com.ailong.queue.ringbuffer.RingBufferDescriptor.HEADER_LENGTH;
+import static com.ailong.queue.ringbuffer.RingBufferDescriptor.PADDING_MSG_TYPE_ID;
+import static com.ailong.queue.ringbuffer.RingBufferDescriptor.alignedRecordLength;
+import static com.ailong.queue.ringbuffer.RingBufferDescriptor.checkCapacity;
+import static com.ailong.queue.ringbuffer.RingBufferDescriptor.checkMsgLength;
+import static com.ailong.queue.ringbuffer.RingBufferDescriptor.checkMsgTypeId;
+import static com.ailong.queue.ringbuffer.RingBufferDescriptor.lengthOffset;
+import static com.ailong.queue.ringbuffer.RingBufferDescriptor.payloadOffset;
+import static com.ailong.queue.ringbuffer.RingBufferDescriptor.typeOffset;
+import static com.ailong.queue.util.UnsafeAccess.UNSAFE;
+import static com.ailong.queue.util.UnsafeAccess.fieldOffset;
+import static com.ailong.queue.util.UnsafeDirectByteBuffer.BYTE_ARRAY_BASE;
+
+/**
+ * 无锁 有界 堆外 ring buffer
+ * 单生产者-单消费者
+ * <p>
+ * 变长消息 复制进直接内存，消费者原地读取，不产生堆对象；
+ * 生产者/消费者索引 单位为字节
+ * </p>
+ */
+public class SpscOffHeapRingBuffer extends SpscOffHeapRingBufferL3Pad implements IndexedQueue {
+
+    public SpscOffHeapRingBuffer(final int capacity) {
+        super(checkCapacity(capacity));
+    }
+
+    /**
+     * 写入 byte[]
+     *
+     * @param msgTypeId 消息类型，>= 1
+     * @param src       消息体
+     * @param srcOffset 起始位置
+     * @param length    长度
+     * @return 空间不足 返回 false
+     */
+    public boolean write(final int msgTypeId, final byte[] src, final int srcOffset, final int length) {
+        checkMsgTypeId(msgTypeId);
+        checkMsgLength(length, maxMessageLength);
+        if (srcOffset < 0 || srcOffset + length > src.length) {
+            throw new IndexOutOfBoundsException("srcOffset: " + srcOffset + ", length: " + length);
+        }
+
+        final int recordIndex = claim(length);
+        if (recordIndex < 0) {
+            return false;
+        }
+        UNSAFE.copyMemory(src, BYTE_ARRAY_BASE + srcOffset, null, address + payloadOffset(recordIndex), length);
+        publish(recordIndex, msgTypeId, length);
+        return true;
+    }
+
+    /**
+     * 写入 ByteBuffer，不改变 src 的 position
+     *
+     * @param msgTypeId 消息类型，>= 1
+     * @param src       消息体
+     * @param srcIndex  起始位置（绝对索引）
+     * @param length    长度
+     * @return 空间不足 返回 false
+     */
+    public boolean write(final int msgTypeId, final ByteBuffer src, final int srcIndex, final int length) {
+        checkMsgTypeId(msgTypeId);
+        checkMsgLength(length, maxMessageLength);
+        if (srcIndex < 0 || srcIndex + length > src.capacity()) {
+            throw new IndexOutOfBoundsException("srcIndex: " + srcIndex + ", length: " + length);
+        }
+
+        final int recordIndex = claim(length);
+        if (recordIndex < 0) {
+            return false;
+        }
+        UnsafeDirectByteBuffer.copyToAddress(src, srcIndex, address + payloadOffset(recordIndex), length);
+        publish(recordIndex, msgTypeId, length);
+        return true;
+    }
+
+    /**
+     * 读取
+     *
+     * @param handler 消息处理
+     * @return 读取的消息数
+     */
+    public int read(final MessageHandler handler) {
+        return read(handler, Integer.MAX_VALUE);
+    }
+
+    /**
+     * 批量读取
+     * 读到数组末尾时 从数组开头继续
+     *
+     * @param handler 消息处理
+     * @param limit   最多读取的消息数
+     * @return 读取的消息数
+     */
+    public int read(final MessageHandler handler, final int limit) {
+        if (null == handler)
+            throw new IllegalArgumentException("handler is null");
+        if (limit < 0)
+            throw new IllegalArgumentException("limit is negative: " + limit);
+
+        final long head = lpConsumerIndex();
+        int messagesRead = readContiguous(handler, limit);
+        final long newHead = lpConsumerIndex();
+        if (messagesRead < limit && newHead != head && (newHead & mask) == 0) {
+            messagesRead += readContiguous(handler, limit - messagesRead);
+        }
+        return messagesRead;
+    }
+
+    /**
+     * 一次最多读到数组末尾，读完后统一清零并更新一次消费者索引
+     */
+    private int readContiguous(final MessageHandler handler, final int limit) {
+        final long address = this.address;
+        final long head = lpConsumerIndex();
+        final int headIndex = (int) (head & mask);
+        final int contiguousBlockLength = capacity - headIndex;
+        int messagesRead = 0;
+        int bytesRead = 0;
+
+        try {
+            while (bytesRead < contiguousBlockLength && messagesRead < limit) {
+                final int recordIndex = headIndex + bytesRead;
+                final int recordLength = UNSAFE.getIntVolatile(null, address + lengthOffset(recordIndex));
+                if (recordLength <= 0) {
+                    break;
+                }
+                bytesRead += alignedRecordLength(recordLength - HEADER_LENGTH);
+
+                final int msgTypeId = UNSAFE.getInt(address + typeOffset(recordIndex));
+                if (PADDING_MSG_TYPE_ID == msgTypeId) {
+                    continue;
+                }
+                messagesRead++;
+                handler.onMessage(msgTypeId, buffer, payloadOffset(recordIndex), recordLength - HEADER_LENGTH);
+            }
+        } finally {
+            if (bytesRead != 0) {
+                // 清零后再释放，生产者看到新的消费者索引时 这段内存一定已经清零
+                UNSAFE.setMemory(address + headIndex, bytesRead, (byte) 0);
+                soConsumerIndex(head + bytesRead);
+            }
+        }
+        return messagesRead;
+    }
+
+    /**
+     * 已使用 字节数
+     *
+     * @return
+     */
+    public int size() {
+        return IndexedQueueSizeUtil.size(this);
+    }
+
+    /**
+     * 已写入 字节数 估算
+     *
+     * @return
+     */
+    @Override
+    public int estimatedSize() {
+        return IndexedQueueSizeUtil.estimatedSize(this, 0, capacity());
+    }
+
+    public boolean isEmpty() {
+        return IndexedQueueSizeUtil.isEmpty(this);
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public int maxMessageLength() {
+        return maxMessageLength;
+    }
+
+    /**
+     * 占用 记录空间，必要时在数组末尾写入 填充记录
+     *
+     * @param length 消息体长度
+     * @return 记录起始位置，空间不足返回 -1
+     */
+    private int claim(final int length) {
+        final int capacity = this.capacity;
+        final int alignedLength = alignedRecordLength(length);
+        final long tail = lpProducerIndex();
+        final int tailIndex = (int) (tail & mask);
+        final int toBufferEnd = capacity - tailIndex;
+
+        int required = alignedLength;
+        int padding = 0;
+        if (alignedLength > toBufferEnd) {
+            // 末尾放不下，跳到数组开头
+            padding = toBufferEnd;
+            required += padding;
+        }
+
+        if (tail + required > consumerIndexCache + capacity) {
+            final long head = lvConsumerIndex();
+            if (tail + required > head + capacity) {
+                return -1; // FULL :(
+            }
+            consumerIndexCache = head;
+        }
+
+        int recordIndex = tailIndex;
+        if (padding != 0) {
+            UNSAFE.putInt(address + typeOffset(tailIndex), PADDING_MSG_TYPE_ID);
+            UNSAFE.putOrderedInt(null, address + lengthOffset(tailIndex), padding);
+            recordIndex = 0;
+        }
+        // 生产者独占，先记下索引，消费者只看记录头
+        producerIndexAfterClaim = tail + required;
+        return recordIndex;
+    }
+
+    private void publish(final int recordIndex, final int msgTypeId, final int length) {
+        UNSAFE.putInt(address + typeOffset(recordIndex), msgTypeId);
+        // ordered store -> 记录头最后可见
+        UNSAFE.putOrderedInt(null, address + lengthOffset(recordIndex), length + HEADER_LENGTH);
+        soProducerIndex(producerIndexAfterClaim);
+    }
+}
+
+// 冷字段
+abstract class SpscOffHeapRingBufferColdFields {
+    // 直接内存
+    protected final ByteBuffer buffer;
+    // 直接内存 地址
+    protected final long address;
+    protected final int capacity;
+    protected final long mask;
+    // 单条消息 最大长度
+    protected final int maxMessageLength;
+
+    SpscOffHeapRingBufferColdFields(int capacity) {
+        this.buffer = UnsafeDirectByteBuffer.allocateAlignedByteBuffer(capacity, PortableJvmInfo.CACHE_LINE_SIZE);
+        this.address = UnsafeDirectByteBuffer.getAddress(buffer);
+        this.capacity = capacity;
+        this.mask = capacity - 1;
+        this.maxMessageLength = capacity / 8;
+    }
+}
+
+abstract class SpscOffHeapRingBufferL1Pad extends SpscOffHeapRingBufferColdFields {
+    byte b000, b001, b002, b003, b004, b005, b006, b007;//  8b
+    byte b010, b011, b012, b013, b014, b015, b016, b017;// 16b
+    byte b020, b021, b022, b023, b024, b025, b026, b027;// 24b
+    byte b030, b031, b032, b033, b034, b035, b036, b037;// 32b
+    byte b040, b041, b042, b043, b044, b045, b046, b047;// 40b
+    byte b050, b051, b052, b053, b054, b055, b056, b057;// 48b
+    byte b060, b061, b062, b063, b064, b065, b066, b067;// 56b
+    byte b070, b071, b072, b073, b074, b075, b076, b077;// 64b
+    byte b100, b101, b102, b103, b104, b105, b106, b107;// 72b
+    byte b110, b111, b112, b113, b114, b115, b116, b117;// 80b
+    byte b120, b121, b122, b123, b124, b125, b126, b127;// 88b
+    byte b130, b131, b132, b133, b134, b135, b136, b137;// 96b
+    byte b140, b141, b142, b143, b144, b145, b146, b147;//104b
+    byte b150, b151, b152, b153, b154, b155, b156, b157;//112b
+    byte b160, b161, b162, b163, b164, b165, b166, b167;//120b
+    byte b170, b171, b172, b173, b174, b175, b176, b177;//128b
+
+    SpscOffHeapRingBufferL1Pad(int capacity) {
+        super(capacity);
+    }
+}
+
+// 生产者索引
+abstract class SpscOffHeapRingBufferProducerIndexFields extends SpscOffHeapRingBufferL1Pad {
+    private final static long P_INDEX_OFFSET = fieldOffset(SpscOffHeapRingBufferProducerIndexFields.class, "producerIndex");
+
+    private volatile long producerIndex;
+    // 生产者 缓存的消费者索引
+    protected long consumerIndexCache;
+    // claim 之后 待发布的生产者索引
+    protected long producerIndexAfterClaim;
+
+    SpscOffHeapRingBufferProducerIndexFields(int capacity) {
+        super(capacity);
+    }
+
+    public final long lvProducerIndex() {
+        return producerIndex;
+    }
+
+    final long lpProducerIndex() {
+        return UNSAFE.getLong(this, P_INDEX_OFFSET);
+    }
+
+    final void soProducerIndex(final long newValue) {
+        UNSAFE.putOrderedLong(this, P_INDEX_OFFSET, newValue);
+    }
+}
+
+abstract class SpscOffHeapRingBufferL2Pad extends SpscOffHeapRingBufferProducerIndexFields {
+    byte b000, b001, b002, b003, b004, b005, b006, b007;//  8b
+    byte b010, b011, b012, b013, b014, b015, b016, b017;// 16b
+    byte b020, b021, b022, b023, b024, b025, b026, b027;// 24b
+    byte b030, b031, b032, b033, b034, b035, b036, b037;// 32b
+    byte b040, b041, b042, b043, b044, b045, b046, b047;// 40b
+    byte b050, b051, b052, b053, b054, b055, b056, b057;// 48b
+    byte b060, b061, b062, b063, b064, b065, b066, b067;// 56b
+    byte b070, b071, b072, b073, b074, b075, b076, b077;// 64b
+    byte b100, b101, b102, b103, b104, b105, b106, b107;// 72b
+    byte b110, b111, b112, b113, b114, b115, b116, b117;// 80b
+    byte b120, b121, b122, b123, b124, b125, b126, b127;// 88b
+    byte b130, b131, b132, b133, b134, b135, b136, b137;// 96b
+    byte b140, b141, b142, b143, b144, b145, b146, b147;//104b
+    byte b150, b151, b152, b153, b154, b155, b156, b157;//112b
+    byte b160, b161, b162, b163, b164, b165, b166, b167;//120b
+    byte b170, b171, b172, b173, b174, b175, b176, b177;//128b
+
+    SpscOffHeapRingBufferL2Pad(int capacity) {
+        super(capacity);
+    }
+}
+
+// 消费者索引
+abstract class SpscOffHeapRingBufferConsumerIndexField extends SpscOffHeapRingBufferL2Pad {
+    private final static long C_INDEX_OFFSET = fieldOffset(SpscOffHeapRingBufferConsumerIndexField.class, "consumerIndex");
+
+    private volatile long consumerIndex;
+
+    SpscOffHeapRingBufferConsumerIndexField(int capacity) {
+        super(capacity);
+    }
+
+    public final long lvConsumerIndex() {
+        return consumerIndex;
+    }
+
+    final long lpConsumerIndex() {
+        return UNSAFE.getLong(this, C_INDEX_OFFSET);
+    }
+
+    final void soConsumerIndex(final long newValue) {
+        UNSAFE.putOrderedLong(this, C_INDEX_OFFSET, newValue);
+    }
+}
+
+abstract class SpscOffHeapRingBufferL3Pad extends SpscOffHeapRingBufferConsumerIndexField {
+    byte b000, b001, b002, b003, b004, b005, b006, b007;//  8b
+    byte b010, b011, b012, b013, b014, b015, b016, b017;// 16b
+    byte b020, b021, b022, b023, b024, b025, b026, b027;// 24b
+    byte b030, b031, b032, b033, b034, b035, b036, b037;// 32b
+    byte b040, b041, b042, b043, b044, b045, b046, b047;// 40b
+    byte b050, b051, b052, b053, b054, b055, b056, b057;// 48b
+    byte b060, b061, b062, b063, b064, b065, b066, b067;// 56b
+    byte b070, b071, b072, b073, b074, b075, b076, b077;// 64b
+    byte b100, b101, b102, b103, b104, b105, b106, b107;// 72b
+    byte b110, b111, b112, b113, b114, b115, b116, b117;// 80b
+    byte b120, b121, b122, b123, b124, b125, b126, b127;// 88b
+    byte b130, b131, b132, b133, b134, b135, b136, b137;// 96b
+    byte b140, b141, b142, b143, b144, b145, b146, b147;//104b
+    byte b150, b151, b152, b153, b154, b155, b156, b157;//112b
+    byte b160, b161, b162, b163, b164, b165, b166, b167;//120b
+    byte b170, b171, b172, b173, b174, b175, b176, b177;//128b
+
+    SpscOffHeapRingBufferL3Pad(int capacity) {
+        super(capacity);
+    }
+}
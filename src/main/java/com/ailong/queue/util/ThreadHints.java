@@ -0,0 +1,47 @@
+package com.ailong.queue.util;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+/**
+ * 自旋提示
+ * <p>
+ * JDK 9+ 调用 Thread.onSpinWait（x86 上编译为 PAUSE 指令），
+ * JDK 8 没有这个方法，onSpinWait 为空操作；
+ * 编译目标是 1.8，通过 MethodHandle 在运行时探测
+ * </p>
+ */
+public final class ThreadHints {
+    private static final MethodHandle ON_SPIN_WAIT_METHOD_HANDLE;
+    // 运行时 是否支持 Thread.onSpinWait
+    public static final boolean SUPPORTS_ON_SPIN_WAIT;
+
+    static {
+        MethodHandle methodHandle = null;
+        try {
+            methodHandle = MethodHandles.lookup().findStatic(Thread.class, "onSpinWait", MethodType.methodType(void.class));
+        } catch (Exception ignore) {
+            // JDK 8
+        }
+        ON_SPIN_WAIT_METHOD_HANDLE = methodHandle;
+        SUPPORTS_ON_SPIN_WAIT = methodHandle != null;
+    }
+
+    private ThreadHints() {
+
+    }
+
+    /**
+     * 自旋等待 提示，不支持时 什么也不做
+     */
+    public static void onSpinWait() {
+        // static final 的 MethodHandle，JIT 可以内联成 intrinsic
+        if (null != ON_SPIN_WAIT_METHOD_HANDLE) {
+            try {
+                ON_SPIN_WAIT_METHOD_HANDLE.invokeExact();
+            } catch (Throwable ignore) {
+            }
+        }
+    }
+}
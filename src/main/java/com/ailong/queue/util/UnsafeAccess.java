@@ -12,6 +12,8 @@ import java.lang.reflect.Field;
 public final class UnsafeAccess {
 
     public static final boolean SUPPORTS_GET_AND_SET;
+    // getAndAddLong，JIT 编译为 一条 lock xadd
+    public static final boolean SUPPORTS_GET_AND_ADD_LONG;
     public static final Unsafe UNSAFE;
 
     static {
@@ -27,6 +29,7 @@ public final class UnsafeAccess {
                 instance = c.newInstance();
             } catch (Exception e) {
                 SUPPORTS_GET_AND_SET = false;
+                SUPPORTS_GET_AND_ADD_LONG = false;
                 throw new RuntimeException(e);
             }
         }
@@ -38,8 +41,16 @@ public final class UnsafeAccess {
         } catch (Exception ignored) {
         }
 
+        boolean getAndAddLongSupport = false;
+        try {
+            Unsafe.class.getMethod("getAndAddLong", Object.class, Long.TYPE, Long.TYPE);
+            getAndAddLongSupport = true;
+        } catch (Exception ignored) {
+        }
+
         UNSAFE = instance;
         SUPPORTS_GET_AND_SET = getAndSetSupport;
+        SUPPORTS_GET_AND_ADD_LONG = getAndAddLongSupport;
     }
 
     /**
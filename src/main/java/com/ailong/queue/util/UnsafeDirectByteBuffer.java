@@ -0,0 +1,86 @@
+package com.ailong.queue.util;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static com.ailong.queue.util.UnsafeAccess.UNSAFE;
+import static com.ailong.queue.util.UnsafeAccess.fieldOffset;
+
+/**
+ * 直接内存 ByteBuffer 操作
+ */
+public final class UnsafeDirectByteBuffer {
+    private static final long ADDRESS_OFFSET = fieldOffset(Buffer.class, "address");
+    public static final long BYTE_ARRAY_BASE = UNSAFE.arrayBaseOffset(byte[].class);
+
+    private UnsafeDirectByteBuffer() {
+
+    }
+
+    /**
+     * 直接内存 地址
+     *
+     * @param buffer 必须是 direct buffer
+     * @return
+     */
+    public static long getAddress(ByteBuffer buffer) {
+        return UNSAFE.getLong(buffer, ADDRESS_OFFSET);
+    }
+
+    /**
+     * 分配 起始地址按 alignment 对齐的 直接内存
+     *
+     * @param capacity  容量
+     * @param alignment 对齐，必须是2的N次方
+     * @return
+     */
+    public static ByteBuffer allocateAlignedByteBuffer(int capacity, int alignment) {
+        if (!Pow2.isPowerOfTwo(alignment)) {
+            throw new IllegalArgumentException("alignment must be a power of 2:" + alignment);
+        }
+        ByteBuffer buffy = ByteBuffer.allocateDirect(capacity + alignment);
+        return alignedSlice(capacity, alignment, buffy);
+    }
+
+    /**
+     * 从 buffer 中切出 起始地址对齐的 一段
+     *
+     * @param capacity
+     * @param alignment
+     * @param buffy
+     * @return
+     */
+    public static ByteBuffer alignedSlice(int capacity, int alignment, ByteBuffer buffy) {
+        final long address = getAddress(buffy);
+        if ((address & (alignment - 1)) == 0) {
+            buffy.limit(capacity);
+        } else {
+            int newPosition = (int) (alignment - (address & (alignment - 1)));
+            buffy.position(newPosition);
+            buffy.limit(newPosition + capacity);
+        }
+        return buffy.slice().order(ByteOrder.nativeOrder());
+    }
+
+    /**
+     * 复制 ByteBuffer 到 直接内存地址，不改变 src 的 position
+     *
+     * @param src        堆内 或 直接内存 buffer
+     * @param srcIndex   起始位置（绝对索引）
+     * @param dstAddress 目标地址
+     * @param length     长度
+     */
+    public static void copyToAddress(ByteBuffer src, int srcIndex, long dstAddress, int length) {
+        if (src.isDirect()) {
+            UNSAFE.copyMemory(getAddress(src) + srcIndex, dstAddress, length);
+        } else if (src.hasArray()) {
+            UNSAFE.copyMemory(src.array(), BYTE_ARRAY_BASE + src.arrayOffset() + srcIndex, null, dstAddress, length);
+        } else {
+            // 只读 堆内 buffer
+            for (int i = 0; i < length; i++) {
+                UNSAFE.putByte(dstAddress + i, src.get(srcIndex + i));
+            }
+        }
+    }
+}
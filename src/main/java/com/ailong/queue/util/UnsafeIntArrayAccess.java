@@ -0,0 +1,93 @@
+
+package com.ailong.queue.util;
+
+
+import static com.ailong.queue.util.UnsafeAccess.UNSAFE;
+
+/**
+ * int 数组
+ */
+public final class UnsafeIntArrayAccess {
+    public static final long INT_ARRAY_BASE;
+    public static final int INT_ELEMENT_SHIFT;
+
+    static {
+        final int scale = UNSAFE.arrayIndexScale(int[].class);
+        if (4 == scale) {
+            INT_ELEMENT_SHIFT = 2;
+        } else {
+            throw new IllegalStateException("Unknown pointer size: " + scale);
+        }
+        INT_ARRAY_BASE = UNSAFE.arrayBaseOffset(int[].class);
+    }
+
+    /**
+     * A plain store (no ordering/fences) of an element to a given offset
+     *
+     * @param buffer le buffer
+     * @param offset computed via {@link UnsafeIntArrayAccess#calcIntElementOffset(long)}
+     * @param e      an orderly kitty
+     */
+    public static void spIntElement(int[] buffer, long offset, int e) {
+        UNSAFE.putInt(buffer, offset, e);
+    }
+
+    /**
+     * An ordered store of an element to a given offset
+     *
+     * @param buffer le buffer
+     * @param offset computed via {@link UnsafeIntArrayAccess#calcCircularIntElementOffset}
+     * @param e      an orderly kitty
+     */
+    public static void soIntElement(int[] buffer, long offset, int e) {
+        UNSAFE.putOrderedInt(buffer, offset, e);
+    }
+
+    /**
+     * A plain load (no ordering/fences) of an element from a given offset.
+     *
+     * @param buffer le buffer
+     * @param offset computed via {@link UnsafeIntArrayAccess#calcIntElementOffset(long)}
+     * @return the element at the offset
+     */
+    public static int lpIntElement(int[] buffer, long offset) {
+        return UNSAFE.getInt(buffer, offset);
+    }
+
+    /**
+     * A volatile load of an element from a given offset.
+     *
+     * @param buffer le buffer
+     * @param offset computed via {@link UnsafeIntArrayAccess#calcCircularIntElementOffset}
+     * @return the element at the offset
+     */
+    public static int lvIntElement(int[] buffer, long offset) {
+        return UNSAFE.getIntVolatile(buffer, offset);
+    }
+
+    /**
+     * @param index desirable element index
+     * @return the offset in bytes within the array for a given index
+     */
+    public static long calcIntElementOffset(long index) {
+        return INT_ARRAY_BASE + (index << INT_ELEMENT_SHIFT);
+    }
+
+    /**
+     * Note: circular arrays are assumed a power of 2 in length and the `mask` is (length - 1).
+     *
+     * @param index desirable element index
+     * @param mask  (length - 1)
+     * @return the offset in bytes within the circular array for a given index
+     */
+    public static long calcCircularIntElementOffset(long index, long mask) {
+        return INT_ARRAY_BASE + ((index & mask) << INT_ELEMENT_SHIFT);
+    }
+
+    /**
+     * This makes for an easier time generating the atomic queues, and removes some warnings.
+     */
+    public static int[] allocateIntArray(int capacity) {
+        return new int[capacity];
+    }
+}
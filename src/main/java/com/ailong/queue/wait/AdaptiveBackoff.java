@@ -0,0 +1,85 @@
+package com.ailong.queue.wait;
+
+import com.ailong.queue.util.RangeUtil;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 自适应 随机指数退避
+ * <p>
+ * 在 ExponentialBackoff 的基础上 记录最近的竞争程度 level：
+ * 发生多次失败的操作 结束时 level 加一，没有失败的操作 结束时 level 减一；
+ * 第一次失败的退避窗口 从 minSpins * 2^level 开始，竞争持续激烈时 线程一开始就退避得更久，
+ * 竞争消失后 很快回到 minSpins。
+ * </p>
+ * <p>
+ * level 被所有线程共用，每次操作结束 都写 会让它的缓存行 在线程间来回传递，
+ * 所以 只对 onComplete 采样：按 sampleRate 分之一 的概率 更新 level（ThreadLocalRandom，不引入 共享计数），
+ * 并且 只在变化时写。onFailure 不采样，每次 cas 失败 都读 level
+ * </p>
+ */
+public class AdaptiveBackoff extends ExponentialBackoff {
+    public static final int DEFAULT_SAMPLE_RATE = 16;
+
+    private final int maxLevel;
+    private final int sampleRate;
+    // 竞争程度，多线程 非原子更新，偏差无害
+    private volatile int level;
+
+    public AdaptiveBackoff() {
+        this(4, 1024, 8);
+    }
+
+    /**
+     * @param minSpins 第一次失败后 最多自旋次数
+     * @param maxSpins 最多自旋次数
+     * @param maxLevel 竞争程度 上限
+     */
+    public AdaptiveBackoff(int minSpins, int maxSpins, int maxLevel) {
+        this(minSpins, maxSpins, maxLevel, DEFAULT_SAMPLE_RATE);
+    }
+
+    /**
+     * @param minSpins   第一次失败后 最多自旋次数
+     * @param maxSpins   最多自旋次数
+     * @param maxLevel   竞争程度 上限
+     * @param sampleRate 平均 每多少次 操作结束 更新一次 level，1 表示 每次都更新
+     */
+    public AdaptiveBackoff(int minSpins, int maxSpins, int maxLevel, int sampleRate) {
+        super(minSpins, maxSpins);
+        this.maxLevel = RangeUtil.checkPositiveOrZero(maxLevel, "maxLevel");
+        this.sampleRate = RangeUtil.checkGreaterThanOrEqual(sampleRate, 1, "sampleRate");
+    }
+
+    @Override
+    public void onFailure(int failures) {
+        super.onFailure(failures + level);
+    }
+
+    @Override
+    public void onComplete(int failures) {
+        // 只失败一次 不改变 level
+        if (failures == 1) {
+            return;
+        }
+        final int sampleRate = this.sampleRate;
+        if (sampleRate != 1 && ThreadLocalRandom.current().nextInt(sampleRate) != 0) {
+            return;
+        }
+        final int level = this.level;
+        if (failures > 1) {
+            if (level < maxLevel) {
+                this.level = level + 1;
+            }
+        } else if (failures == 0 && level > 0) {
+            this.level = level - 1;
+        }
+    }
+
+    /**
+     * @return 当前 竞争程度
+     */
+    public int level() {
+        return level;
+    }
+}
@@ -0,0 +1,72 @@
+package com.ailong.queue.wait;
+
+import com.ailong.queue.MessagePassingQueue;
+import com.ailong.queue.util.RangeUtil;
+import com.ailong.queue.util.ThreadHints;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 渐进退避 自旋 -> yield -> parkNanos
+ * <p>
+ * 前 maxSpins 次 自旋，接下来 maxYields 次 yield，
+ * 之后 parkNanos，时长 从 minParkPeriodNs 开始翻倍，最多 maxParkPeriodNs；
+ * 状态 只在 idleCounter 中，同一个实例 可以多个线程共用
+ * </p>
+ */
+public final class BackoffWaitStrategy implements MessagePassingQueue.WaitStrategy {
+    private final int maxSpins;
+    private final int maxYields;
+    private final long minParkPeriodNs;
+    private final long maxParkPeriodNs;
+    // 开始 park 的 idleCounter
+    private final int parkThreshold;
+
+    public BackoffWaitStrategy() {
+        this(100, 10, 1000L, 1000000L);
+    }
+
+    /**
+     * @param maxSpins        自旋次数
+     * @param maxYields       yield 次数
+     * @param minParkPeriodNs 最短 park 时长
+     * @param maxParkPeriodNs 最长 park 时长
+     */
+    public BackoffWaitStrategy(int maxSpins, int maxYields, long minParkPeriodNs, long maxParkPeriodNs) {
+        this.maxSpins = RangeUtil.checkPositiveOrZero(maxSpins, "maxSpins");
+        this.maxYields = RangeUtil.checkPositiveOrZero(maxYields, "maxYields");
+        this.minParkPeriodNs = RangeUtil.checkPositive(minParkPeriodNs, "minParkPeriodNs");
+        if (maxParkPeriodNs < minParkPeriodNs) {
+            throw new IllegalArgumentException("maxParkPeriodNs: " + maxParkPeriodNs + " (expected: >= " + minParkPeriodNs + ")");
+        }
+        if ((long) maxSpins + maxYields >= Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("maxSpins + maxYields: " + ((long) maxSpins + maxYields)
+                    + " (expected: < " + Integer.MAX_VALUE + ")");
+        }
+        this.maxParkPeriodNs = maxParkPeriodNs;
+        this.parkThreshold = maxSpins + maxYields;
+    }
+
+    @Override
+    public int idle(int idleCounter) {
+        if (idleCounter < maxSpins) {
+            ThreadHints.onSpinWait();
+        } else if (idleCounter < parkThreshold) {
+            Thread.yield();
+        } else {
+            LockSupport.parkNanos(parkPeriodNs(idleCounter - parkThreshold));
+        }
+        return WaitStrategies.increment(idleCounter);
+    }
+
+    /**
+     * 第 parks 次 park 的时长
+     */
+    long parkPeriodNs(int parks) {
+        // 左移 超过 63 位 会溢出，提前截断
+        if (parks >= Long.numberOfLeadingZeros(minParkPeriodNs) - 1) {
+            return maxParkPeriodNs;
+        }
+        return Math.min(minParkPeriodNs << parks, maxParkPeriodNs);
+    }
+}
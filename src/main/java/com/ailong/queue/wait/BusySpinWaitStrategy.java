@@ -0,0 +1,20 @@
+package com.ailong.queue.wait;
+
+import com.ailong.queue.MessagePassingQueue;
+
+/**
+ * 忙等
+ * 什么也不做 立即重试，延迟最低，独占一个 CPU 核心
+ */
+public final class BusySpinWaitStrategy implements MessagePassingQueue.WaitStrategy {
+    public static final BusySpinWaitStrategy INSTANCE = new BusySpinWaitStrategy();
+
+    private BusySpinWaitStrategy() {
+
+    }
+
+    @Override
+    public int idle(int idleCounter) {
+        return WaitStrategies.increment(idleCounter);
+    }
+}
@@ -0,0 +1,25 @@
+package com.ailong.queue.wait;
+
+/**
+ * cas 竞争 退避策略
+ * <p>
+ * 多生产者/多消费者队列 cas 索引失败后 调用 onFailure，操作结束后 调用 onComplete；
+ * 同一个实例 被所有线程共用，实现 必须线程安全
+ * </p>
+ */
+public interface ContentionBackoff {
+
+    /**
+     * cas 失败
+     *
+     * @param failures 本次操作 连续失败次数，从 1 开始
+     */
+    void onFailure(int failures);
+
+    /**
+     * 操作结束（cas 成功，或 队列满/空 返回）
+     *
+     * @param failures 本次操作 失败次数
+     */
+    void onComplete(int failures);
+}
@@ -0,0 +1,72 @@
+package com.ailong.queue.wait;
+
+import com.ailong.queue.util.RangeUtil;
+import com.ailong.queue.util.ThreadHints;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 随机 指数退避
+ * <p>
+ * 第 n 次失败后 自旋 [0, min(minSpins * 2^(n-1), maxSpins)) 之间的随机次数，
+ * 随机 打散 同时失败的线程，避免 它们在同一时刻 再次争抢同一缓存行
+ * </p>
+ */
+public class ExponentialBackoff implements ContentionBackoff {
+    protected final int minSpins;
+    protected final int maxSpins;
+    // cas 失败次数
+    private final LongAdder retries = new LongAdder();
+
+    public ExponentialBackoff() {
+        this(4, 1024);
+    }
+
+    /**
+     * @param minSpins 第一次失败后 最多自旋次数
+     * @param maxSpins 最多自旋次数
+     */
+    public ExponentialBackoff(int minSpins, int maxSpins) {
+        this.minSpins = (int) RangeUtil.checkPositive(minSpins, "minSpins");
+        if (maxSpins < minSpins) {
+            throw new IllegalArgumentException("maxSpins: " + maxSpins + " (expected: >= " + minSpins + ")");
+        }
+        this.maxSpins = maxSpins;
+    }
+
+    @Override
+    public void onFailure(int failures) {
+        retries.increment();
+        spin(ThreadLocalRandom.current().nextInt(spinLimit(failures)));
+    }
+
+    @Override
+    public void onComplete(int failures) {
+
+    }
+
+    /**
+     * @return 累计 cas 失败次数
+     */
+    public long retries() {
+        return retries.sum();
+    }
+
+    /**
+     * 自旋上限 minSpins * 2^(shift)，不超过 maxSpins
+     */
+    protected final int spinLimit(int shift) {
+        shift = shift - 1;
+        if (shift >= Integer.numberOfLeadingZeros(minSpins) - 1) {
+            return maxSpins;
+        }
+        return Math.min(minSpins << shift, maxSpins);
+    }
+
+    protected static void spin(int spins) {
+        for (int i = 0; i < spins; i++) {
+            ThreadHints.onSpinWait();
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.ailong.queue.wait;
+
+import com.ailong.queue.MessagePassingQueue;
+import com.ailong.queue.util.RangeUtil;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 固定时长 parkNanos
+ * CPU 占用最低，延迟 约等于 sleepPeriodNs 加上 操作系统的定时器精度
+ */
+public final class SleepingWaitStrategy implements MessagePassingQueue.WaitStrategy {
+    private final long sleepPeriodNs;
+
+    public SleepingWaitStrategy() {
+        this(100000L);
+    }
+
+    /**
+     * @param sleepPeriodNs 每次 park 时长
+     */
+    public SleepingWaitStrategy(long sleepPeriodNs) {
+        this.sleepPeriodNs = RangeUtil.checkPositive(sleepPeriodNs, "sleepPeriodNs");
+    }
+
+    @Override
+    public int idle(int idleCounter) {
+        LockSupport.parkNanos(sleepPeriodNs);
+        return WaitStrategies.increment(idleCounter);
+    }
+}
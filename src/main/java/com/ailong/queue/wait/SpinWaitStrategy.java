@@ -0,0 +1,22 @@
+package com.ailong.queue.wait;
+
+import com.ailong.queue.MessagePassingQueue;
+import com.ailong.queue.util.ThreadHints;
+
+/**
+ * 自旋 加 Thread.onSpinWait 提示
+ * 与忙等 延迟相近，超线程下 让出执行单元给另一个逻辑核，也降低功耗；JDK 8 上退化为忙等
+ */
+public final class SpinWaitStrategy implements MessagePassingQueue.WaitStrategy {
+    public static final SpinWaitStrategy INSTANCE = new SpinWaitStrategy();
+
+    private SpinWaitStrategy() {
+
+    }
+
+    @Override
+    public int idle(int idleCounter) {
+        ThreadHints.onSpinWait();
+        return WaitStrategies.increment(idleCounter);
+    }
+}
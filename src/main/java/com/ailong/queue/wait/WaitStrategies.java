@@ -0,0 +1,15 @@
+package com.ailong.queue.wait;
+
+final class WaitStrategies {
+
+    private WaitStrategies() {
+
+    }
+
+    /**
+     * idleCounter 加一，到 Integer.MAX_VALUE 后 不再增加，避免溢出后 回到自旋阶段
+     */
+    static int increment(int idleCounter) {
+        return idleCounter == Integer.MAX_VALUE ? idleCounter : idleCounter + 1;
+    }
+}
@@ -0,0 +1,34 @@
+package com.ailong.queue.wait;
+
+import com.ailong.queue.MessagePassingQueue;
+import com.ailong.queue.util.RangeUtil;
+import com.ailong.queue.util.ThreadHints;
+
+/**
+ * 先自旋 spinTries 次，之后 Thread.yield
+ * 线程数 多于 CPU 核数时 比自旋友好
+ */
+public final class YieldingWaitStrategy implements MessagePassingQueue.WaitStrategy {
+    private final int spinTries;
+
+    public YieldingWaitStrategy() {
+        this(100);
+    }
+
+    /**
+     * @param spinTries yield 之前 自旋次数
+     */
+    public YieldingWaitStrategy(int spinTries) {
+        this.spinTries = RangeUtil.checkPositiveOrZero(spinTries, "spinTries");
+    }
+
+    @Override
+    public int idle(int idleCounter) {
+        if (idleCounter < spinTries) {
+            ThreadHints.onSpinWait();
+        } else {
+            Thread.yield();
+        }
+        return WaitStrategies.increment(idleCounter);
+    }
+}
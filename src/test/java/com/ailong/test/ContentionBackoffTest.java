@@ -0,0 +1,91 @@
+package com.ailong.test;
+
+import com.ailong.queue.MpmcArrayQueue;
+import com.ailong.queue.MpscArrayQueue;
+import com.ailong.queue.wait.AdaptiveBackoff;
+import com.ailong.queue.wait.ExponentialBackoff;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Queue;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Slf4j
+public class ContentionBackoffTest {
+
+    @Test
+    public void mpscWithExponentialBackoff() throws InterruptedException {
+        ExponentialBackoff backoff = new ExponentialBackoff();
+        run(new MpscArrayQueue<Long>(64, backoff), 4, 1);
+        log.info("retries: {}", backoff.retries());
+    }
+
+    @Test
+    public void mpmcWithAdaptiveBackoff() throws InterruptedException {
+        AdaptiveBackoff backoff = new AdaptiveBackoff();
+        run(new MpmcArrayQueue<Long>(64, backoff), 4, 4);
+        log.info("retries: {}, level: {}", backoff.retries(), backoff.level());
+    }
+
+    @Test
+    public void adaptiveLevelSampling() {
+        // 每次 都更新
+        AdaptiveBackoff every = new AdaptiveBackoff(4, 1024, 2, 1);
+        every.onComplete(2);
+        every.onComplete(3);
+        every.onComplete(5);
+        Assert.assertEquals(2, every.level());
+        every.onComplete(1);
+        Assert.assertEquals(2, every.level());
+        every.onComplete(0);
+        Assert.assertEquals(1, every.level());
+
+        // 几乎不采样，level 基本不被写
+        AdaptiveBackoff sampled = new AdaptiveBackoff(4, 1024, 8, Integer.MAX_VALUE);
+        for (int i = 0; i < 1000; i++) {
+            sampled.onComplete(2);
+        }
+        Assert.assertTrue(sampled.level() <= 1);
+    }
+
+    private static void run(final Queue<Long> queue, int producers, int consumers) throws InterruptedException {
+        final int messages = 50000;
+        final long total = (long) producers * messages;
+        final AtomicLong consumed = new AtomicLong();
+        final AtomicLong sum = new AtomicLong();
+        Thread[] threads = new Thread[producers + consumers];
+        for (int p = 0; p < producers; p++) {
+            threads[p] = new Thread(() -> {
+                for (long i = 0; i < messages; i++) {
+                    while (!queue.offer(i)) {
+                        Thread.yield();
+                    }
+                }
+            });
+        }
+        for (int c = 0; c < consumers; c++) {
+            threads[producers + c] = new Thread(() -> {
+                while (consumed.get() < total) {
+                    Long e = queue.poll();
+                    if (e == null) {
+                        Thread.yield();
+                        continue;
+                    }
+                    sum.addAndGet(e);
+                    consumed.incrementAndGet();
+                }
+            });
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        Assert.assertEquals(total, consumed.get());
+        Assert.assertEquals((long) producers * messages * (messages - 1) / 2, sum.get());
+        Assert.assertTrue(queue.isEmpty());
+    }
+
+}
@@ -0,0 +1,133 @@
+package com.ailong.test;
+
+import com.ailong.queue.MpmcArrayQueue;
+import com.ailong.queue.metrics.InstrumentedQueue;
+import com.ailong.queue.metrics.QueueMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Assert;
+import org.junit.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+
+@Slf4j
+public class InstrumentedQueueTest {
+
+    @Test
+    public void countersAndJmx() throws Exception {
+        QueueMetrics metrics = new QueueMetrics();
+        // 每次添加 都采样深度
+        InstrumentedQueue<Integer> queue = new InstrumentedQueue<>(new MpmcArrayQueue<>(4, metrics.countingOfferBackoff(null)), metrics, 1);
+        for (int i = 0; i < 6; i++) {
+            queue.offer(i);
+        }
+        Assert.assertEquals(4, metrics.getOffers());
+        Assert.assertEquals(2, metrics.getOfferFailures());
+        Assert.assertEquals(4, metrics.getMaxDepth());
+
+        Assert.assertEquals(Integer.valueOf(0), queue.poll());
+        Assert.assertEquals(3, queue.drain(e -> {
+        }));
+        Assert.assertNull(queue.poll());
+        Assert.assertEquals(4, metrics.getPolls());
+        Assert.assertEquals(1, metrics.getEmptyPolls());
+
+        ObjectName name = metrics.register("countersAndJmx");
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            Assert.assertEquals(4L, server.getAttribute(name, "Offers"));
+            Assert.assertEquals(4L, server.getAttribute(name, "MaxDepth"));
+            Assert.assertEquals(4, server.getAttribute(name, "Capacity"));
+            server.invoke(name, "reset", null, null);
+            Assert.assertEquals(0L, server.getAttribute(name, "Offers"));
+        } finally {
+            metrics.unregister();
+        }
+        Assert.assertFalse(ManagementFactory.getPlatformMBeanServer().isRegistered(name));
+    }
+
+    @Test
+    public void fillAndDrainLimits() {
+        QueueMetrics metrics = new QueueMetrics();
+        InstrumentedQueue<Integer> queue = new InstrumentedQueue<>(new MpmcArrayQueue<>(4), metrics, 1);
+        // limit 为 0 什么都不记录
+        Assert.assertEquals(0, queue.fill(() -> 1, 0));
+        Assert.assertEquals(0, queue.drain(e -> {
+        }, 0));
+        Assert.assertEquals(0, metrics.getOfferFailures());
+        Assert.assertEquals(0, metrics.getEmptyPolls());
+
+        // 全部 放入 不算失败
+        Assert.assertEquals(3, queue.fill(() -> 1, 3));
+        Assert.assertEquals(0, metrics.getOfferFailures());
+        // 只放入 1 个，被拒绝
+        Assert.assertEquals(1, queue.fill(() -> 1, 3));
+        Assert.assertEquals(4, metrics.getOffers());
+        Assert.assertEquals(1, metrics.getOfferFailures());
+        Assert.assertEquals(0, queue.fill(() -> 1));
+        Assert.assertEquals(2, metrics.getOfferFailures());
+
+        Assert.assertEquals(4, queue.drain(e -> {
+        }, 8));
+        Assert.assertEquals(0, queue.drain(e -> {
+        }, 8));
+        Assert.assertEquals(4, metrics.getPolls());
+        Assert.assertEquals(1, metrics.getEmptyPolls());
+    }
+
+    @Test
+    public void casRetriesUnderContention() throws InterruptedException {
+        final QueueMetrics metrics = new QueueMetrics();
+        final InstrumentedQueue<Integer> queue = new InstrumentedQueue<>(new MpmcArrayQueue<>(1024,
+                metrics.countingOfferBackoff(null), metrics.countingPollBackoff(null), null), metrics);
+        final int threads = 4;
+        final int ops = 100000;
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            workers[t] = new Thread(() -> {
+                for (int i = 0; i < ops; i++) {
+                    while (!queue.offer(i)) {
+                        queue.poll();
+                    }
+                    queue.poll();
+                }
+            });
+            workers[t].start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        Assert.assertEquals((long) threads * ops, metrics.getOffers());
+        Assert.assertEquals(metrics.getOffers() - queue.size(), metrics.getPolls());
+        Assert.assertTrue(metrics.getMaxDepth() <= 1024);
+        log.info("{}", metrics);
+    }
+
+    @Test
+    public void offerCasRetriesExcludeConsumers() throws InterruptedException {
+        final QueueMetrics metrics = new QueueMetrics();
+        // 只有 消费者 竞争 cas，生产者 单线程
+        final InstrumentedQueue<Integer> queue = new InstrumentedQueue<>(new MpmcArrayQueue<>(1 << 16,
+                metrics.countingOfferBackoff(null), metrics.countingPollBackoff(null), null), metrics);
+        final int total = 1 << 16;
+        for (int i = 0; i < total; i++) {
+            Assert.assertTrue(queue.offer(i));
+        }
+        final Thread[] consumers = new Thread[4];
+        for (int t = 0; t < consumers.length; t++) {
+            consumers[t] = new Thread(() -> {
+                while (queue.poll() != null) {
+                }
+            });
+            consumers[t].start();
+        }
+        for (Thread consumer : consumers) {
+            consumer.join();
+        }
+        Assert.assertEquals(total, metrics.getPolls());
+        Assert.assertEquals(0, metrics.getOfferCasRetries());
+        log.info("{}", metrics);
+    }
+
+}
@@ -0,0 +1,112 @@
+package com.ailong.test;
+
+import com.ailong.queue.ringbuffer.MappedSpscRingBuffer;
+import com.ailong.queue.ringbuffer.MessageHandler;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+
+@Slf4j
+public class MappedSpscRingBufferTest {
+
+    @Test
+    public void twoMappingsOfSameFile() throws Exception {
+        File file = File.createTempFile("spsc", ".ring");
+        file.deleteOnExit();
+
+        // 两个映射 模拟两个进程
+        try (final MappedSpscRingBuffer producerSide = new MappedSpscRingBuffer(file, 1024);
+             final MappedSpscRingBuffer consumerSide = new MappedSpscRingBuffer(file, 1024)) {
+            final int messages = 100000;
+            Thread producer = new Thread(() -> {
+                byte[] msg = new byte[12];
+                ByteBuffer wrap = ByteBuffer.wrap(msg);
+                for (int i = 0; i < messages; i++) {
+                    wrap.putInt(0, i);
+                    while (!producerSide.write(1, msg, 0, msg.length)) {
+                        Thread.yield();
+                    }
+                }
+            });
+            producer.start();
+
+            final int[] expected = {0};
+            MessageHandler handler = new MessageHandler() {
+                @Override
+                public void onMessage(int msgTypeId, ByteBuffer buffer, int index, int length) {
+                    Assert.assertEquals(12, length);
+                    Assert.assertEquals(expected[0]++, buffer.getInt(index));
+                }
+            };
+            while (expected[0] < messages) {
+                if (consumerSide.read(handler) == 0) {
+                    Thread.yield();
+                }
+            }
+            producer.join();
+            Assert.assertTrue(producerSide.isEmpty());
+        }
+
+        // 容量 与 文件不一致
+        try {
+            new MappedSpscRingBuffer(file, 2048);
+            Assert.fail();
+        } catch (IllegalStateException expected) {
+            log.info(expected.getMessage());
+        }
+    }
+
+    @Test
+    public void closeIsIdempotentAndRejectsAccess() throws Exception {
+        File file = File.createTempFile("spsc", ".ring");
+        file.deleteOnExit();
+
+        final MappedSpscRingBuffer ring = new MappedSpscRingBuffer(file, 1024);
+        Assert.assertTrue(ring.write(1, new byte[8], 0, 8));
+        Assert.assertFalse(ring.isClosed());
+        ring.close();
+        ring.close();
+        Assert.assertTrue(ring.isClosed());
+        Assert.assertEquals(1024, ring.capacity());
+
+        try {
+            ring.write(1, new byte[8], 0, 8);
+            Assert.fail();
+        } catch (IllegalStateException expected) {
+        }
+        try {
+            ring.write(1, ByteBuffer.allocateDirect(8), 0, 8);
+            Assert.fail();
+        } catch (IllegalStateException expected) {
+        }
+        try {
+            ring.read((msgTypeId, buffer, index, length) -> Assert.fail());
+            Assert.fail();
+        } catch (IllegalStateException expected) {
+        }
+        try {
+            ring.size();
+            Assert.fail();
+        } catch (IllegalStateException expected) {
+        }
+        try {
+            ring.estimatedSize();
+            Assert.fail();
+        } catch (IllegalStateException expected) {
+        }
+        try {
+            ring.isEmpty();
+            Assert.fail();
+        } catch (IllegalStateException expected) {
+        }
+
+        // 文件保留，重新映射 可以读到 关闭前写入的消息
+        try (MappedSpscRingBuffer reopened = new MappedSpscRingBuffer(file, 1024)) {
+            Assert.assertEquals(1, reopened.read((msgTypeId, buffer, index, length) -> Assert.assertEquals(8, length)));
+        }
+    }
+
+}
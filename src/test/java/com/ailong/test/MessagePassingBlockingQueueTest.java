@@ -0,0 +1,98 @@
+package com.ailong.test;
+
+import com.ailong.queue.MessagePassingBlockingQueue;
+import com.ailong.queue.MpmcArrayQueue;
+import com.ailong.queue.MpscArrayQueue;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+@Slf4j
+public class MessagePassingBlockingQueueTest {
+
+    @Test
+    public void putTakeFullQueue() throws InterruptedException {
+        // 容量 2，生产者 大部分时间 阻塞在 put
+        final MessagePassingBlockingQueue<Integer> queue = new MessagePassingBlockingQueue<>(new MpscArrayQueue<Integer>(2));
+        final int producers = 3;
+        final int messages = 20000;
+        Thread[] threads = new Thread[producers];
+        for (int p = 0; p < producers; p++) {
+            threads[p] = new Thread(() -> {
+                try {
+                    for (int i = 0; i < messages; i++) {
+                        queue.put(i);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            threads[p].start();
+        }
+
+        long sum = 0;
+        for (int i = 0; i < producers * messages; i++) {
+            sum += queue.take();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        Assert.assertEquals((long) producers * messages * (messages - 1) / 2, sum);
+        Assert.assertNull(queue.poll(1, TimeUnit.MILLISECONDS));
+        Assert.assertEquals(2, queue.remainingCapacity());
+    }
+
+    @Test
+    public void threadPoolExecutor() throws InterruptedException {
+        final int tasks = 10000;
+        final CountDownLatch latch = new CountDownLatch(tasks);
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(4, 4, 1, TimeUnit.SECONDS,
+                new MessagePassingBlockingQueue<Runnable>(new MpmcArrayQueue<Runnable>(tasks)));
+        for (int i = 0; i < tasks; i++) {
+            executor.execute(latch::countDown);
+        }
+        Assert.assertTrue(latch.await(10, TimeUnit.SECONDS));
+        executor.shutdown();
+        Assert.assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void threadPoolExecutorRemoveAndPurge() throws InterruptedException {
+        final CountDownLatch block = new CountDownLatch(1);
+        final CountDownLatch ran = new CountDownLatch(2);
+        MessagePassingBlockingQueue<Runnable> queue = new MessagePassingBlockingQueue<>(new MpmcArrayQueue<Runnable>(16));
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 1, TimeUnit.SECONDS, queue);
+        executor.execute(() -> {
+            try {
+                block.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            ran.countDown();
+        });
+        Runnable queued = ran::countDown;
+        executor.execute(queued);
+
+        // 不支持 删除，任务 留在队列中 照常执行
+        Assert.assertFalse(executor.remove(queued));
+        Assert.assertFalse(queue.remove(queued));
+        // purge 删除 已取消的任务 经过 iterator().remove()
+        executor.submit(() -> {
+        }).cancel(false);
+        try {
+            executor.purge();
+            Assert.fail();
+        } catch (UnsupportedOperationException expected) {
+        }
+
+        block.countDown();
+        Assert.assertTrue(ran.await(10, TimeUnit.SECONDS));
+        executor.shutdown();
+        Assert.assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+    }
+
+}
@@ -0,0 +1,126 @@
+package com.ailong.test;
+
+import com.ailong.queue.MpmcArrayQueue;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Slf4j
+public class MpmcArrayQueueTest {
+
+    @Test
+    public void consumerThrowsMidBatch() {
+        final MpmcArrayQueue<Integer> queue = new MpmcArrayQueue<>(8);
+        for (int i = 0; i < 8; i++) {
+            Assert.assertTrue(queue.offer(i));
+        }
+        // drain 逐个取出，异常时 只丢失 交给 c 的那一个
+        try {
+            queue.drain(e -> {
+                if (e == 2) {
+                    throw new IllegalStateException();
+                }
+            }, 8);
+            Assert.fail();
+        } catch (IllegalStateException expected) {
+        }
+        Assert.assertEquals(5, queue.size());
+        Assert.assertEquals(Integer.valueOf(3), queue.peek());
+
+        // drainBatch 整批 已释放，队列 可以继续使用
+        try {
+            queue.drainBatch(e -> {
+                throw new IllegalStateException();
+            }, 8);
+            Assert.fail();
+        } catch (IllegalStateException expected) {
+        }
+        Assert.assertTrue(queue.isEmpty());
+
+        // 多跑几圈，生产者 绕回 之前占住的位置
+        for (int round = 0; round < 4; round++) {
+            for (int i = 0; i < 8; i++) {
+                Assert.assertTrue(queue.offer(i));
+            }
+            Assert.assertFalse(queue.offer(8));
+            for (int i = 0; i < 8; i++) {
+                Assert.assertEquals(Integer.valueOf(i), queue.poll());
+            }
+            Assert.assertNull(queue.poll());
+        }
+    }
+
+    @Test
+    public void drainBatch() {
+        MpmcArrayQueue<Integer> queue = new MpmcArrayQueue<>(16);
+        for (int i = 0; i < 10; i++) {
+            queue.offer(i);
+        }
+        final List<Integer> out = new ArrayList<>();
+        Assert.assertEquals(4, queue.drainBatch(out::add, 4));
+        Assert.assertEquals(6, queue.drainBatch(out::add, 100));
+        Assert.assertEquals(0, queue.drainBatch(out::add, 4));
+        for (int i = 0; i < 10; i++) {
+            Assert.assertEquals(Integer.valueOf(i), out.get(i));
+        }
+        Assert.assertTrue(queue.isEmpty());
+
+        // 绕过数组末尾
+        for (int round = 0; round < 5; round++) {
+            for (int i = 0; i < 12; i++) {
+                queue.offer(i);
+            }
+            Assert.assertEquals(12, queue.drain(e -> {
+            }, 100));
+        }
+    }
+
+    @Test
+    public void multiConsumerDrainBatch() throws InterruptedException {
+        final MpmcArrayQueue<Integer> queue = new MpmcArrayQueue<>(256);
+        final int producers = 2;
+        final int consumers = 3;
+        final int messages = 100000;
+        final int total = producers * messages;
+        final AtomicIntegerArray seen = new AtomicIntegerArray(total);
+        final AtomicLong consumed = new AtomicLong();
+        Thread[] threads = new Thread[producers + consumers];
+        for (int p = 0; p < producers; p++) {
+            final int base = p * messages;
+            threads[p] = new Thread(() -> {
+                for (int i = 0; i < messages; i++) {
+                    while (!queue.offer(base + i)) {
+                        Thread.yield();
+                    }
+                }
+            });
+        }
+        for (int c = 0; c < consumers; c++) {
+            threads[producers + c] = new Thread(() -> {
+                while (consumed.get() < total) {
+                    int n = queue.drainBatch(seen::incrementAndGet, 32);
+                    if (n == 0) {
+                        Thread.yield();
+                    }
+                    consumed.addAndGet(n);
+                }
+            });
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        Assert.assertEquals(total, consumed.get());
+        for (int i = 0; i < total; i++) {
+            Assert.assertEquals(1, seen.get(i));
+        }
+    }
+
+}
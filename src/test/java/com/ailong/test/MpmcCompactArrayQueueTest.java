@@ -0,0 +1,125 @@
+package com.ailong.test;
+
+import com.ailong.queue.MpmcCompactArrayQueue;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Slf4j
+public class MpmcCompactArrayQueueTest {
+
+    @Test
+    public void fullAndWrapAround() {
+        MpmcCompactArrayQueue<Integer> queue = new MpmcCompactArrayQueue<>(3);
+        Assert.assertEquals(4, queue.capacity());
+        Assert.assertNull(queue.poll());
+        Assert.assertNull(queue.peek());
+        Assert.assertNull(queue.relaxedPoll());
+        int next = 0;
+        int expected = 0;
+        // 多跑几圈，每圈 先填满 再取一半
+        for (int round = 0; round < 10; round++) {
+            while (queue.offer(next)) {
+                next++;
+            }
+            Assert.assertEquals(4, queue.size());
+            Assert.assertFalse(queue.relaxedOffer(next));
+            for (int i = 0; i < 2; i++) {
+                Assert.assertEquals(Integer.valueOf(expected), queue.peek());
+                Assert.assertEquals(Integer.valueOf(expected), queue.relaxedPeek());
+                Assert.assertEquals(Integer.valueOf(expected++), queue.poll());
+            }
+        }
+        while (!queue.isEmpty()) {
+            Assert.assertEquals(Integer.valueOf(expected++), queue.relaxedPoll());
+        }
+        Assert.assertEquals(next, expected);
+        Assert.assertNull(queue.poll());
+        Assert.assertEquals(queue.currentProducerIndex(), queue.currentConsumerIndex());
+    }
+
+    @Test
+    public void fillAndDrain() {
+        MpmcCompactArrayQueue<Integer> queue = new MpmcCompactArrayQueue<>(8);
+        final int[] next = {0};
+        Assert.assertEquals(0, queue.fill(() -> next[0]++, 0));
+        Assert.assertEquals(5, queue.fill(() -> next[0]++, 5));
+        // 只剩 3 个位置
+        Assert.assertEquals(3, queue.fill(() -> next[0]++, 5));
+        Assert.assertEquals(0, queue.fill(() -> next[0]++, 5));
+        Assert.assertEquals(8, next[0]);
+
+        final int[] expected = {0};
+        Assert.assertEquals(6, queue.drain(e -> Assert.assertEquals(expected[0]++, e.intValue()), 6));
+        Assert.assertEquals(6, queue.fill(() -> next[0]++));
+        Assert.assertEquals(8, queue.drain(e -> Assert.assertEquals(expected[0]++, e.intValue())));
+        Assert.assertEquals(14, expected[0]);
+        Assert.assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    public void multiProducerMultiConsumer() throws InterruptedException {
+        // 容量 小，生产者 和 消费者 频繁 绕圈
+        final MpmcCompactArrayQueue<Integer> queue = new MpmcCompactArrayQueue<>(16);
+        final int producers = 2;
+        final int consumers = 2;
+        final int messages = 20000;
+        final int total = producers * messages;
+        // 每个元素 只能 被取出一次
+        final AtomicIntegerArray seen = new AtomicIntegerArray(total);
+        final AtomicLong received = new AtomicLong();
+        final CountDownLatch start = new CountDownLatch(1);
+        Thread[] threads = new Thread[producers + consumers];
+        for (int p = 0; p < producers; p++) {
+            final int base = p * messages;
+            threads[p] = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    e.printStackTrace();
+                }
+                for (int i = 0; i < messages; i++) {
+                    while (!queue.offer(base + i)) {
+                        Thread.yield();
+                    }
+                }
+            });
+        }
+        for (int c = 0; c < consumers; c++) {
+            threads[producers + c] = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    e.printStackTrace();
+                }
+                while (received.get() < total) {
+                    final Integer e = (received.get() & 1) == 0 ? queue.poll() : queue.relaxedPoll();
+                    if (null == e) {
+                        continue;
+                    }
+                    seen.incrementAndGet(e);
+                    received.incrementAndGet();
+                }
+            });
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        long startTime = System.currentTimeMillis();
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        Assert.assertEquals(total, received.get());
+        for (int i = 0; i < total; i++) {
+            Assert.assertEquals(1, seen.get(i));
+        }
+        Assert.assertTrue(queue.isEmpty());
+        log.info("{} {}", total, (System.currentTimeMillis() - startTime));
+    }
+
+}
@@ -0,0 +1,70 @@
+package com.ailong.test;
+
+import com.ailong.queue.MpmcUnboundedArrayQueue;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+@Slf4j
+public class MpmcUnboundedArrayQueueTest {
+
+    @Test
+    public void offerPollAcrossChunks() {
+        MpmcUnboundedArrayQueue<Integer> queue = new MpmcUnboundedArrayQueue<>(4);
+        for (int i = 0; i < 10; i++) {
+            Assert.assertTrue(queue.offer(i));
+        }
+        Assert.assertEquals(10, queue.size());
+        Assert.assertEquals(Integer.valueOf(0), queue.peek());
+        for (int i = 0; i < 10; i++) {
+            Assert.assertEquals(Integer.valueOf(i), queue.poll());
+        }
+        Assert.assertNull(queue.poll());
+        Assert.assertTrue(queue.isEmpty());
+        Assert.assertEquals(0, queue.size());
+    }
+
+    @Test
+    public void multiProducerMultiConsumer() throws InterruptedException {
+        final MpmcUnboundedArrayQueue<Long> queue = new MpmcUnboundedArrayQueue<>(32);
+        final int producers = 4;
+        final int consumers = 4;
+        final int messages = 50000;
+        final long total = (long) producers * messages;
+        final AtomicLong consumed = new AtomicLong();
+        final AtomicLong sum = new AtomicLong();
+        Thread[] threads = new Thread[producers + consumers];
+        for (int p = 0; p < producers; p++) {
+            threads[p] = new Thread(() -> {
+                for (long i = 0; i < messages; i++) {
+                    queue.offer(i);
+                }
+            });
+        }
+        for (int c = 0; c < consumers; c++) {
+            threads[producers + c] = new Thread(() -> {
+                while (consumed.get() < total) {
+                    Long e = queue.poll();
+                    if (e == null) {
+                        Thread.yield();
+                        continue;
+                    }
+                    sum.addAndGet(e);
+                    consumed.incrementAndGet();
+                }
+            });
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        Assert.assertEquals(total, consumed.get());
+        Assert.assertEquals((long) producers * messages * (messages - 1) / 2, sum.get());
+        Assert.assertTrue(queue.isEmpty());
+    }
+
+}
@@ -0,0 +1,33 @@
+package com.ailong.test;
+
+import com.ailong.queue.MpscChunkedArrayQueue;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Assert;
+import org.junit.Test;
+
+@Slf4j
+public class MpscChunkedArrayQueueTest {
+
+    @Test
+    public void offerUntilMaxCapacity() {
+        MpscChunkedArrayQueue<Integer> queue = new MpscChunkedArrayQueue<>(8, 64);
+        Assert.assertEquals(64, queue.capacity());
+
+        int i = 0;
+        while (queue.offer(i)) {
+            i++;
+        }
+        Assert.assertEquals(64, i);
+        Assert.assertEquals(64, queue.size());
+
+        for (int j = 0; j < 64; j++) {
+            Assert.assertEquals(Integer.valueOf(j), queue.poll());
+        }
+        Assert.assertNull(queue.poll());
+
+        // 消费完 可以继续添加
+        Assert.assertTrue(queue.offer(i));
+        Assert.assertEquals(Integer.valueOf(i), queue.poll());
+    }
+
+}
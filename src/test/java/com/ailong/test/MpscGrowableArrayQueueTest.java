@@ -0,0 +1,120 @@
+package com.ailong.test;
+
+import com.ailong.queue.MpscGrowableArrayQueue;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Slf4j
+public class MpscGrowableArrayQueueTest {
+
+    /**
+     * 暴露 当前生产者块
+     */
+    static class Growable<E> extends MpscGrowableArrayQueue<E> {
+        Growable(int initialCapacity, int maxCapacity) {
+            super(initialCapacity, maxCapacity);
+        }
+
+        // 去掉 指向下一块的位置
+        int producerChunkCapacity() {
+            return producerBuffer.length - 1;
+        }
+
+        long producerBufferCapacity() {
+            return getCurrentBufferCapacity(producerMask);
+        }
+
+        long maxQueueCapacity() {
+            return maxQueueCapacity;
+        }
+    }
+
+    @Test
+    public void chunkDoublesUpToMaxCapacity() {
+        Growable<Integer> queue = new Growable<>(4, 64);
+        Assert.assertEquals(64, queue.capacity());
+        List<Integer> chunks = new ArrayList<>();
+        chunks.add(queue.producerChunkCapacity());
+        int i = 0;
+        while (queue.offer(i)) {
+            i++;
+            final int chunk = queue.producerChunkCapacity();
+            if (chunk != chunks.get(chunks.size() - 1)) {
+                chunks.add(chunk);
+            }
+        }
+        // 最大块 可以用满整个容量，offer 返回 false
+        Assert.assertEquals(64, i);
+        Assert.assertEquals(64, queue.size());
+        Assert.assertFalse(queue.offer(i));
+        Assert.assertFalse(queue.relaxedOffer(i));
+        Assert.assertEquals("[4, 8, 16, 32, 64]", chunks.toString());
+        // 最大块 的可用容量 等于 整个队列容量（索引 按 2 步进）
+        Assert.assertEquals(queue.maxQueueCapacity(), queue.producerBufferCapacity());
+
+        for (int j = 0; j < 64; j++) {
+            Assert.assertEquals(Integer.valueOf(j), queue.poll());
+        }
+        Assert.assertNull(queue.poll());
+        // 到达最大块后 不再扩容
+        Assert.assertTrue(queue.offer(i));
+        Assert.assertEquals(64, queue.producerChunkCapacity());
+        Assert.assertEquals(Integer.valueOf(i), queue.poll());
+    }
+
+    @Test
+    public void orderAcrossResizes() {
+        Growable<Integer> queue = new Growable<>(2, 1024);
+        int next = 0;
+        int expected = 0;
+        // 生产 比 消费 快，队列 逐步扩容，每次扩容 都跨块取出
+        while (queue.producerChunkCapacity() < 1024 || !queue.isEmpty()) {
+            for (int k = 0; k < 3 && queue.producerChunkCapacity() < 1024; k++) {
+                if (queue.offer(next)) {
+                    next++;
+                }
+            }
+            Assert.assertEquals(Integer.valueOf(expected++), queue.poll());
+        }
+        Assert.assertEquals(next, expected);
+        Assert.assertNull(queue.poll());
+    }
+
+    @Test
+    public void multiProducerSum() throws InterruptedException {
+        final MpscGrowableArrayQueue<Integer> queue = new MpscGrowableArrayQueue<>(8, 1 << 12);
+        final int producers = 4;
+        final int messages = 100000;
+        Thread[] threads = new Thread[producers];
+        for (int p = 0; p < producers; p++) {
+            threads[p] = new Thread(() -> {
+                for (int i = 1; i <= messages; i++) {
+                    while (!queue.offer(i)) {
+                        Thread.yield();
+                    }
+                }
+            });
+            threads[p].start();
+        }
+        long sum = 0;
+        long received = 0;
+        while (received < (long) producers * messages) {
+            final Integer e = queue.poll();
+            if (null == e) {
+                continue;
+            }
+            sum += e;
+            received++;
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        Assert.assertEquals((long) producers * messages * (messages + 1) / 2, sum);
+        Assert.assertTrue(queue.isEmpty());
+    }
+
+}
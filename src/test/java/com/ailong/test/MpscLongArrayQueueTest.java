@@ -0,0 +1,148 @@
+package com.ailong.test;
+
+import com.ailong.queue.MpscLongArrayQueue;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+
+@Slf4j
+public class MpscLongArrayQueueTest {
+
+    @Test
+    public void defaultEmptyValue() {
+        MpscLongArrayQueue queue = new MpscLongArrayQueue(4);
+        Assert.assertEquals(Long.MIN_VALUE, queue.emptyValue());
+        Assert.assertEquals(Long.MIN_VALUE, queue.poll());
+        Assert.assertEquals(Long.MIN_VALUE, queue.peek());
+        Assert.assertEquals(Long.MIN_VALUE, queue.relaxedPoll());
+        // 0 是普通元素
+        Assert.assertTrue(queue.offer(0));
+        Assert.assertEquals(0, queue.peek());
+        Assert.assertEquals(0, queue.poll());
+        Assert.assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    public void zeroEmptyValue() {
+        // emptyValue 为 0 时 不需要 Arrays.fill
+        MpscLongArrayQueue queue = new MpscLongArrayQueue(4, 0);
+        Assert.assertEquals(0, queue.poll());
+        Assert.assertTrue(queue.offer(-1));
+        Assert.assertEquals(-1, queue.poll());
+        Assert.assertEquals(0, queue.poll());
+    }
+
+    @Test
+    public void rejectEmptyValue() {
+        MpscLongArrayQueue queue = new MpscLongArrayQueue(4, -1);
+        try {
+            queue.offer(-1);
+            Assert.fail();
+        } catch (IllegalArgumentException expected) {
+        }
+        try {
+            queue.relaxedOffer(-1);
+            Assert.fail();
+        } catch (IllegalArgumentException expected) {
+        }
+        Assert.assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    public void fullAndWrapAround() {
+        MpscLongArrayQueue queue = new MpscLongArrayQueue(3, -1);
+        Assert.assertEquals(4, queue.capacity());
+        long next = 0;
+        long expected = 0;
+        // 多跑几圈，每圈 先填满 再取一半
+        for (int round = 0; round < 10; round++) {
+            while (queue.offer(next)) {
+                next++;
+            }
+            Assert.assertEquals(4, queue.size());
+            Assert.assertFalse(queue.relaxedOffer(next));
+            for (int i = 0; i < 2; i++) {
+                Assert.assertEquals(expected, queue.relaxedPeek());
+                Assert.assertEquals(expected++, queue.poll());
+            }
+        }
+        while (!queue.isEmpty()) {
+            Assert.assertEquals(expected++, queue.relaxedPoll());
+        }
+        Assert.assertEquals(next, expected);
+        Assert.assertEquals(-1, queue.poll());
+        Assert.assertEquals(queue.currentProducerIndex(), queue.currentConsumerIndex());
+    }
+
+    @Test
+    public void drain() {
+        MpscLongArrayQueue queue = new MpscLongArrayQueue(8, -1);
+        for (long i = 0; i < 6; i++) {
+            Assert.assertTrue(queue.offer(i));
+        }
+        final long[] drained = new long[8];
+        final int[] count = {0};
+        Assert.assertEquals(0, queue.drain(e -> drained[count[0]++] = e, 0));
+        Assert.assertEquals(4, queue.drain(e -> drained[count[0]++] = e, 4));
+        Assert.assertEquals(2, queue.drain(e -> drained[count[0]++] = e));
+        Assert.assertEquals(0, queue.drain(e -> drained[count[0]++] = e));
+        Assert.assertEquals(6, count[0]);
+        for (int i = 0; i < 6; i++) {
+            Assert.assertEquals(i, drained[i]);
+        }
+        // drain 之后 位置 重置为 emptyValue，可以继续使用
+        for (long i = 0; i < 8; i++) {
+            Assert.assertTrue(queue.offer(i));
+        }
+        Assert.assertEquals(8, queue.drain(e -> {
+        }));
+        Assert.assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    public void multiProducerSum() throws InterruptedException {
+        final MpscLongArrayQueue queue = new MpscLongArrayQueue(1024);
+        final int producers = 4;
+        final int messages = 200000;
+        final CountDownLatch start = new CountDownLatch(1);
+        Thread[] threads = new Thread[producers];
+        for (int p = 0; p < producers; p++) {
+            threads[p] = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    e.printStackTrace();
+                }
+                for (long i = 1; i <= messages; i++) {
+                    while (!queue.offer(i)) {
+                        Thread.yield();
+                    }
+                }
+            });
+            threads[p].start();
+        }
+
+        long startTime = System.currentTimeMillis();
+        start.countDown();
+        long sum = 0;
+        long received = 0;
+        final long total = (long) producers * messages;
+        while (received < total) {
+            final long e = queue.poll();
+            if (e == queue.emptyValue()) {
+                continue;
+            }
+            sum += e;
+            received++;
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        Assert.assertEquals((long) producers * messages * (messages + 1) / 2, sum);
+        Assert.assertTrue(queue.isEmpty());
+        log.info("{} {}", received, (System.currentTimeMillis() - startTime));
+    }
+
+}
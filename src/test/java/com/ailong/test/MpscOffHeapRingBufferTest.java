@@ -0,0 +1,89 @@
+package com.ailong.test;
+
+import com.ailong.queue.ringbuffer.MessageHandler;
+import com.ailong.queue.ringbuffer.MpscOffHeapRingBuffer;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+@Slf4j
+public class MpscOffHeapRingBufferTest {
+
+    @Test
+    public void claimCommitAbort() {
+        MpscOffHeapRingBuffer ringBuffer = new MpscOffHeapRingBuffer(1024);
+        final long[] received = new long[2];
+        final int[] count = {0};
+        MessageHandler handler = new MessageHandler() {
+            @Override
+            public void onMessage(int msgTypeId, ByteBuffer buffer, int index, int length) {
+                Assert.assertEquals(8, length);
+                received[count[0]++] = buffer.getLong(index);
+            }
+        };
+
+        int first = ringBuffer.tryClaim(1, 8);
+        int second = ringBuffer.tryClaim(1, 8);
+        int third = ringBuffer.tryClaim(1, 8);
+        ringBuffer.buffer().putLong(second, 2L);
+        ringBuffer.commit(second);
+        // 第一条 未 commit，后面的记录不可见
+        Assert.assertEquals(0, ringBuffer.read(handler));
+
+        ringBuffer.buffer().putLong(first, 1L);
+        ringBuffer.commit(first);
+        ringBuffer.abort(third);
+        Assert.assertEquals(2, ringBuffer.read(handler));
+        Assert.assertArrayEquals(new long[]{1L, 2L}, received);
+        Assert.assertTrue(ringBuffer.isEmpty());
+    }
+
+    @Test
+    public void multiProducer() throws InterruptedException {
+        final MpscOffHeapRingBuffer ringBuffer = new MpscOffHeapRingBuffer(4096);
+        final int producers = 4;
+        final int messages = 100000;
+        Thread[] threads = new Thread[producers];
+        for (int p = 0; p < producers; p++) {
+            final int id = p;
+            threads[p] = new Thread(() -> {
+                for (long i = 0; i < messages; i++) {
+                    int index;
+                    while ((index = ringBuffer.tryClaim(id + 1, 16)) < 0) {
+                        Thread.yield();
+                    }
+                    ringBuffer.buffer().putLong(index, i);
+                    ringBuffer.buffer().putLong(index + 8, ~i);
+                    ringBuffer.commit(index);
+                }
+            });
+            threads[p].start();
+        }
+
+        final long[] expected = new long[producers];
+        MessageHandler handler = new MessageHandler() {
+            @Override
+            public void onMessage(int msgTypeId, ByteBuffer buffer, int index, int length) {
+                long value = buffer.getLong(index);
+                Assert.assertEquals(~value, buffer.getLong(index + 8));
+                // 同一生产者 保持顺序
+                Assert.assertEquals(expected[msgTypeId - 1]++, value);
+            }
+        };
+        int total = 0;
+        while (total < producers * messages) {
+            int read = ringBuffer.read(handler, 64);
+            if (read == 0) {
+                Thread.yield();
+            }
+            total += read;
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        Assert.assertTrue(ringBuffer.isEmpty());
+    }
+
+}
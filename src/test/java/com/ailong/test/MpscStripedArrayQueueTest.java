@@ -0,0 +1,52 @@
+package com.ailong.test;
+
+import com.ailong.queue.MpscStripedArrayQueue;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Assert;
+import org.junit.Test;
+
+@Slf4j
+public class MpscStripedArrayQueueTest {
+
+    @Test
+    public void perProducerOrder() throws InterruptedException {
+        final MpscStripedArrayQueue<long[]> queue = new MpscStripedArrayQueue<>(256, 4);
+        Assert.assertEquals(4, queue.lanes());
+        Assert.assertEquals(256, queue.capacity());
+
+        final int producers = 8;
+        final int messages = 20000;
+        Thread[] threads = new Thread[producers];
+        for (int p = 0; p < producers; p++) {
+            final int id = p;
+            threads[p] = new Thread(() -> {
+                for (long i = 0; i < messages; i++) {
+                    long[] e = {id, i};
+                    while (!queue.offer(e)) {
+                        Thread.yield();
+                    }
+                }
+            });
+            threads[p].start();
+        }
+
+        final long[] expected = new long[producers];
+        final int[] received = {0};
+        while (received[0] < producers * messages) {
+            int n = queue.drain(e -> {
+                // 同一生产者 保持顺序
+                Assert.assertEquals(expected[(int) e[0]]++, e[1]);
+                received[0]++;
+            }, 64);
+            if (n == 0) {
+                Thread.yield();
+            }
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        Assert.assertTrue(queue.isEmpty());
+        Assert.assertNull(queue.poll());
+    }
+
+}
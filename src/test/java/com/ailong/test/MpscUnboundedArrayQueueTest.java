@@ -0,0 +1,70 @@
+package com.ailong.test;
+
+import com.ailong.queue.MpscUnboundedArrayQueue;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+
+@Slf4j
+public class MpscUnboundedArrayQueueTest {
+
+    @Test
+    public void multiWrite() throws InterruptedException {
+        final MpscUnboundedArrayQueue<Integer> queue = new MpscUnboundedArrayQueue<>(64);
+        final int producers = 10;
+        final int count = 100000;
+
+        long start = System.currentTimeMillis();
+        CountDownLatch countDownLatch = new CountDownLatch(1);
+        CountDownLatch countDownLatch1 = new CountDownLatch(producers);
+
+        for (int p = 0; p < producers; p++) {
+            final int producer = p;
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        countDownLatch.await();
+                    } catch (InterruptedException e) {
+                        e.printStackTrace();
+                    }
+                    for (int i = 0; i < count; i++) {
+                        queue.offer(producer * count + i);
+                    }
+
+                    countDownLatch1.countDown();
+                }
+            });
+
+            thread.start();
+        }
+
+        //同时启动10个线程
+        countDownLatch.countDown();
+
+        // 每个生产者内部保持顺序
+        int[] last = new int[producers];
+        for (int p = 0; p < producers; p++) {
+            last[p] = -1;
+        }
+        int received = 0;
+        while (received < producers * count) {
+            Integer v = queue.poll();
+            if (v == null) {
+                continue;
+            }
+            int producer = v / count;
+            Assert.assertTrue(last[producer] < v % count);
+            last[producer] = v % count;
+            received++;
+        }
+
+        countDownLatch1.await();
+        Assert.assertTrue(queue.isEmpty());
+        Assert.assertNull(queue.poll());
+        log.info("{} {}", received, (System.currentTimeMillis() - start));
+    }
+
+}
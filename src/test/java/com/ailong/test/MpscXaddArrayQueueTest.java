@@ -0,0 +1,91 @@
+package com.ailong.test;
+
+import com.ailong.queue.MpscXaddArrayQueue;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Assert;
+import org.junit.Test;
+
+@Slf4j
+public class MpscXaddArrayQueueTest {
+
+    @Test
+    public void offerUntilFull() {
+        MpscXaddArrayQueue<Integer> queue = new MpscXaddArrayQueue<>(8);
+        for (int i = 0; i < 8; i++) {
+            Assert.assertTrue(queue.offer(i));
+        }
+        Assert.assertFalse(queue.offer(8));
+        Assert.assertEquals(8, queue.size());
+        Assert.assertEquals(Integer.valueOf(0), queue.poll());
+        Assert.assertTrue(queue.offer(8));
+        Assert.assertEquals(0, queue.fill(() -> 9, 4));
+    }
+
+    @Test
+    public void fullQueueNeverBlocks() {
+        // 消费者 向自己的满队列 offer，必须 返回 false
+        MpscXaddArrayQueue<Integer> queue = new MpscXaddArrayQueue<>(1024);
+        int offered = 0;
+        while (queue.offer(offered)) {
+            offered++;
+        }
+        Assert.assertEquals(1024, offered);
+        Assert.assertFalse(queue.offer(-1));
+        Assert.assertEquals(0, queue.fill(() -> -1, 16));
+        Assert.assertEquals(1024, queue.size());
+        for (int i = 0; i < 1024; i++) {
+            Assert.assertEquals(Integer.valueOf(i), queue.poll());
+        }
+        // 空位多时 xadd，接近满时 cas，合计 正好填满
+        int filled = 0;
+        int n;
+        while ((n = queue.fill(() -> 1, 2048)) > 0) {
+            filled += n;
+        }
+        Assert.assertEquals(1024, filled);
+        Assert.assertFalse(queue.offer(-1));
+    }
+
+    @Test
+    public void producersRacingForLastSlots() throws InterruptedException {
+        // 容量很小，生产者 经常同时争抢最后的空位
+        final MpscXaddArrayQueue<Long> queue = new MpscXaddArrayQueue<>(4);
+        final int producers = 4;
+        final int messages = 50000;
+        Thread[] threads = new Thread[producers];
+        for (int p = 0; p < producers; p++) {
+            final boolean useFill = p % 2 == 0;
+            threads[p] = new Thread(() -> {
+                long i = 0;
+                while (i < messages) {
+                    if (useFill) {
+                        final long[] next = {i};
+                        i += queue.fill(() -> next[0]++, (int) Math.min(3, messages - i));
+                    } else if (queue.offer(i)) {
+                        i++;
+                    }
+                    Thread.yield();
+                }
+            });
+            threads[p].start();
+        }
+
+        long sum = 0;
+        int received = 0;
+        while (received < producers * messages) {
+            Long e = queue.poll();
+            if (e == null) {
+                Thread.yield();
+                continue;
+            }
+            sum += e;
+            received++;
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        Assert.assertEquals((long) producers * messages * (messages - 1) / 2, sum);
+        Assert.assertTrue(queue.isEmpty());
+    }
+
+}
@@ -0,0 +1,77 @@
+package com.ailong.test;
+
+import com.ailong.queue.MpscArrayQueue;
+import com.ailong.queue.MpscUnboundedArrayQueue;
+import com.ailong.queue.metrics.DepthStats;
+import com.ailong.queue.metrics.QueueDepthSampler;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+@Slf4j
+public class QueueDepthSamplerTest {
+
+    @Test
+    public void estimatedSize() {
+        MpscArrayQueue<Integer> queue = new MpscArrayQueue<>(8);
+        Assert.assertEquals(0, queue.estimatedSize());
+        for (int i = 0; i < 5; i++) {
+            queue.offer(i);
+        }
+        Assert.assertEquals(5, queue.estimatedSize());
+
+        // 索引 步长为 2
+        MpscUnboundedArrayQueue<Integer> unbounded = new MpscUnboundedArrayQueue<>(4);
+        for (int i = 0; i < 10; i++) {
+            unbounded.offer(i);
+        }
+        Assert.assertEquals(10, unbounded.estimatedSize());
+    }
+
+    @Test
+    public void windowStats() {
+        QueueDepthSampler sampler = new QueueDepthSampler(1, TimeUnit.SECONDS, 3);
+        MpscArrayQueue<Integer> queue = new MpscArrayQueue<>(16);
+        sampler.register("q", queue);
+        Assert.assertNull(sampler.stats("q"));
+
+        sampler.sample();
+        queue.offer(1);
+        queue.offer(2);
+        sampler.sample();
+        queue.offer(3);
+        queue.offer(4);
+        Assert.assertNull(sampler.stats("q"));
+        sampler.sample();
+
+        DepthStats stats = sampler.stats("q");
+        Assert.assertEquals(3, stats.samples());
+        Assert.assertEquals(0, stats.min());
+        Assert.assertEquals(4, stats.max());
+        Assert.assertEquals(2.0, stats.mean(), 0.0001);
+
+        sampler.unregister("q");
+        Assert.assertNull(sampler.stats("q"));
+    }
+
+    @Test
+    public void backgroundSampling() throws InterruptedException {
+        MpscArrayQueue<Integer> queue = new MpscArrayQueue<>(16);
+        queue.offer(1);
+        try (QueueDepthSampler sampler = new QueueDepthSampler(1, TimeUnit.MILLISECONDS, 5)) {
+            sampler.register("q", queue);
+            sampler.start();
+            DepthStats stats;
+            long deadline = System.currentTimeMillis() + 5000;
+            while (null == (stats = sampler.stats("q")) && System.currentTimeMillis() < deadline) {
+                Thread.sleep(1);
+            }
+            Assert.assertNotNull(stats);
+            Assert.assertEquals(1, stats.max());
+            log.info("{}", stats);
+        }
+    }
+
+}
@@ -0,0 +1,105 @@
+package com.ailong.test;
+
+import com.ailong.queue.MpmcArrayQueue;
+import com.ailong.queue.metrics.LogLinearHistogram;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Slf4j
+public class SojournHistogramTest {
+
+    @Test
+    public void histogramPercentiles() {
+        LogLinearHistogram histogram = new LogLinearHistogram(5);
+        for (long v = 1; v <= 100000; v++) {
+            histogram.record(v);
+        }
+        Assert.assertEquals(100000, histogram.totalCount());
+        Assert.assertEquals(100000, histogram.maxValue());
+        Assert.assertEquals(50000.5, histogram.mean(), 0.001);
+        // 相对误差 不超过 1/32
+        assertWithin(50000, histogram.valueAtPercentile(50));
+        assertWithin(99000, histogram.valueAtPercentile(99));
+        Assert.assertEquals(100000, histogram.valueAtPercentile(100));
+        Assert.assertEquals(1, histogram.valueAtPercentile(0));
+
+        histogram.record(Long.MAX_VALUE);
+        Assert.assertEquals(Long.MAX_VALUE, histogram.valueAtPercentile(100));
+        histogram.reset();
+        Assert.assertEquals(0, histogram.totalCount());
+        Assert.assertEquals(0, histogram.valueAtPercentile(99));
+    }
+
+    @Test
+    public void queueRecordsSojourn() throws InterruptedException {
+        LogLinearHistogram histogram = new LogLinearHistogram();
+        MpmcArrayQueue<Integer> queue = new MpmcArrayQueue<>(16, null, histogram);
+        queue.offer(1);
+        queue.offer(2);
+        Thread.sleep(20);
+        Assert.assertEquals(Integer.valueOf(1), queue.poll());
+        Assert.assertEquals(1, queue.drain(e -> {
+        }));
+        Assert.assertEquals(2, histogram.totalCount());
+        Assert.assertTrue(histogram.valueAtPercentile(50) >= TimeUnit.MILLISECONDS.toNanos(20));
+
+        Assert.assertEquals(8, queue.fill(() -> 3, 8));
+        Assert.assertEquals(8, queue.drain(e -> {
+        }, 8));
+        Assert.assertEquals(10, histogram.totalCount());
+        Assert.assertNull(new MpmcArrayQueue<>(16).sojournHistogram());
+    }
+
+    @Test
+    public void readWhileRecording() throws InterruptedException {
+        final LogLinearHistogram histogram = new LogLinearHistogram();
+        final MpmcArrayQueue<Integer> queue = new MpmcArrayQueue<>(1024, null, histogram);
+        final int producers = 2;
+        final int messages = 100000;
+        final AtomicLong consumed = new AtomicLong();
+        Thread[] threads = new Thread[producers + 2];
+        for (int p = 0; p < producers; p++) {
+            threads[p] = new Thread(() -> {
+                for (int i = 0; i < messages; i++) {
+                    while (!queue.offer(i)) {
+                        Thread.yield();
+                    }
+                }
+            });
+        }
+        for (int c = producers; c < threads.length; c++) {
+            threads[c] = new Thread(() -> {
+                while (consumed.get() < (long) producers * messages) {
+                    if (null != queue.poll()) {
+                        consumed.incrementAndGet();
+                    }
+                }
+            });
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        // 记录的同时 读取
+        long last = 0;
+        while (consumed.get() < (long) producers * messages) {
+            long p99 = histogram.valueAtPercentile(99);
+            Assert.assertTrue(p99 >= 0);
+            last = p99;
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        Assert.assertEquals((long) producers * messages, histogram.totalCount());
+        log.info("last p99: {}, {}", last, histogram);
+    }
+
+    private static void assertWithin(long expected, long actual) {
+        Assert.assertTrue("expected ~" + expected + " actual " + actual,
+                Math.abs(actual - expected) <= expected / 32 + 1);
+    }
+
+}
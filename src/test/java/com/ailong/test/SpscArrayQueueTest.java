@@ -0,0 +1,70 @@
+package com.ailong.test;
+
+import com.ailong.queue.SpscArrayQueue;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Assert;
+import org.junit.Test;
+
+@Slf4j
+public class SpscArrayQueueTest {
+
+    @Test
+    public void drainPublishesEachElement() {
+        final SpscArrayQueue<Integer> queue = new SpscArrayQueue<>(16);
+        for (int i = 0; i < 8; i++) {
+            Assert.assertTrue(queue.offer(i));
+        }
+        final int[] expected = {0};
+        // 每取出一个 就发布消费者索引，c.accept 中 size() 已经减少
+        Assert.assertEquals(8, queue.drain(e -> {
+            Assert.assertEquals(Integer.valueOf(expected[0]++), e);
+            Assert.assertEquals(8 - expected[0], queue.size());
+        }));
+        Assert.assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    public void drainBatchedPublishesConsumerIndexOnce() {
+        SpscArrayQueue<Integer> queue = new SpscArrayQueue<>(16);
+        for (int i = 0; i < 16; i++) {
+            Assert.assertTrue(queue.offer(i));
+        }
+        Assert.assertFalse(queue.offer(16));
+
+        final int[] expected = {0};
+        Assert.assertEquals(10, queue.drainBatched(e -> {
+            Assert.assertEquals(Integer.valueOf(expected[0]++), e);
+            // 批次结束前 消费者索引 没有发布
+            Assert.assertEquals(16, queue.size());
+        }, 10));
+        Assert.assertEquals(6, queue.size());
+
+        // 空出的位置 生产者 可以继续使用
+        for (int i = 16; i < 26; i++) {
+            Assert.assertTrue(queue.offer(i));
+        }
+        Assert.assertEquals(16, queue.drainBatched(e -> Assert.assertEquals(Integer.valueOf(expected[0]++), e), 32));
+        Assert.assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    public void drainBatchedPublishesConsumedElementsOnException() {
+        SpscArrayQueue<Integer> queue = new SpscArrayQueue<>(16);
+        for (int i = 0; i < 8; i++) {
+            queue.offer(i);
+        }
+        try {
+            queue.drainBatched(e -> {
+                if (e == 3) {
+                    throw new IllegalStateException();
+                }
+            }, 8);
+            Assert.fail();
+        } catch (IllegalStateException expected) {
+            // 0..3 已取出
+        }
+        Assert.assertEquals(4, queue.size());
+        Assert.assertEquals(Integer.valueOf(4), queue.poll());
+    }
+
+}
@@ -0,0 +1,139 @@
+package com.ailong.test;
+
+import com.ailong.queue.SpscIntArrayQueue;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Assert;
+import org.junit.Test;
+
+import static com.ailong.queue.util.UnsafeIntArrayAccess.allocateIntArray;
+import static com.ailong.queue.util.UnsafeIntArrayAccess.calcCircularIntElementOffset;
+import static com.ailong.queue.util.UnsafeIntArrayAccess.calcIntElementOffset;
+import static com.ailong.queue.util.UnsafeIntArrayAccess.lpIntElement;
+import static com.ailong.queue.util.UnsafeIntArrayAccess.lvIntElement;
+import static com.ailong.queue.util.UnsafeIntArrayAccess.soIntElement;
+import static com.ailong.queue.util.UnsafeIntArrayAccess.spIntElement;
+
+@Slf4j
+public class SpscIntArrayQueueTest {
+
+    @Test
+    public void unsafeIntArrayAccess() {
+        int[] buffer = allocateIntArray(4);
+        Assert.assertEquals(4, buffer.length);
+        // 下标 5 绕回 1
+        Assert.assertEquals(calcIntElementOffset(1), calcCircularIntElementOffset(5, 3));
+        spIntElement(buffer, calcIntElementOffset(1), 7);
+        soIntElement(buffer, calcCircularIntElementOffset(7, 3), 9);
+        Assert.assertEquals(7, buffer[1]);
+        Assert.assertEquals(9, buffer[3]);
+        Assert.assertEquals(7, lpIntElement(buffer, calcCircularIntElementOffset(5, 3)));
+        Assert.assertEquals(9, lvIntElement(buffer, calcIntElementOffset(3)));
+    }
+
+    @Test
+    public void emptyValue() {
+        SpscIntArrayQueue queue = new SpscIntArrayQueue(4);
+        Assert.assertEquals(Integer.MIN_VALUE, queue.emptyValue());
+        Assert.assertEquals(Integer.MIN_VALUE, queue.poll());
+        Assert.assertEquals(Integer.MIN_VALUE, queue.peek());
+        Assert.assertTrue(queue.offer(0));
+        Assert.assertEquals(0, queue.poll());
+
+        // emptyValue 不为 0，构造时 Arrays.fill
+        SpscIntArrayQueue filled = new SpscIntArrayQueue(4, -1);
+        Assert.assertEquals(-1, filled.poll());
+        Assert.assertEquals(-1, filled.relaxedPeek());
+        Assert.assertTrue(filled.offer(0));
+        Assert.assertEquals(0, filled.relaxedPoll());
+        Assert.assertTrue(filled.isEmpty());
+    }
+
+    @Test
+    public void rejectEmptyValue() {
+        SpscIntArrayQueue queue = new SpscIntArrayQueue(4, -1);
+        try {
+            queue.offer(-1);
+            Assert.fail();
+        } catch (IllegalArgumentException expected) {
+        }
+        try {
+            queue.relaxedOffer(-1);
+            Assert.fail();
+        } catch (IllegalArgumentException expected) {
+        }
+        Assert.assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    public void fullAndWrapAround() {
+        SpscIntArrayQueue queue = new SpscIntArrayQueue(8, -1);
+        Assert.assertEquals(8, queue.capacity());
+        int next = 0;
+        int expected = 0;
+        for (int round = 0; round < 10; round++) {
+            while (queue.offer(next)) {
+                next++;
+            }
+            Assert.assertEquals(8, queue.size());
+            for (int i = 0; i < 3; i++) {
+                Assert.assertEquals(expected, queue.peek());
+                Assert.assertEquals(expected++, queue.poll());
+            }
+        }
+        while (!queue.isEmpty()) {
+            Assert.assertEquals(expected++, queue.poll());
+        }
+        Assert.assertEquals(next, expected);
+        Assert.assertEquals(-1, queue.poll());
+    }
+
+    @Test
+    public void drain() {
+        SpscIntArrayQueue queue = new SpscIntArrayQueue(8, -1);
+        for (int i = 0; i < 6; i++) {
+            Assert.assertTrue(queue.offer(i));
+        }
+        final int[] drained = new int[8];
+        final int[] count = {0};
+        Assert.assertEquals(0, queue.drain(e -> drained[count[0]++] = e, 0));
+        Assert.assertEquals(4, queue.drain(e -> drained[count[0]++] = e, 4));
+        Assert.assertEquals(2, queue.drain(e -> drained[count[0]++] = e));
+        Assert.assertEquals(0, queue.drain(e -> drained[count[0]++] = e));
+        Assert.assertEquals(6, count[0]);
+        for (int i = 0; i < 6; i++) {
+            Assert.assertEquals(i, drained[i]);
+        }
+        // drain 之后 位置 重置为 emptyValue，可以再填满
+        for (int i = 0; i < 8; i++) {
+            Assert.assertTrue(queue.offer(i));
+        }
+        Assert.assertFalse(queue.offer(8));
+    }
+
+    @Test
+    public void spscOrdering() throws InterruptedException {
+        final SpscIntArrayQueue queue = new SpscIntArrayQueue(1024);
+        final int messages = 200000;
+        Thread producer = new Thread(() -> {
+            for (int i = 0; i < messages; i++) {
+                while (!queue.offer(i)) {
+                    Thread.yield();
+                }
+            }
+        });
+        long start = System.currentTimeMillis();
+        producer.start();
+        int expected = 0;
+        while (expected < messages) {
+            final int e = queue.poll();
+            if (e == queue.emptyValue()) {
+                continue;
+            }
+            Assert.assertEquals(expected++, e);
+        }
+        producer.join();
+        Assert.assertTrue(queue.isEmpty());
+        log.info("{} {}", messages, (System.currentTimeMillis() - start));
+    }
+
+}
@@ -0,0 +1,117 @@
+package com.ailong.test;
+
+import com.ailong.queue.SpscLongArrayQueue;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Assert;
+import org.junit.Test;
+
+@Slf4j
+public class SpscLongArrayQueueTest {
+
+    @Test
+    public void emptyValue() {
+        SpscLongArrayQueue queue = new SpscLongArrayQueue(4);
+        Assert.assertEquals(Long.MIN_VALUE, queue.emptyValue());
+        Assert.assertEquals(Long.MIN_VALUE, queue.poll());
+        Assert.assertEquals(Long.MIN_VALUE, queue.peek());
+        Assert.assertTrue(queue.offer(0));
+        Assert.assertEquals(0, queue.poll());
+
+        // emptyValue 不为 0，构造时 Arrays.fill
+        SpscLongArrayQueue filled = new SpscLongArrayQueue(4, -1);
+        Assert.assertEquals(-1, filled.poll());
+        Assert.assertEquals(-1, filled.relaxedPeek());
+        Assert.assertTrue(filled.offer(0));
+        Assert.assertEquals(0, filled.relaxedPoll());
+        Assert.assertTrue(filled.isEmpty());
+    }
+
+    @Test
+    public void rejectEmptyValue() {
+        SpscLongArrayQueue queue = new SpscLongArrayQueue(4, -1);
+        try {
+            queue.offer(-1);
+            Assert.fail();
+        } catch (IllegalArgumentException expected) {
+        }
+        try {
+            queue.relaxedOffer(-1);
+            Assert.fail();
+        } catch (IllegalArgumentException expected) {
+        }
+        Assert.assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    public void fullAndWrapAround() {
+        SpscLongArrayQueue queue = new SpscLongArrayQueue(8, -1);
+        Assert.assertEquals(8, queue.capacity());
+        long next = 0;
+        long expected = 0;
+        for (int round = 0; round < 10; round++) {
+            while (queue.offer(next)) {
+                next++;
+            }
+            Assert.assertEquals(8, queue.size());
+            for (int i = 0; i < 3; i++) {
+                Assert.assertEquals(expected, queue.peek());
+                Assert.assertEquals(expected++, queue.poll());
+            }
+        }
+        while (!queue.isEmpty()) {
+            Assert.assertEquals(expected++, queue.poll());
+        }
+        Assert.assertEquals(next, expected);
+        Assert.assertEquals(-1, queue.poll());
+    }
+
+    @Test
+    public void drain() {
+        SpscLongArrayQueue queue = new SpscLongArrayQueue(8, -1);
+        for (long i = 0; i < 6; i++) {
+            Assert.assertTrue(queue.offer(i));
+        }
+        final long[] drained = new long[8];
+        final int[] count = {0};
+        Assert.assertEquals(0, queue.drain(e -> drained[count[0]++] = e, 0));
+        Assert.assertEquals(4, queue.drain(e -> drained[count[0]++] = e, 4));
+        Assert.assertEquals(2, queue.drain(e -> drained[count[0]++] = e));
+        Assert.assertEquals(0, queue.drain(e -> drained[count[0]++] = e));
+        Assert.assertEquals(6, count[0]);
+        for (int i = 0; i < 6; i++) {
+            Assert.assertEquals(i, drained[i]);
+        }
+        // drain 之后 位置 重置为 emptyValue，可以再填满
+        for (long i = 0; i < 8; i++) {
+            Assert.assertTrue(queue.offer(i));
+        }
+        Assert.assertFalse(queue.offer(8));
+    }
+
+    @Test
+    public void spscOrdering() throws InterruptedException {
+        final SpscLongArrayQueue queue = new SpscLongArrayQueue(1024);
+        final int messages = 200000;
+        Thread producer = new Thread(() -> {
+            for (long i = 0; i < messages; i++) {
+                while (!queue.offer(i)) {
+                    Thread.yield();
+                }
+            }
+        });
+        long start = System.currentTimeMillis();
+        producer.start();
+        long expected = 0;
+        while (expected < messages) {
+            final long e = queue.poll();
+            if (e == queue.emptyValue()) {
+                continue;
+            }
+            Assert.assertEquals(expected++, e);
+        }
+        producer.join();
+        Assert.assertTrue(queue.isEmpty());
+        log.info("{} {}", messages, (System.currentTimeMillis() - start));
+    }
+
+}
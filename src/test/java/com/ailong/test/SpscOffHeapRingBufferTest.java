@@ -0,0 +1,56 @@
+package com.ailong.test;
+
+import com.ailong.queue.ringbuffer.MessageHandler;
+import com.ailong.queue.ringbuffer.SpscOffHeapRingBuffer;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+@Slf4j
+public class SpscOffHeapRingBufferTest {
+
+    @Test
+    public void writeReadWrapAround() {
+        SpscOffHeapRingBuffer ringBuffer = new SpscOffHeapRingBuffer(1024);
+        final byte[] msg = new byte[100];
+        final int[] count = {0};
+
+        MessageHandler handler = new MessageHandler() {
+            @Override
+            public void onMessage(int msgTypeId, ByteBuffer buffer, int index, int length) {
+                Assert.assertEquals(7, msgTypeId);
+                Assert.assertEquals(100, length);
+                Assert.assertEquals((byte) count[0], buffer.get(index));
+                Assert.assertEquals((byte) count[0], buffer.get(index + length - 1));
+                count[0]++;
+            }
+        };
+
+        // 多次绕过数组末尾
+        for (int i = 0; i < 100; i++) {
+            msg[0] = (byte) i;
+            msg[99] = (byte) i;
+            Assert.assertTrue(ringBuffer.write(7, msg, 0, msg.length));
+            Assert.assertEquals(1, ringBuffer.read(handler));
+        }
+        Assert.assertEquals(100, count[0]);
+        Assert.assertTrue(ringBuffer.isEmpty());
+    }
+
+    @Test
+    public void writeUntilFull() {
+        SpscOffHeapRingBuffer ringBuffer = new SpscOffHeapRingBuffer(1024);
+        final byte[] msg = new byte[120];
+
+        // 记录长度 128，正好 8 条
+        int written = 0;
+        while (ringBuffer.write(1, msg, 0, msg.length)) {
+            written++;
+        }
+        Assert.assertEquals(8, written);
+        Assert.assertEquals(1024, ringBuffer.size());
+    }
+
+}
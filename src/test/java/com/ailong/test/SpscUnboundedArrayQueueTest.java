@@ -0,0 +1,57 @@
+package com.ailong.test;
+
+import com.ailong.queue.SpscUnboundedArrayQueue;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Assert;
+import org.junit.Test;
+
+@Slf4j
+public class SpscUnboundedArrayQueueTest {
+
+    @Test
+    public void offerPollAcrossChunks() {
+        SpscUnboundedArrayQueue<Integer> queue = new SpscUnboundedArrayQueue<>(16);
+
+        for (int i = 0; i < 1000; i++) {
+            Assert.assertTrue(queue.offer(i));
+        }
+        Assert.assertEquals(1000, queue.size());
+        Assert.assertEquals(Integer.valueOf(0), queue.peek());
+
+        for (int i = 0; i < 1000; i++) {
+            Assert.assertEquals(Integer.valueOf(i), queue.poll());
+        }
+        Assert.assertNull(queue.poll());
+        Assert.assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    public void singleWriteSingleRead() throws InterruptedException {
+        final SpscUnboundedArrayQueue<Integer> queue = new SpscUnboundedArrayQueue<>(128);
+        final int count = 1_000_000;
+
+        Thread write = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < count; i++) {
+                    queue.offer(i);
+                }
+            }
+        });
+
+        long start = System.currentTimeMillis();
+        write.start();
+
+        int expected = 0;
+        while (expected < count) {
+            Integer v = queue.poll();
+            if (v != null) {
+                Assert.assertEquals(expected++, v.intValue());
+            }
+        }
+        write.join();
+        Assert.assertTrue(queue.isEmpty());
+        log.info("{} {}", count, (System.currentTimeMillis() - start));
+    }
+
+}
@@ -0,0 +1,57 @@
+package com.ailong.test;
+
+import com.ailong.queue.MessagePassingQueue;
+import com.ailong.queue.MpscArrayQueue;
+import com.ailong.queue.util.ThreadHints;
+import com.ailong.queue.wait.BackoffWaitStrategy;
+import com.ailong.queue.wait.BusySpinWaitStrategy;
+import com.ailong.queue.wait.SleepingWaitStrategy;
+import com.ailong.queue.wait.SpinWaitStrategy;
+import com.ailong.queue.wait.YieldingWaitStrategy;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Assert;
+import org.junit.Test;
+
+@Slf4j
+public class WaitStrategyTest {
+
+    @Test
+    public void drainWithEachStrategy() throws InterruptedException {
+        log.info("Thread.onSpinWait supported: {}", ThreadHints.SUPPORTS_ON_SPIN_WAIT);
+        MessagePassingQueue.WaitStrategy[] strategies = {
+                BusySpinWaitStrategy.INSTANCE,
+                SpinWaitStrategy.INSTANCE,
+                new YieldingWaitStrategy(10),
+                new BackoffWaitStrategy(10, 10, 1000L, 100000L),
+                new SleepingWaitStrategy(10000L)
+        };
+        for (MessagePassingQueue.WaitStrategy strategy : strategies) {
+            final MpscArrayQueue<Integer> queue = new MpscArrayQueue<>(16);
+            final int messages = 1000;
+            Thread producer = new Thread(() -> {
+                for (int i = 0; i < messages; i++) {
+                    while (!queue.offer(i)) {
+                        Thread.yield();
+                    }
+                }
+            });
+            producer.start();
+
+            final int[] received = {0};
+            queue.drain(e -> {
+                Assert.assertEquals(Integer.valueOf(received[0]), e);
+                received[0]++;
+            }, strategy, () -> received[0] < messages);
+            producer.join();
+            Assert.assertEquals(messages, received[0]);
+        }
+    }
+
+    @Test
+    public void backoffIdleCounterSaturates() {
+        BackoffWaitStrategy strategy = new BackoffWaitStrategy(0, 0, 1L, 1L);
+        Assert.assertEquals(Integer.MAX_VALUE, strategy.idle(Integer.MAX_VALUE));
+        Assert.assertEquals(Integer.MAX_VALUE, strategy.idle(Integer.MAX_VALUE - 1));
+    }
+
+}
@@ -0,0 +1,134 @@
+package com.ailong.test;
+
+import com.ailong.queue.WorkStealingArrayDeque;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Slf4j
+public class WorkStealingArrayDequeTest {
+
+    @Test
+    public void pushPopStealGrow() {
+        WorkStealingArrayDeque<Integer> deque = new WorkStealingArrayDeque<>(2);
+        for (int i = 0; i < 10; i++) {
+            deque.push(i);
+        }
+        Assert.assertEquals(16, deque.capacity());
+        Assert.assertEquals(10, deque.size());
+        // 所有者 后进先出，窃取者 先进先出
+        Assert.assertEquals(Integer.valueOf(9), deque.pop());
+        Assert.assertEquals(Integer.valueOf(0), deque.steal());
+        Assert.assertEquals(Integer.valueOf(1), deque.steal());
+        for (int i = 8; i >= 2; i--) {
+            Assert.assertEquals(Integer.valueOf(i), deque.pop());
+        }
+        Assert.assertNull(deque.pop());
+        Assert.assertNull(deque.steal());
+        Assert.assertTrue(deque.isEmpty());
+        Assert.assertEquals(0, deque.size());
+    }
+
+    @Test
+    public void ownerAndThieves() throws InterruptedException {
+        final WorkStealingArrayDeque<Integer> deque = new WorkStealingArrayDeque<>(2);
+        final int thieves = 3;
+        final int items = 200000;
+        final AtomicIntegerArray seen = new AtomicIntegerArray(items);
+        final AtomicLong taken = new AtomicLong();
+        Thread[] threads = new Thread[thieves];
+        for (int t = 0; t < thieves; t++) {
+            threads[t] = new Thread(() -> {
+                while (taken.get() < items) {
+                    Integer e = deque.steal();
+                    if (e == null) {
+                        Thread.yield();
+                        continue;
+                    }
+                    seen.incrementAndGet(e);
+                    taken.incrementAndGet();
+                }
+            });
+            threads[t].start();
+        }
+
+        // 所有者 每 push 3 个 pop 1 个
+        for (int i = 0; i < items; i++) {
+            deque.push(i);
+            if (i % 3 == 2) {
+                Integer e = deque.pop();
+                if (e != null) {
+                    seen.incrementAndGet(e);
+                    taken.incrementAndGet();
+                }
+            }
+        }
+        Integer e;
+        while (null != (e = deque.pop())) {
+            seen.incrementAndGet(e);
+            taken.incrementAndGet();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        Assert.assertEquals(items, taken.get());
+        for (int i = 0; i < items; i++) {
+            Assert.assertEquals(1, seen.get(i));
+        }
+        log.info("capacity: {}", deque.capacity());
+    }
+
+    @Test
+    public void sameInstancePushedRepeatedly() throws InterruptedException {
+        // 容量 固定 不扩容，所有者 反复 push 同一个对象 绕过数组末尾
+        final WorkStealingArrayDeque<Object> deque = new WorkStealingArrayDeque<>(4);
+        final Object task = new Object();
+        final int thieves = 3;
+        final int items = 500000;
+        final AtomicLong taken = new AtomicLong();
+        final AtomicLong pushed = new AtomicLong();
+        Thread[] threads = new Thread[thieves];
+        for (int t = 0; t < thieves; t++) {
+            threads[t] = new Thread(() -> {
+                while (taken.get() < items) {
+                    Object e = deque.steal();
+                    if (e == null) {
+                        Thread.yield();
+                        continue;
+                    }
+                    Assert.assertSame(task, e);
+                    taken.incrementAndGet();
+                }
+            });
+            threads[t].start();
+        }
+
+        while (pushed.get() < items) {
+            if (deque.size() < 3) {
+                deque.push(task);
+                pushed.incrementAndGet();
+            } else {
+                Object e = deque.pop();
+                if (e != null) {
+                    Assert.assertSame(task, e);
+                    taken.incrementAndGet();
+                }
+            }
+        }
+        Object e;
+        while (null != (e = deque.pop())) {
+            Assert.assertSame(task, e);
+            taken.incrementAndGet();
+        }
+        // 丢失元素时 窃取者 不会退出
+        for (Thread thread : threads) {
+            thread.join(10000);
+        }
+        Assert.assertEquals(items, taken.get());
+        Assert.assertEquals(4, deque.capacity());
+    }
+
+}
@@ -1,9 +1,20 @@
 package com.ailong.test.executor;
 
+import com.ailong.queue.executor.EventLoopExecutor;
+import com.ailong.queue.wait.BackoffWaitStrategy;
 import lombok.extern.slf4j.Slf4j;
+import org.junit.Assert;
 import org.junit.Test;
 
-import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Created by jiangfei on 2020/5/24.
@@ -12,16 +23,171 @@ import java.io.IOException;
 public class ExecutorTest {
 
     @Test
-    public void test1() throws IOException {
-        TestExecutor testExecutor = new TestExecutor();
-        testExecutor.submit(new Runnable() {
-            @Override
-            public void run() {
-                log.info("222");
+    public void test1() throws Exception {
+        EventLoopExecutor executor = new EventLoopExecutor(1024);
+        Future<Boolean> future = executor.submit(executor::inEventLoop);
+        Assert.assertTrue(future.get());
+        Assert.assertFalse(executor.inEventLoop());
+
+        Future<?> failed = executor.submit(() -> {
+            throw new IllegalStateException("boom");
+        });
+        try {
+            failed.get();
+            Assert.fail();
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+
+        executor.shutdown();
+        Assert.assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+        Assert.assertTrue(executor.isTerminated());
+        try {
+            executor.execute(() -> log.info("222"));
+            Assert.fail();
+        } catch (RejectedExecutionException expected) {
+        }
+    }
+
+    @Test
+    public void serialExecutionFromManyProducers() throws Exception {
+        // 等待策略 最终会 park，提交线程 需要唤醒事件循环
+        final EventLoopExecutor executor = new EventLoopExecutor(Executors.defaultThreadFactory(), 1 << 16, 16,
+                new BackoffWaitStrategy(10, 10, 1000L, 100000000L));
+        final int producers = 4;
+        final int tasks = 10000;
+        // 只在事件循环线程中 修改，不需要同步
+        final long[] counter = {0};
+        final AtomicLong running = new AtomicLong();
+        Thread[] threads = new Thread[producers];
+        final List<Future<Long>> futures = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            threads[p] = new Thread(() -> {
+                for (int i = 0; i < tasks; i++) {
+                    Future<Long> f = executor.submit(() -> {
+                        Assert.assertEquals(1, running.incrementAndGet());
+                        long v = ++counter[0];
+                        running.decrementAndGet();
+                        return v;
+                    });
+                    if (i == tasks - 1) {
+                        synchronized (futures) {
+                            futures.add(f);
+                        }
+                    }
+                }
+            });
+            threads[p].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        for (Future<Long> f : futures) {
+            Assert.assertTrue(f.get(5, TimeUnit.SECONDS) <= (long) producers * tasks);
+        }
+        executor.shutdown();
+        Assert.assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+        Assert.assertEquals((long) producers * tasks, counter[0]);
+    }
+
+    @Test
+    public void wakeUpParkedLoop() throws Exception {
+        // 最长 park 10 秒，只有 unpark 才能及时执行
+        EventLoopExecutor executor = new EventLoopExecutor(Executors.defaultThreadFactory(), 16, 16,
+                new BackoffWaitStrategy(0, 0, 10000000000L, 10000000000L));
+        Assert.assertEquals(Integer.valueOf(1), executor.submit(() -> 1).get(1, TimeUnit.SECONDS));
+        Thread.sleep(100);
+        Assert.assertEquals(Integer.valueOf(2), executor.submit(() -> 2).get(1, TimeUnit.SECONDS));
+        executor.shutdown();
+        Assert.assertTrue(executor.awaitTermination(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void acceptedTasksCompleteWhenRacingShutdown() throws Exception {
+        for (int round = 0; round < 200; round++) {
+            final EventLoopExecutor executor = new EventLoopExecutor(1 << 12);
+            final int producers = 3;
+            final List<Future<?>> accepted = new ArrayList<>();
+            final Thread[] threads = new Thread[producers];
+            for (int p = 0; p < producers; p++) {
+                threads[p] = new Thread(() -> {
+                    final List<Future<?>> local = new ArrayList<>();
+                    try {
+                        while (true) {
+                            local.add(executor.submit(() -> {
+                            }));
+                        }
+                    } catch (RejectedExecutionException expected) {
+                    }
+                    synchronized (accepted) {
+                        accepted.addAll(local);
+                    }
+                });
+                threads[p].start();
             }
+            executor.shutdown();
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            Assert.assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+            // execute 正常返回的任务 都已执行
+            for (Future<?> f : accepted) {
+                Assert.assertTrue(f.isDone());
+                f.get(0, TimeUnit.SECONDS);
+            }
+        }
+    }
+
+    @Test
+    public void shutdownNowReturnsQueuedTasks() throws Exception {
+        final EventLoopExecutor executor = new EventLoopExecutor(16);
+        final AtomicLong ran = new AtomicLong();
+        final CountDownLatch blocking = new CountDownLatch(1);
+        // 挡住 事件循环，直到 shutdownNow
+        final Future<?> blocker = executor.submit(() -> {
+            blocking.countDown();
+            while (!executor.isShutdown()) {
+                Thread.yield();
+            }
+        });
+        blocking.await();
+        final List<Runnable> queued = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            final Runnable task = ran::incrementAndGet;
+            executor.execute(task);
+            queued.add(task);
+        }
+        final Future<?> future = executor.submit(() -> ran.incrementAndGet());
+
+        final List<Runnable> unexecuted = executor.shutdownNow();
+        Assert.assertTrue(executor.isTerminated());
+        Assert.assertTrue(blocker.isDone());
+        Assert.assertEquals(4, unexecuted.size());
+        Assert.assertTrue(unexecuted.containsAll(queued));
+        Assert.assertTrue(unexecuted.contains(future));
+        Assert.assertTrue(future.isCancelled());
+        Assert.assertEquals(0, ran.get());
+        // 已经取走
+        Assert.assertTrue(executor.shutdownNow().isEmpty());
+    }
+
+    @Test
+    public void shutdownNowInEventLoop() throws Exception {
+        final EventLoopExecutor executor = new EventLoopExecutor(16);
+        final AtomicLong ran = new AtomicLong();
+        final CountDownLatch queuedLatch = new CountDownLatch(1);
+        final Future<List<Runnable>> result = executor.submit(() -> {
+            queuedLatch.await();
+            return executor.shutdownNow();
         });
+        final Runnable task = ran::incrementAndGet;
+        executor.execute(task);
+        executor.execute(task);
+        queuedLatch.countDown();
 
-        System.in.read();
+        Assert.assertEquals(2, result.get(5, TimeUnit.SECONDS).size());
+        Assert.assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+        Assert.assertEquals(0, ran.get());
     }
 
 }